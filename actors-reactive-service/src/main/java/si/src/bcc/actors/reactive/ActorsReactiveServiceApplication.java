@@ -0,0 +1,13 @@
+package si.src.bcc.actors.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ActorsReactiveServiceApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ActorsReactiveServiceApplication.class, args);
+	}
+
+}
@@ -0,0 +1,31 @@
+package si.src.bcc.actors.reactive.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+import org.springframework.data.relational.core.mapping.DefaultNamingStrategy;
+import org.springframework.data.relational.core.mapping.NamingStrategy;
+import java.util.List;
+
+@Configuration
+public class R2dbcConfig {
+
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+        return R2dbcCustomConversions.of(DialectResolver.getDialect(connectionFactory), List.of());
+    }
+
+    // Quoted names, as the globally quoted identifiers of actors-service
+    @Bean
+    public R2dbcMappingContext r2dbcMappingContext(ObjectProvider<NamingStrategy> namingStrategy,
+                                                   R2dbcCustomConversions r2dbcCustomConversions) {
+        R2dbcMappingContext mappingContext = new R2dbcMappingContext(namingStrategy.getIfAvailable(() -> DefaultNamingStrategy.INSTANCE));
+        mappingContext.setSimpleTypeHolder(r2dbcCustomConversions.getSimpleTypeHolder());
+        mappingContext.setForceQuote(true);
+        return mappingContext;
+    }
+}
@@ -0,0 +1,48 @@
+package si.src.bcc.actors.reactive.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import si.src.bcc.actors.reactive.security.JwtAuthenticationWebFilter;
+
+@Configuration
+@EnableWebFluxSecurity
+public class SecurityConfig {
+
+    private final JwtConfig jwtConfig;
+
+    public SecurityConfig(JwtConfig jwtConfig) {
+        this.jwtConfig = jwtConfig;
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        http
+                .csrf(csrf -> csrf.disable())
+                .httpBasic(httpBasic -> httpBasic.disable())
+                .formLogin(formLogin -> formLogin.disable())
+                .authorizeExchange(auth -> auth
+                        // Actuator endpoints
+                        .pathMatchers("/actuator/**").permitAll()
+                        // Public endpoints
+                        .pathMatchers("/api/actors/search",
+                                "/api/auth/test-token").permitAll()
+                        // Protected endpoints
+                        .anyExchange().authenticated()
+                )
+                // Stateless, like actors-service; a missing or invalid token is a 403 there as well
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN))
+                )
+                .addFilterAt(new JwtAuthenticationWebFilter(jwtConfig.jwtKey()), SecurityWebFiltersOrder.AUTHENTICATION);
+
+        return http.build();
+    }
+}
@@ -0,0 +1,98 @@
+package si.src.bcc.actors.reactive.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.actors.reactive.dto.ActorResponse;
+import si.src.bcc.actors.reactive.exception.InvalidActorDataException;
+import si.src.bcc.actors.reactive.exception.ActorNotFoundException;
+import si.src.bcc.actors.reactive.exception.NoActorsFoundException;
+import si.src.bcc.actors.reactive.mapper.ActorMapper;
+import si.src.bcc.actors.reactive.service.ActorService;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The read endpoints of actors-service on WebFlux and R2DBC, same paths, parameters and response bodies.
+ * <p>
+ * Nothing is cached here and there are no writes, so the collections carry no ETag; a single actor keeps its
+ * ETag and Last-Modified from {@code updated_at}.
+ */
+@RestController
+@RequestMapping("/api/actors")
+public class ActorController {
+
+    private final ActorService actorService;
+    private final ActorMapper actorMapper;
+
+    @Autowired
+    public ActorController(ActorService actorService, ActorMapper actorMapper) {
+        this.actorService = actorService;
+        this.actorMapper = actorMapper;
+    }
+
+    // Written as a JSON array, or newline delimited JSON with Accept: application/x-ndjson, while it is read
+    @GetMapping(value = "/all", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<ActorResponse>>> getAllActorsWithoutPagination() {
+        return actorService.hasActors()
+                .flatMap(exists -> exists
+                        ? Mono.just(ResponseEntity.ok()
+                                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                                .body(actorService.streamAllActors().map(actorMapper::toResponse)))
+                        : Mono.error(new NoActorsFoundException()));
+    }
+
+    @GetMapping("/paged")
+    public Mono<ResponseEntity<Page<ActorResponse>>> getAllActors(Pageable pageable) {
+        return actorService.getAllActors(pageable)
+                .flatMap(actors -> actors.isEmpty()
+                        ? Mono.error(new NoActorsFoundException())
+                        : Mono.just(ResponseEntity.ok()
+                                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                                .body(actors.map(actorMapper::toResponse))));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ActorResponse>> getActorById(@PathVariable Long id, ServerWebExchange exchange) {
+        return actorService.getActorById(id)
+                .switchIfEmpty(Mono.error(new ActorNotFoundException(id)))
+                .map(actor -> {
+                    if (actor.getUpdatedAt() != null) {
+                        Instant lastModified = actor.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant();
+                        // The ETag of actors-service, a client can revalidate against either of them
+                        if (exchange.checkNotModified("W/\"" + lastModified.toEpochMilli() + "\"", lastModified)) {
+                            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+                        }
+                    }
+                    return ResponseEntity.ok()
+                            .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                            .body(actorMapper.toResponse(actor));
+                });
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<Page<ActorResponse>>> searchActors(@RequestParam String searchTerm, Pageable pageable) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return Mono.error(new InvalidActorDataException("searchTerm", "SearchTerm cannot be empty"));
+        }
+        return actorService.searchActors(searchTerm, pageable)
+                .flatMap(actors -> actors.isEmpty()
+                        ? Mono.error(new NoActorsFoundException())
+                        : Mono.just(ResponseEntity.ok()
+                                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                                .body(actors.map(actorMapper::toResponse))));
+    }
+}
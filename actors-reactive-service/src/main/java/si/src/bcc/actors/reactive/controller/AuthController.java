@@ -0,0 +1,34 @@
+package si.src.bcc.actors.reactive.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import si.src.bcc.actors.reactive.dto.LoginRequest;
+import si.src.bcc.actors.reactive.util.JwtTokenGenerator;
+
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+
+    private final JwtTokenGenerator tokenGenerator;
+
+    @Autowired
+    public AuthController(JwtTokenGenerator tokenGenerator) {
+        this.tokenGenerator = tokenGenerator;
+    }
+
+    @PostMapping("/test-token")
+    public ResponseEntity<String> getTestToken(@ModelAttribute LoginRequest loginRequest) {
+        // Only the single user of jwt.username and jwt.password is known, there is no user store
+        if (tokenGenerator.getUsername().equals(loginRequest.getUsername()) &&
+                tokenGenerator.getPassword().equals(loginRequest.getPassword())) {
+            String token = tokenGenerator.generateToken(loginRequest.getUsername());
+            return ResponseEntity.ok(token);
+        }
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+}
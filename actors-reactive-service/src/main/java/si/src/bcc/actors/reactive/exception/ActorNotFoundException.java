@@ -0,0 +1,7 @@
+package si.src.bcc.actors.reactive.exception;
+
+public class ActorNotFoundException extends RuntimeException {
+    public ActorNotFoundException(Long id) {
+        super("No actor found with id: " + id);
+    }
+}
@@ -0,0 +1,11 @@
+package si.src.bcc.actors.reactive.exception;
+
+public class InvalidActorDataException extends RuntimeException {
+    public InvalidActorDataException(String message) {
+        super(message);
+    }
+
+    public InvalidActorDataException(String field, String reason) {
+        super("Invalid actor data: " + field + " - " + reason);
+    }
+}
\ No newline at end of file
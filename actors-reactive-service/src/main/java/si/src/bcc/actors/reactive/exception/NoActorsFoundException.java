@@ -0,0 +1,7 @@
+package si.src.bcc.actors.reactive.exception;
+
+public class NoActorsFoundException extends RuntimeException {
+    public NoActorsFoundException() {
+        super("No actors found.");
+    }
+}
\ No newline at end of file
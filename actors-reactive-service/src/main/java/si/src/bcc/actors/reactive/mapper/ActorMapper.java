@@ -0,0 +1,21 @@
+package si.src.bcc.actors.reactive.mapper;
+
+import org.springframework.stereotype.Component;
+import si.src.bcc.actors.reactive.dto.ActorResponse;
+import si.src.bcc.actors.reactive.model.Actor;
+
+@Component
+public class ActorMapper {
+
+    public ActorResponse toResponse(Actor actor) {
+        ActorResponse response = new ActorResponse();
+        response.setId(actor.getId());
+        response.setFirstName(actor.getFirstName());
+        response.setLastName(actor.getLastName());
+        response.setBornDate(actor.getBornDate());
+        response.setMovies(actor.getMovies());
+        response.setCreatedAt(actor.getCreatedAt());
+        response.setUpdatedAt(actor.getUpdatedAt());
+        return response;
+    }
+}
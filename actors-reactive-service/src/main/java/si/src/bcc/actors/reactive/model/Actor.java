@@ -0,0 +1,29 @@
+package si.src.bcc.actors.reactive.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Row of actors.actors, the table actors-service creates and writes. The movies live in actor_movies and are
+ * filled in by the service, R2DBC maps no relations.
+ */
+@Data
+@Table(name = "actors", schema = "actors")
+public class Actor {
+    @Id
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private LocalDate bornDate;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @Transient
+    private Set<String> movies = new HashSet<>();
+}
@@ -0,0 +1,4 @@
+package si.src.bcc.actors.reactive.model;
+
+public record ActorMovie(Long actorId, String movieImdbId) {
+}
@@ -0,0 +1,16 @@
+package si.src.bcc.actors.reactive.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "jwt")
+public class JwtProperties {
+    private String username;
+    private String password;
+    private Long expiration;
+    // Base64 HS256 key shared with actors-service, a random key when empty
+    private String secret;
+}
@@ -0,0 +1,27 @@
+package si.src.bcc.actors.reactive.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.actors.reactive.model.Actor;
+import si.src.bcc.actors.reactive.model.ActorMovie;
+import java.util.Collection;
+
+public interface ActorRepository extends ReactiveCrudRepository<Actor, Long>, ActorSearchRepository {
+
+    Flux<Actor> findAllBy(Pageable pageable);
+
+    Flux<Actor> findAllByOrderById(Limit limit);
+
+    Flux<Actor> findByIdGreaterThanOrderById(Long id, Limit limit);
+
+    @Query("SELECT EXISTS (SELECT 1 FROM actors.actors)")
+    Mono<Boolean> existsAny();
+
+    @Query("SELECT actor_id, movie_imdb_id FROM actors.actor_movies WHERE actor_id IN (:ids)")
+    Flux<ActorMovie> findMovies(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,14 @@
+package si.src.bcc.actors.reactive.repository;
+
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.actors.reactive.model.Actor;
+
+public interface ActorSearchRepository {
+
+    // Same matches as the LIKE search of actors-service: the term anywhere in the first or last name, any case
+    Flux<Actor> search(String searchTerm, Pageable pageable);
+
+    Mono<Long> countSearch(String searchTerm);
+}
@@ -0,0 +1,15 @@
+package si.src.bcc.actors.reactive.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.actors.reactive.model.Actor;
+
+public interface ActorService {
+    Mono<Boolean> hasActors();
+    Flux<Actor> streamAllActors();
+    Mono<Page<Actor>> getAllActors(Pageable pageable);
+    Mono<Actor> getActorById(Long id);
+    Mono<Page<Actor>> searchActors(String searchTerm, Pageable pageable);
+}
@@ -0,0 +1,85 @@
+package si.src.bcc.actors.reactive.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.actors.reactive.model.Actor;
+import si.src.bcc.actors.reactive.repository.ActorRepository;
+import si.src.bcc.actors.reactive.service.ActorService;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads actors with their movies: one query for the actors, then one {@code IN} query for the movies of all of
+ * them, the same statements as the projection reads of actors-service.
+ */
+@Slf4j
+@Service
+public class ActorServiceImpl implements ActorService {
+
+    // Actors per keyset query of streamAllActors, no connection is held between two chunks
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    private final ActorRepository actorRepository;
+
+    @Autowired
+    public ActorServiceImpl(ActorRepository actorRepository) {
+        this.actorRepository = actorRepository;
+    }
+
+    @Override
+    public Mono<Boolean> hasActors() {
+        return actorRepository.existsAny();
+    }
+
+    // The next chunk is only read once the client has taken the previous one, a slow client holds one chunk
+    @Override
+    public Flux<Actor> streamAllActors() {
+        return actorRepository.findAllByOrderById(Limit.of(STREAM_CHUNK_SIZE)).collectList()
+                .expand(chunk -> chunk.size() < STREAM_CHUNK_SIZE ? Mono.empty()
+                        : actorRepository.findByIdGreaterThanOrderById(chunk.get(chunk.size() - 1).getId(),
+                                Limit.of(STREAM_CHUNK_SIZE)).collectList())
+                .concatMap(this::withMovies, 1);
+    }
+
+    @Override
+    public Mono<Page<Actor>> getAllActors(Pageable pageable) {
+        log.debug("Fetching actors page {}", pageable);
+        return Mono.zip(actorRepository.findAllBy(pageable).collectList().flatMapMany(this::withMovies).collectList(),
+                        actorRepository.count())
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    @Override
+    public Mono<Actor> getActorById(Long id) {
+        log.debug("Fetching actor with ID: {}", id);
+        return actorRepository.findById(id)
+                .flatMap(actor -> withMovies(List.of(actor)).next());
+    }
+
+    @Override
+    public Mono<Page<Actor>> searchActors(String searchTerm, Pageable pageable) {
+        log.debug("Searching actors with term: {}", searchTerm);
+        return Mono.zip(actorRepository.search(searchTerm, pageable).collectList().flatMapMany(this::withMovies).collectList(),
+                        actorRepository.countSearch(searchTerm))
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    private Flux<Actor> withMovies(List<Actor> actors) {
+        if (actors.isEmpty()) {
+            return Flux.empty();
+        }
+        Map<Long, Actor> byId = new LinkedHashMap<>();
+        actors.forEach(actor -> byId.put(actor.getId(), actor));
+        return actorRepository.findMovies(byId.keySet())
+                .doOnNext(movie -> byId.get(movie.actorId()).getMovies().add(movie.movieImdbId()))
+                .thenMany(Flux.fromIterable(actors));
+    }
+}
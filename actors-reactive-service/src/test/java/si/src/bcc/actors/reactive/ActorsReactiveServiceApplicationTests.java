@@ -0,0 +1,189 @@
+package si.src.bcc.actors.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import si.src.bcc.actors.reactive.dto.ActorResponse;
+import si.src.bcc.actors.reactive.util.JwtTokenGenerator;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ActorsReactiveServiceApplicationTests {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Autowired
+	private JwtTokenGenerator tokenGenerator;
+
+	private String token;
+
+	@BeforeEach
+	void setUp() {
+		databaseClient.sql("DELETE FROM actors.actor_movies").then()
+				.then(databaseClient.sql("DELETE FROM actors.actors").then())
+				.block();
+		token = tokenGenerator.generateToken("demo");
+	}
+
+	@Test
+	void contextLoads() {
+	}
+
+	@Test
+	void testGetActorById() {
+		insertActor(1, "Morgan", "Freeman", LocalDate.of(1937, 6, 1));
+		databaseClient.sql("INSERT INTO actors.actor_movies (actor_id, movie_imdb_id) VALUES (1, 'tt0111161'), (1, 'tt0114369')").then().block();
+
+		ActorResponse actor = webTestClient.get().uri("/api/actors/1")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueMatches(HttpHeaders.ETAG, "W/\"\\d+\"")
+				.expectBody(ActorResponse.class)
+				.returnResult().getResponseBody();
+		assertThat(actor.getFirstName()).isEqualTo("Morgan");
+		assertThat(actor.getBornDate()).isEqualTo(LocalDate.of(1937, 6, 1));
+		assertThat(actor.getMovies()).containsExactlyInAnyOrder("tt0111161", "tt0114369");
+
+		String etag = webTestClient.get().uri("/api/actors/1")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectBody().returnResult().getResponseHeaders().getETag();
+		webTestClient.get().uri("/api/actors/1")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+				.exchange()
+				.expectStatus().isNotModified();
+
+		webTestClient.get().uri("/api/actors/999")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isNotFound()
+				.expectBody().jsonPath("$.status").isEqualTo(404);
+	}
+
+	@Test
+	void testPagedAndSearchKeepTheServletContract() {
+		for (int i = 1; i <= 15; i++) {
+			insertActor(i, i % 3 == 0 ? "Tom" : "Actor" + i, "Lastname" + i, null);
+		}
+
+		webTestClient.get().uri("/api/actors/paged?page=1&size=10")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().cacheControl(org.springframework.http.CacheControl.maxAge(Duration.ofMinutes(30)))
+				.expectBody()
+				.jsonPath("$.content.length()").isEqualTo(5)
+				.jsonPath("$.totalElements").isEqualTo(15);
+
+		// Search is public, like on actors-service
+		webTestClient.get().uri("/api/actors/search?searchTerm=tom&size=3")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content.length()").isEqualTo(3)
+				.jsonPath("$.totalElements").isEqualTo(5);
+		webTestClient.get().uri("/api/actors/search?searchTerm=LASTNAME1")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.totalElements").isEqualTo(7);
+
+		webTestClient.get().uri("/api/actors/search?searchTerm= ")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void testAllStreamsEveryActorInChunks() {
+		webTestClient.get().uri("/api/actors/all")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.status").isEqualTo(200);
+
+		databaseClient.sql("INSERT INTO actors.actors (id, first_name, last_name, born_date, created_at, updated_at) "
+						+ "SELECT x, 'First' || x, 'Last' || x, NULL, NOW(), NOW() FROM SYSTEM_RANGE(1, 1234)")
+				.then().block();
+		databaseClient.sql("INSERT INTO actors.actor_movies (actor_id, movie_imdb_id) VALUES (1000, 'tt0068646')").then().block();
+
+		List<ActorResponse> array = webTestClient.get().uri("/api/actors/all")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(new ParameterizedTypeReference<List<ActorResponse>>() {})
+				.returnResult().getResponseBody();
+		assertThat(array).hasSize(1234);
+		assertThat(array.get(999).getMovies()).containsExactly("tt0068646");
+
+		Flux<ActorResponse> stream = webTestClient.get().uri("/api/actors/all")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.returnResult(ActorResponse.class).getResponseBody();
+		StepVerifier.create(stream.map(ActorResponse::getId), 10)
+				.expectNext(1L)
+				.expectNextCount(9)
+				.thenRequest(Long.MAX_VALUE)
+				.expectNextCount(1224)
+				.verifyComplete();
+	}
+
+	@Test
+	void testJwtIsRequiredOutsideThePublicEndpoints() {
+		insertActor(1, "Al", "Pacino", null);
+
+		webTestClient.get().uri("/api/actors/1")
+				.exchange()
+				.expectStatus().isForbidden();
+
+		String issued = webTestClient.post().uri("/api/auth/test-token?username=demo&password=password123")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class)
+				.returnResult().getResponseBody();
+		webTestClient.get().uri("/api/actors/1")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + issued)
+				.exchange()
+				.expectStatus().isOk();
+		webTestClient.post().uri("/api/auth/test-token?username=demo&password=wrong")
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.UNAUTHORIZED);
+
+		webTestClient.get().uri("/actuator/health")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(Map.class).value(health -> assertThat(health.get("status")).isEqualTo("UP"));
+	}
+
+	private void insertActor(long id, String firstName, String lastName, LocalDate bornDate) {
+		LocalDateTime now = LocalDateTime.now();
+		DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO actors.actors "
+						+ "(id, first_name, last_name, born_date, created_at, updated_at) VALUES (:id, :firstName, :lastName, :bornDate, :now, :now)")
+				.bind("id", id)
+				.bind("firstName", firstName)
+				.bind("lastName", lastName)
+				.bind("now", now);
+		insert = bornDate == null ? insert.bindNull("bornDate", LocalDate.class) : insert.bind("bornDate", bornDate);
+		insert.then().block();
+	}
+}
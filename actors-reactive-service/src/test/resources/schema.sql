@@ -0,0 +1,15 @@
+CREATE SCHEMA IF NOT EXISTS actors;
+
+CREATE TABLE IF NOT EXISTS actors.actors (
+    id BIGINT NOT NULL PRIMARY KEY,
+    first_name VARCHAR(255) NOT NULL,
+    last_name VARCHAR(255) NOT NULL,
+    born_date DATE,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS actors.actor_movies (
+    actor_id BIGINT NOT NULL REFERENCES actors.actors (id),
+    movie_imdb_id VARCHAR(255)
+);
@@ -0,0 +1,185 @@
+package si.src.bcc.actors.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import si.src.bcc.actors.event.ActorBatchChangedEvent;
+import si.src.bcc.actors.event.ActorChangedEvent;
+import si.src.bcc.actors.model.Actor;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the actor caches consistent after writes without dropping unrelated entries.
+ * <p>
+ * The written actor is put back into the {@code actor} cache (write-through), while the
+ * {@code actors} and {@code actorSearch} caches only lose the entries the change can affect.
+ * Runs after the surrounding transaction commits, so readers never cache uncommitted state.
+ */
+@Slf4j
+@Component
+public class ActorCacheInvalidator {
+
+    static final String ACTOR_CACHE = "actor";
+    static final String ACTORS_CACHE = "actors";
+    static final String SEARCH_CACHE = "actorSearch";
+    static final String ALL_KEY = "all";
+
+    private final CacheManager cacheManager;
+    private final MeterRegistry registry;
+
+    @Autowired
+    public ActorCacheInvalidator(CacheManager cacheManager, MeterRegistry registry) {
+        this.cacheManager = cacheManager;
+        this.registry = registry;
+    }
+
+    // Right after the search index, see ActorSearchIndex
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorChanged(ActorChangedEvent event) {
+        invalidate(List.of(event));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorsChanged(ActorBatchChangedEvent event) {
+        invalidate(event.changes());
+    }
+
+    // One pass over every cache for the whole batch, however many actors it holds
+    private void invalidate(List<ActorChangedEvent> events) {
+        log.debug("Invalidating caches for {} actor changes", events.size());
+        events.forEach(this::writeThrough);
+        Set<Long> ids = events.stream().map(ActorChangedEvent::id).collect(Collectors.toSet());
+        // Inserts and deletes shift offsets and totals of every page, only single-actor entries survive
+        boolean shifted = events.stream().anyMatch(event -> event.type() != ActorChangedEvent.ChangeType.UPDATED);
+        evictMatching(ACTORS_CACHE, (key, value) -> shifted || ALL_KEY.equals(key) || contains(value, ids));
+        // An actor leaving the results of a term shifts its later pages and changes its total, and which terms it
+        // left is not known. Remote events carry no actor, any term may match the new name
+        if (events.stream().anyMatch(event -> event.type() != ActorChangedEvent.ChangeType.CREATED && event.searchTextChanged())) {
+            evictMatching(SEARCH_CACHE, (key, value) -> true);
+        } else {
+            Set<Object> terms = affectedSearchTerms(events, ids);
+            evictMatching(SEARCH_CACHE, (key, value) -> terms.contains(searchTermOf(key)));
+        }
+    }
+
+    // Terms with a page holding one of the actors or matching a created one, every page of those terms is stale
+    private Set<Object> affectedSearchTerms(List<ActorChangedEvent> events, Set<Long> ids) {
+        Set<Object> terms = new HashSet<>();
+        if (cacheManager.getCache(SEARCH_CACHE) instanceof CaffeineCache caffeineCache) {
+            caffeineCache.getNativeCache().asMap().forEach((key, value) -> {
+                if (contains(value, ids) || events.stream().anyMatch(event -> matchesSearchTerm(key, event.actor()))) {
+                    terms.add(searchTermOf(key));
+                }
+            });
+        }
+        return terms;
+    }
+
+    private void writeThrough(ActorChangedEvent event) {
+        Cache cache = cacheManager.getCache(ACTOR_CACHE);
+        if (cache == null) {
+            return;
+        }
+        if (event.actor() == null) {
+            cache.evict(event.id());
+            counter("cache_invalidated_entries_total", ACTOR_CACHE).increment();
+        } else {
+            cache.put(event.id(), event.actor());
+            counter("cache_write_through_total", ACTOR_CACHE).increment();
+        }
+    }
+
+    private void evictMatching(String cacheName, BiPredicate<Object, Object> affected) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (!(cache instanceof CaffeineCache caffeineCache)) {
+            if (cache != null) {
+                cache.clear();
+            }
+            return;
+        }
+        long evicted = 0;
+        long retained = 0;
+        Iterator<Map.Entry<Object, Object>> entries = caffeineCache.getNativeCache().asMap().entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Object, Object> entry = entries.next();
+            if (affected.test(entry.getKey(), entry.getValue())) {
+                entries.remove();
+                evicted++;
+            } else {
+                retained++;
+            }
+        }
+        counter("cache_invalidated_entries_total", cacheName).increment(evicted);
+        counter("cache_retained_entries_total", cacheName).increment(retained);
+        log.debug("Cache '{}': evicted {} entries, retained {}", cacheName, evicted, retained);
+    }
+
+    private static boolean contains(Object value, Set<Long> ids) {
+        Collection<?> actors;
+        if (value instanceof Page<?> page) {
+            actors = page.getContent();
+        } else if (value instanceof Collection<?> collection) {
+            actors = collection;
+        } else {
+            return false;
+        }
+        for (Object actor : actors) {
+            if (actor instanceof Actor a && ids.contains(a.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Search keys are "<searchTerm>-<page>-<size>", any other key stands for itself
+    private static Object searchTermOf(Object key) {
+        if (!(key instanceof String searchKey)) {
+            return key;
+        }
+        int sizeSeparator = searchKey.lastIndexOf('-');
+        int pageSeparator = sizeSeparator > 0 ? searchKey.lastIndexOf('-', sizeSeparator - 1) : -1;
+        return pageSeparator < 0 ? key : searchKey.substring(0, pageSeparator);
+    }
+
+    // Checks every word of the term on its own, which covers both the LIKE substring match and the search index
+    // match of the words across both names
+    private static boolean matchesSearchTerm(Object key, Actor actor) {
+        if (actor == null) {
+            return false;
+        }
+        Object searchTerm = searchTermOf(key);
+        if (searchTerm == key) {
+            return true;
+        }
+        String text = (actor.getFirstName() + " " + actor.getLastName()).toLowerCase(Locale.ROOT);
+        for (String word : ((String) searchTerm).toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (!text.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Counter counter(String name, String cacheName) {
+        return registry.counter(name, "cache", cacheName, "service", "actors-service");
+    }
+}
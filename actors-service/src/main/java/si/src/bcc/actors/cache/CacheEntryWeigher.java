@@ -0,0 +1,71 @@
+package si.src.bcc.actors.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Page;
+import si.src.bcc.actors.model.Actor;
+import java.util.Collection;
+
+/**
+ * Estimates the retained heap size of a cached value in bytes, so caches holding whole
+ * lists and pages can be bounded by memory instead of by entry count.
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE = 8;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int SET_ENTRY_OVERHEAD = 40;
+    private static final int ACTOR_OVERHEAD = 112;
+    private static final int UNLOADED_COLLECTION = 64;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long weight = weighKey(key) + weighValue(value);
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long weighKey(Object key) {
+        return key instanceof String s ? weighString(s) : OBJECT_OVERHEAD;
+    }
+
+    private static long weighValue(Object value) {
+        if (value instanceof Actor actor) {
+            return weighActor(actor);
+        }
+        if (value instanceof Page<?> page) {
+            return 64 + weighCollection(page.getContent());
+        }
+        if (value instanceof Collection<?> collection) {
+            return weighCollection(collection);
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    private static long weighCollection(Collection<?> collection) {
+        long weight = OBJECT_OVERHEAD + (long) collection.size() * REFERENCE;
+        for (Object element : collection) {
+            weight += weighValue(element);
+        }
+        return weight;
+    }
+
+    private static long weighActor(Actor actor) {
+        long weight = ACTOR_OVERHEAD
+                + weighString(actor.getFirstName())
+                + weighString(actor.getLastName());
+        // Weighing must never trigger lazy loading, an unloaded collection gets a flat estimate
+        if (!Hibernate.isInitialized(actor.getMovies())) {
+            weight += UNLOADED_COLLECTION;
+        } else if (actor.getMovies() != null) {
+            for (String movie : actor.getMovies()) {
+                weight += SET_ENTRY_OVERHEAD + weighString(movie);
+            }
+        }
+        return weight;
+    }
+
+    private static long weighString(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + value.length();
+    }
+}
@@ -0,0 +1,9 @@
+package si.src.bcc.actors.cache;
+
+import si.src.bcc.actors.event.ActorChangedEvent;
+
+/**
+ * Key-level invalidation sent to the other replicas, see {@link CacheInvalidationBus}.
+ */
+public record CacheInvalidation(ActorChangedEvent.ChangeType type, String id) {
+}
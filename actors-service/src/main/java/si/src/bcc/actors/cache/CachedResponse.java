@@ -0,0 +1,14 @@
+package si.src.bcc.actors.cache;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Final encoded response body of a GET request, with an optional pre-compressed gzip copy.
+ * {@code entityId} is set for single-actor responses and {@code null} for collection responses.
+ */
+public record CachedResponse(String entityId, HttpHeaders headers, byte[] body, byte[] gzipBody) {
+
+    public int weight() {
+        return 128 + body.length + (gzipBody != null ? gzipBody.length : 0) + headers.size() * 64;
+    }
+}
@@ -0,0 +1,27 @@
+package si.src.bcc.actors.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers invalidations synchronously to the subscribers of the same JVM, used by tests.
+ */
+@Component
+@ConditionalOnProperty(prefix = "cache-invalidation", name = "bus", havingValue = "in-process")
+public class InProcessCacheInvalidationBus implements CacheInvalidationBus {
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String origin, List<CacheInvalidation> invalidations) {
+        List<CacheInvalidation> message = List.copyOf(invalidations);
+        subscribers.forEach(subscriber -> subscriber.onInvalidations(origin, message));
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+}
@@ -0,0 +1,153 @@
+package si.src.bcc.actors.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import si.src.bcc.actors.properties.CacheInvalidationProperties;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Invalidation bus on PostgreSQL LISTEN/NOTIFY, all replicas already share the database.
+ * <p>
+ * Notifications are published through the connection pool and received on one dedicated connection.
+ * Notifications sent while that connection is down are lost, subscribers get a gap after reconnecting.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "cache-invalidation", name = "bus", havingValue = "postgres")
+public class PostgresCacheInvalidationBus implements CacheInvalidationBus, SmartLifecycle {
+
+    // NOTIFY payloads must be shorter than 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final CacheInvalidationProperties properties;
+    private final ObjectMapper objectMapper;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listener;
+
+    @Autowired
+    public PostgresCacheInvalidationBus(JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties,
+                                        CacheInvalidationProperties properties, ObjectMapper objectMapper) {
+        if (!properties.getChannel().matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid cache invalidation channel: " + properties.getChannel());
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void publish(String origin, List<CacheInvalidation> invalidations) {
+        String payload = toPayload(origin, invalidations);
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES && invalidations.size() > 1) {
+            int half = invalidations.size() / 2;
+            publish(origin, invalidations.subList(0, half));
+            publish(origin, invalidations.subList(half, invalidations.size()));
+            return;
+        }
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", properties.getChannel(), payload);
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        boolean missed = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + properties.getChannel());
+                }
+                log.info("Listening for cache invalidations on channel {}", properties.getChannel());
+                if (missed) {
+                    subscribers.forEach(Subscriber::onGap);
+                    missed = false;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                missed = true;
+                log.warn("Cache invalidation listener lost its connection, reconnecting in {}", properties.getReconnectDelay(), e);
+                try {
+                    Thread.sleep(properties.getReconnectDelay().toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        try {
+            Message message = objectMapper.readValue(payload, Message.class);
+            subscribers.forEach(subscriber -> subscriber.onInvalidations(message.origin(), message.invalidations()));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Ignoring malformed cache invalidation message: {}", payload, e);
+        }
+    }
+
+    private String toPayload(String origin, List<CacheInvalidation> invalidations) {
+        try {
+            return objectMapper.writeValueAsString(new Message(origin, invalidations));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cache invalidations", e);
+        }
+    }
+
+    record Message(String origin, List<CacheInvalidation> invalidations) {
+    }
+}
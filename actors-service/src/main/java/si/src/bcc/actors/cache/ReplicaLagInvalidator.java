@@ -0,0 +1,119 @@
+package si.src.bcc.actors.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import si.src.bcc.actors.event.ActorBatchChangedEvent;
+import si.src.bcc.actors.event.ActorChangedEvent;
+import si.src.bcc.actors.event.ActorChangedEvent.ChangeType;
+import si.src.bcc.actors.properties.ReadReplicaProperties;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalidates every change a second time once the read replicas have caught up with it.
+ * <p>
+ * A read served by a replica that has not replayed a change yet puts the old actor back into the caches right
+ * after the first invalidation. Replicas lagging more than {@code max-lag} are skipped, but only noticed at the
+ * next health check, so the second invalidation follows after both.
+ */
+@Slf4j
+@Component
+public class ReplicaLagInvalidator {
+
+    private final ActorCacheInvalidator cacheInvalidator;
+    private final ResponseCache responseCache;
+    private final CollectionVersion collectionVersion;
+    private final long delayMillis;
+    // Ordered by due time, a repeated change moves to the end
+    private final Map<Long, Pending> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private record Pending(ChangeType type, long dueAt) {
+    }
+
+    @Autowired
+    public ReplicaLagInvalidator(ActorCacheInvalidator cacheInvalidator, ResponseCache responseCache,
+                                 CollectionVersion collectionVersion, ReadReplicaProperties properties) {
+        this.cacheInvalidator = cacheInvalidator;
+        this.responseCache = responseCache;
+        this.collectionVersion = collectionVersion;
+        this.delayMillis = properties.getMaxLag().plus(properties.getHealthCheckInterval()).toMillis();
+        if (properties.getReplicas().isEmpty()) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-invalidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = Math.max(delayMillis / 10, 100);
+        this.scheduler.scheduleWithFixedDelay(this::invalidateDue, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorChanged(ActorChangedEvent event) {
+        enqueue(List.of(event));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorsChanged(ActorBatchChangedEvent event) {
+        enqueue(event.changes());
+    }
+
+    private void enqueue(List<ActorChangedEvent> events) {
+        if (scheduler == null) {
+            return;
+        }
+        long dueAt = System.currentTimeMillis() + delayMillis;
+        synchronized (pending) {
+            for (ActorChangedEvent event : events) {
+                Pending previous = pending.remove(event.id());
+                // Inserts and deletes invalidate more than updates, an update never hides them
+                ChangeType type = previous != null && event.type() == ChangeType.UPDATED ? previous.type() : event.type();
+                pending.put(event.id(), new Pending(type, dueAt));
+            }
+        }
+    }
+
+    public void invalidateDue() {
+        List<ActorChangedEvent> due = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            Iterator<Map.Entry<Long, Pending>> entries = pending.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Long, Pending> entry = entries.next();
+                if (entry.getValue().dueAt() > now) {
+                    break;
+                }
+                // As remote changes: the cached actors are evicted, not written through with the committed state
+                due.add(ActorChangedEvent.remote(entry.getValue().type(), entry.getKey()));
+                entries.remove();
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        log.debug("Invalidating {} actor changes again after replica lag", due.size());
+        ActorBatchChangedEvent event = new ActorBatchChangedEvent(due);
+        cacheInvalidator.onActorsChanged(event);
+        collectionVersion.advance();
+        responseCache.onActorsChanged(event);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package si.src.bcc.actors.cache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import si.src.bcc.actors.properties.ResponseCacheProperties;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Answers repeated GET requests with the already encoded JSON bytes, before the request reaches
+ * the DispatcherServlet, so cache hits skip controller dispatch, entity mapping and serialization.
+ * Registered after the Spring Security filter chain, unauthenticated requests never get here.
+ */
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    // Headers of the original response replayed on a hit, everything else is written per request
+    private static final List<String> CACHED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.EXPIRES);
+
+    private final ResponseCache responseCache;
+    private final ResponseCacheProperties properties;
+    private final List<PathPattern> collectionPatterns;
+    private final PathPattern entityPattern;
+
+    public ResponseCacheFilter(ResponseCache responseCache, ResponseCacheProperties properties) {
+        this.responseCache = responseCache;
+        this.properties = properties;
+        this.collectionPatterns = properties.getCollectionPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        this.entityPattern = PathPatternParser.defaultInstance.parse(properties.getEntityPath());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || !"GET".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        String entityId = null;
+        if (collectionPatterns.stream().noneMatch(pattern -> pattern.matches(path))) {
+            PathPattern.PathMatchInfo match = entityPattern.matchAndExtract(path);
+            if (match == null) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            entityId = match.getUriVariables().get("id");
+        }
+
+        String key = cacheKey(path.value(), request.getParameterMap());
+        CachedResponse cached = responseCache.get(key);
+        if (cached != null) {
+            if (!isNotModified(cached, request, response)) {
+                writeCached(cached, request, response);
+            }
+            return;
+        }
+
+        long generation = responseCache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, wrapper);
+            if (isCacheable(request, wrapper)) {
+                responseCache.put(key, capture(entityId, wrapper), generation);
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private boolean isCacheable(HttpServletRequest request, ContentCachingResponseWrapper wrapper) {
+        return !request.isAsyncStarted()
+                && wrapper.getStatus() == HttpStatus.OK.value()
+                && wrapper.getContentType() != null
+                && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(wrapper.getContentType()))
+                && wrapper.getContentSize() <= properties.getMaximumEntrySize().toBytes();
+    }
+
+    private CachedResponse capture(String entityId, ContentCachingResponseWrapper wrapper) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : CACHED_HEADERS) {
+            String value = wrapper.getHeader(name);
+            if (value != null) {
+                headers.set(name, value);
+            }
+        }
+        if (!headers.containsKey(HttpHeaders.CONTENT_TYPE)) {
+            headers.set(HttpHeaders.CONTENT_TYPE, wrapper.getContentType());
+        }
+        byte[] body = wrapper.getContentAsByteArray();
+        byte[] gzipBody = body.length >= properties.getGzipMinSize().toBytes() ? gzip(body) : null;
+        return new CachedResponse(entityId, HttpHeaders.readOnlyHttpHeaders(headers), body, gzipBody);
+    }
+
+    // Revalidation against the stored validators, a matching If-None-Match or If-Modified-Since gets an empty 304
+    private static boolean isNotModified(CachedResponse cached, HttpServletRequest request, HttpServletResponse response) {
+        String etag = cached.headers().getETag();
+        long lastModified = cached.headers().getLastModified();
+        if (etag == null && lastModified < 0) {
+            return false;
+        }
+        if (!new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return false;
+        }
+        copyHeader(cached, response, HttpHeaders.CACHE_CONTROL);
+        copyHeader(cached, response, HttpHeaders.EXPIRES);
+        return true;
+    }
+
+    private static void copyHeader(CachedResponse cached, HttpServletResponse response, String name) {
+        String value = cached.headers().getFirst(name);
+        if (value != null) {
+            response.setHeader(name, value);
+        }
+    }
+
+    private static void writeCached(CachedResponse cached, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        // Set rather than added, the validators may already be on the response from the revalidation
+        cached.headers().forEach((name, values) -> response.setHeader(name, values.get(0)));
+        byte[] body = cached.body();
+        if (cached.gzipBody() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                // Tomcat does not compress a response that already has a Content-Encoding
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = cached.gzipBody();
+            }
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    // Path plus query parameters sorted by name, so ?size=10&page=0 and ?page=0&size=10 share one entry
+    static String cacheKey(String path, Map<String, String[]> parameters) {
+        if (parameters.isEmpty()) {
+            return path;
+        }
+        StringBuilder key = new StringBuilder(path).append('?');
+        parameters.keySet().stream().sorted().forEach(name -> {
+            String[] values = parameters.get(name);
+            // Value order is kept, it is significant for parameters like sort
+            Arrays.stream(values).forEach(value -> key.append(URLEncoder.encode(name, StandardCharsets.UTF_8))
+                    .append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append('&'));
+        });
+        key.setLength(key.length() - 1);
+        return key.toString();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+}
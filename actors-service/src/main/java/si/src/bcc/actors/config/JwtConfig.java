@@ -1,16 +1,28 @@
 package si.src.bcc.actors.config;
 
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import si.src.bcc.actors.properties.JwtProperties;
 import javax.crypto.SecretKey;
 
 @Configuration
 public class JwtConfig {
 
+    private final JwtProperties jwtProperties;
+
+    public JwtConfig(JwtProperties jwtProperties) {
+        this.jwtProperties = jwtProperties;
+    }
+
     @Bean
     public SecretKey jwtKey() {
+        String secret = jwtProperties.getSecret();
+        if (secret != null && !secret.isBlank()) {
+            return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        }
         return Keys.secretKeyFor(SignatureAlgorithm.HS256);
     }
 }
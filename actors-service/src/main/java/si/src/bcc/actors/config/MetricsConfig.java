@@ -1,47 +1,30 @@
 package si.src.bcc.actors.config;
 
-import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.filter.OncePerRequestFilter;
-import jakarta.servlet.FilterChain;
-import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import java.io.IOException;
+import si.src.bcc.actors.monitoring.HttpMetricsFilter;
+import si.src.bcc.actors.monitoring.HttpRouteMetrics;
+import si.src.bcc.actors.monitoring.RequestStatistics;
+import si.src.bcc.actors.properties.HttpMetricsProperties;
 
 @Configuration
 public class MetricsConfig {
 
+    // Ahead of the security chain and the response cache, so rejected requests and cache hits are measured too
     @Bean
-    public OncePerRequestFilter metricsFilter(MeterRegistry registry) {
-        return new OncePerRequestFilter() {
-            @Override
-            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
-                                            FilterChain filterChain) throws ServletException, IOException {
-                String path = request.getRequestURI();
-                String method = request.getMethod();
-
-                // Record request count
-                registry.counter("http_requests_total",
-                        "path", path,
-                        "method", method,
-                        "service", "movies-service"
-                ).increment();
+    public FilterRegistrationBean<HttpMetricsFilter> metricsFilter(HttpRouteMetrics routeMetrics,
+                                                                   RequestStatistics statistics) {
+        FilterRegistrationBean<HttpMetricsFilter> registration = new FilterRegistrationBean<>(new HttpMetricsFilter(routeMetrics, statistics));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+        return registration;
+    }
 
-                // Record request duration
-                long startTime = System.currentTimeMillis();
-                try {
-                    filterChain.doFilter(request, response);
-                } finally {
-                    long duration = System.currentTimeMillis() - startTime;
-                    registry.timer("http_request_duration_seconds",
-                            "path", path,
-                            "method", method,
-                            "service", "movies-service"
-                    ).record(duration, java.util.concurrent.TimeUnit.MILLISECONDS);
-                }
-            }
-        };
+    // Last line of defence should anything register HTTP meters with other paths, UNMATCHED and OTHER included
+    @Bean
+    public MeterFilter httpPathCardinalityLimit(HttpMetricsProperties properties) {
+        return MeterFilter.maximumAllowableTags("http_request", "path", properties.getMaxRoutes() + 2, MeterFilter.deny());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package si.src.bcc.actors.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import si.src.bcc.actors.limit.RateLimitFilter;
+import si.src.bcc.actors.properties.RateLimitProperties;
+
+@Configuration
+public class RateLimitConfig {
+
+    // After the Spring Security filter chain, which sets the subject, and before the response cache
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimitProperties properties, MeterRegistry registry) {
+        FilterRegistrationBean<RateLimitFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitFilter(properties, registry));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 5);
+        return registration;
+    }
+}
@@ -1,5 +1,6 @@
 package si.src.bcc.actors.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -24,6 +25,8 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // Completion of /all/stream, the request itself was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Swagger UI v3 (OpenAPI)
                         .requestMatchers("/v3/api-docs/**",
                                 "/swagger-ui/**",
@@ -35,6 +38,7 @@ public class SecurityConfig {
                         // Public endpoints
                         .requestMatchers("/api/actors/search",
                                 "/api/actors/stats/requests",
+                                "/api/actors/stats/requests/detail",
                                 "/api/auth/test-token").permitAll()
                         // Protected endpoints
                         .anyRequest().authenticated()
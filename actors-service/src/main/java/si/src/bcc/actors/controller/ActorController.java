@@ -1,30 +1,60 @@
 package si.src.bcc.actors.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import si.src.bcc.actors.cache.CollectionVersion;
 import si.src.bcc.actors.dto.ActorRequest;
 import si.src.bcc.actors.dto.ActorResponse;
+import si.src.bcc.actors.dto.ActorUpdateRequest;
+import si.src.bcc.actors.dto.BatchItemResult;
+import si.src.bcc.actors.dto.BatchResponse;
+import si.src.bcc.actors.dto.CursorPageResponse;
+import si.src.bcc.actors.dto.RequestStatsResponse;
 import si.src.bcc.actors.exception.ActorAlreadyExistsException;
 import si.src.bcc.actors.exception.ActorNotFoundException;
 import si.src.bcc.actors.exception.InvalidActorDataException;
 import si.src.bcc.actors.exception.NoActorsFoundException;
 import si.src.bcc.actors.mapper.ActorMapper;
 import si.src.bcc.actors.model.Actor;
+import si.src.bcc.actors.monitoring.RequestStatistics;
 import si.src.bcc.actors.service.ActorService;
-import si.src.bcc.actors.service.impl.ActorServiceImpl;
+import si.src.bcc.actors.util.CursorCodec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.springframework.http.HttpStatus;
 
 @RestController
@@ -32,15 +62,26 @@ import org.springframework.http.HttpStatus;
 @Tag(name = "Actor Management", description = "APIs for managing actors")
 public class ActorController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 500;
+
     private final ActorService actorService;
-    private final ActorServiceImpl actorServiceImpl;
     private final ActorMapper actorMapper;
+    private final CollectionVersion collectionVersion;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final RequestStatistics requestStatistics;
 
     @Autowired
-    public ActorController(ActorService actorService, ActorServiceImpl actorServiceImpl, ActorMapper actorMapper) {
+    public ActorController(ActorService actorService, ActorMapper actorMapper, CollectionVersion collectionVersion,
+                           ObjectMapper objectMapper, Validator validator, RequestStatistics requestStatistics) {
         this.actorService = actorService;
-        this.actorServiceImpl = actorServiceImpl;
         this.actorMapper = actorMapper;
+        this.collectionVersion = collectionVersion;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.requestStatistics = requestStatistics;
     }
 
     @Operation(summary = "Get all actors", description = "Retrieves a full list of all actors")
@@ -50,7 +91,11 @@ public class ActorController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/all")
-    public ResponseEntity<List<ActorResponse>> getAllActorsWithoutPagination() {
+    public ResponseEntity<List<ActorResponse>> getAllActorsWithoutPagination(WebRequest webRequest) {
+        CollectionVersion.Stamp stamp = collectionVersion.current();
+        if (webRequest.checkNotModified(collectionVersion.etag(stamp), stamp.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         List<Actor> actors = actorService.getAllActors();
         if (actors.isEmpty()) {
             throw new NoActorsFoundException();
@@ -63,6 +108,44 @@ public class ActorController {
                 .body(response);
     }
 
+    @Operation(summary = "Stream all actors", description = "Streams all actors as a chunked JSON array, or as newline delimited JSON with Accept: application/x-ndjson, without loading the full list into memory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Actors streamed successfully, an empty catalog is an empty array"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(value = "/all/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamAllActors(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest webRequest) {
+        CollectionVersion.Stamp stamp = collectionVersion.current();
+        if (webRequest.checkNotModified(collectionVersion.etag(stamp), stamp.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+        // Written on an async thread, every chunk is mapped, serialized and flushed before the next one is read
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer();
+            try (SequenceWriter sequence = ndjson
+                    ? writer.withRootValueSeparator("\n").writeValues(outputStream)
+                    : writer.writeValuesAsArray(outputStream)) {
+                actorService.streamAllActors(chunk -> {
+                    try {
+                        for (Actor actor : chunk) {
+                            sequence.write(actorMapper.toResponse(actor));
+                        }
+                        sequence.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     @Operation(summary = "Get all actors with pagination support", description = "Retrieves a paginated list of all actors")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Actors retrieved successfully"),
@@ -71,7 +154,11 @@ public class ActorController {
     })
     @GetMapping("/paged")
     public ResponseEntity<Page<ActorResponse>> getAllActors(
-            @ParameterObject Pageable pageable) {
+            @ParameterObject Pageable pageable, WebRequest webRequest) {
+        CollectionVersion.Stamp stamp = collectionVersion.current();
+        if (webRequest.checkNotModified(collectionVersion.etag(stamp), stamp.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         Page<Actor> actors = actorService.getAllActors(pageable);
         if (actors.isEmpty()) {
             throw new NoActorsFoundException();
@@ -82,6 +169,37 @@ public class ActorController {
                 .body(response);
     }
 
+    @Operation(summary = "Get actors with keyset pagination", description = "Retrieves actors ordered by ID, page by page with continuation tokens and without a total count")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Actors retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageResponse<ActorResponse>> getActorsByCursor(
+            @Parameter(description = "Continuation token of the previous page, omitted for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "50") int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new InvalidActorDataException("size", "Size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        Long afterId = CursorCodec.decode(cursor);
+        // One actor more than requested tells whether there is a next page
+        List<Actor> actors = actorService.getActorsAfter(afterId, size + 1);
+        if (actors.isEmpty() && afterId == null) {
+            throw new NoActorsFoundException();
+        }
+        boolean hasNext = actors.size() > size;
+        List<ActorResponse> content = actors.stream()
+                .limit(size)
+                .map(actorMapper::toResponse)
+                .toList();
+        String nextCursor = hasNext ? CursorCodec.encode(content.get(content.size() - 1).getId()) : null;
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                .body(new CursorPageResponse<>(content, content.size(), nextCursor));
+    }
+
     @Operation(summary = "Get actor by ID", description = "Retrieves an actor by their ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Actor retrieved successfully"),
@@ -91,11 +209,18 @@ public class ActorController {
     })
     @GetMapping("/{id}")
     public ResponseEntity<ActorResponse> getActorById(
-            @Parameter(description = "Actor ID") @PathVariable Long id) {
+            @Parameter(description = "Actor ID") @PathVariable Long id, WebRequest webRequest) {
         Actor actor = actorService.getActorById(id);
         if (actor == null) {
             throw new ActorNotFoundException(id);
         }
+        if (actor.getUpdatedAt() != null) {
+            long lastModified = actor.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            // Weak, Tomcat does not compress responses carrying a strong ETag
+            if (webRequest.checkNotModified("W/\"" + lastModified + "\"", lastModified)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+        }
         return ResponseEntity.ok()
                 .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
                 .body(actorMapper.toResponse(actor));
@@ -168,6 +293,132 @@ public class ActorController {
         return ResponseEntity.noContent().build();
     }
 
+    @Operation(summary = "Get actors by IDs", description = "Retrieves up to 500 actors in one request, in the order of the requested IDs; missing actors are reported per item with status 404")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Actors retrieved, see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/batch")
+    public ResponseEntity<BatchResponse<ActorResponse>> getActorsByIds(
+            @Parameter(description = "Actor IDs, comma separated or repeated") @RequestParam List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            throw new InvalidActorDataException("ids", "Batch must contain between 1 and " + MAX_LOOKUP_SIZE + " items");
+        }
+        Map<Long, Actor> actors = actorService.lookupActors(ids.stream().filter(Objects::nonNull).toList());
+        List<BatchItemResult<ActorResponse>> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            BatchItemResult<ActorResponse> result = new BatchItemResult<>(i, HttpStatus.OK.value(), null, null);
+            Actor actor = ids.get(i) == null ? null : actors.get(ids.get(i));
+            if (ids.get(i) == null) {
+                reject(result, HttpStatus.BAD_REQUEST, "Actor ID is required");
+            } else if (actor == null) {
+                reject(result, HttpStatus.NOT_FOUND, new ActorNotFoundException(ids.get(i)).getMessage());
+            } else {
+                result.setItem(actorMapper.toResponse(actor));
+            }
+            results.add(result);
+        }
+        int failed = (int) results.stream().filter(result -> result.getError() != null).count();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                .body(new BatchResponse<>(results.size() - failed, failed, results));
+    }
+
+    @Operation(summary = "Create actors in bulk", description = "Creates up to 1000 actors in one transaction. Invalid, duplicate and existing actors are reported per item, the others are created")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponse<ActorResponse>> createActors(
+            @Parameter(description = "Actors to create") @RequestBody List<ActorRequest> requests) {
+        checkBatchSize(requests);
+        List<BatchItemResult<ActorResponse>> results = validateBatch(requests, ActorController::name, "Duplicate actor name in batch");
+        Set<List<String>> existing = actorService.findExistingNames(pending(requests, results).stream()
+                .map(ActorRequest::getLastName)
+                .collect(Collectors.toSet()));
+        List<Actor> actors = new ArrayList<>();
+        for (BatchItemResult<ActorResponse> result : results) {
+            ActorRequest request = requests.get(result.getIndex());
+            if (result.getError() == null && existing.contains(name(request))) {
+                reject(result, HttpStatus.CONFLICT,
+                        new ActorAlreadyExistsException(request.getFirstName(), request.getLastName()).getMessage());
+            } else if (result.getError() == null) {
+                actors.add(actorMapper.toEntity(request));
+            }
+        }
+        Iterator<Actor> created = actorService.createActors(actors).iterator();
+        return ResponseEntity.ok(complete(results, HttpStatus.CREATED, created));
+    }
+
+    @Operation(summary = "Update actors in bulk", description = "Updates up to 1000 actors, identified by the id of each item, in one transaction. Invalid, duplicate and missing actors are reported per item, the others are updated")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/batch")
+    public ResponseEntity<BatchResponse<ActorResponse>> updateActors(
+            @Parameter(description = "Updated actor details with their ids") @RequestBody List<ActorUpdateRequest> requests) {
+        checkBatchSize(requests);
+        List<BatchItemResult<ActorResponse>> results = validateBatch(requests, ActorUpdateRequest::getId, "Duplicate actor id in batch");
+        Map<Long, Consumer<Actor>> changes = new HashMap<>();
+        for (ActorUpdateRequest request : pending(requests, results)) {
+            changes.put(request.getId(), actor -> actorMapper.updateEntity(actor, request));
+        }
+        // Found and changed in the write transaction, an actor deleted meanwhile is reported and not written again
+        Map<Long, Actor> updatedActors = actorService.updateActors(changes);
+        List<Actor> updated = new ArrayList<>();
+        for (BatchItemResult<ActorResponse> result : results) {
+            ActorUpdateRequest request = requests.get(result.getIndex());
+            Actor actor = updatedActors.get(request.getId());
+            if (result.getError() == null && actor == null) {
+                reject(result, HttpStatus.NOT_FOUND, new ActorNotFoundException(request.getId()).getMessage());
+            } else if (result.getError() == null) {
+                updated.add(actor);
+            }
+        }
+        return ResponseEntity.ok(complete(results, HttpStatus.OK, updated.iterator()));
+    }
+
+    @Operation(summary = "Delete actors in bulk", description = "Deletes up to 1000 actors by their ids in one transaction, missing actors are reported per item")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping("/batch")
+    public ResponseEntity<BatchResponse<ActorResponse>> deleteActors(
+            @Parameter(description = "Ids of the actors to delete") @RequestBody List<Long> ids) {
+        checkBatchSize(ids);
+        List<BatchItemResult<ActorResponse>> results = new ArrayList<>(ids.size());
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            BatchItemResult<ActorResponse> result = new BatchItemResult<>(i, 0, null, null);
+            Long id = ids.get(i);
+            if (id == null) {
+                reject(result, HttpStatus.BAD_REQUEST, "ID is required");
+            } else if (!seen.add(id)) {
+                reject(result, HttpStatus.CONFLICT, "Duplicate actor id in batch: " + id);
+            }
+            results.add(result);
+        }
+        Set<Long> deleted = actorService.deleteActors(seen);
+        for (BatchItemResult<ActorResponse> result : results) {
+            Long id = ids.get(result.getIndex());
+            if (result.getError() == null && !deleted.contains(id)) {
+                reject(result, HttpStatus.NOT_FOUND, new ActorNotFoundException(id).getMessage());
+            }
+        }
+        return ResponseEntity.ok(complete(results, HttpStatus.NO_CONTENT, Collections.emptyIterator()));
+    }
+
     @Operation(summary = "Search actors with pagination support", description = "Searches actors by firstName or lastName with searchTerm and pagination support")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Search completed successfully"),
@@ -178,10 +429,14 @@ public class ActorController {
     @GetMapping("/search")
     public ResponseEntity<Page<ActorResponse>> searchActors(
             @Parameter(description = "Search term") @RequestParam String searchTerm,
-            @ParameterObject Pageable pageable) {
+            @ParameterObject Pageable pageable, WebRequest webRequest) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             throw new InvalidActorDataException("searchTerm", "SearchTerm cannot be empty");
         }
+        CollectionVersion.Stamp stamp = collectionVersion.current();
+        if (webRequest.checkNotModified(collectionVersion.etag(stamp), stamp.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         Page<Actor> actors = actorService.searchActors(searchTerm, pageable);
         if (actors.isEmpty()) {
             throw new NoActorsFoundException();
@@ -192,6 +447,69 @@ public class ActorController {
                 .body(response);
     }
 
+    private static void checkBatchSize(List<?> batch) {
+        if (batch == null || batch.isEmpty() || batch.size() > MAX_BATCH_SIZE) {
+            throw new InvalidActorDataException("batch", "Batch must contain between 1 and " + MAX_BATCH_SIZE + " items");
+        }
+    }
+
+    private static List<String> name(ActorRequest request) {
+        return List.of(request.getFirstName(), request.getLastName());
+    }
+
+    // Bean validation of every item, the first occurrence of a key wins over later duplicates
+    private <R> List<BatchItemResult<ActorResponse>> validateBatch(List<R> requests, Function<R, Object> key,
+                                                                 String duplicateMessage) {
+        List<BatchItemResult<ActorResponse>> results = new ArrayList<>(requests.size());
+        Set<Object> seen = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BatchItemResult<ActorResponse> result = new BatchItemResult<>(i, 0, null, null);
+            R request = requests.get(i);
+            Set<ConstraintViolation<R>> violations = request == null ? Set.of() : validator.validate(request);
+            if (request == null) {
+                reject(result, HttpStatus.BAD_REQUEST, "Actor is required");
+            } else if (!violations.isEmpty()) {
+                reject(result, HttpStatus.BAD_REQUEST, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            } else if (!seen.add(key.apply(request))) {
+                reject(result, HttpStatus.CONFLICT, duplicateMessage + ": " + key.apply(request));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static <R> List<R> pending(List<R> requests, List<BatchItemResult<ActorResponse>> results) {
+        return results.stream()
+                .filter(result -> result.getError() == null)
+                .map(result -> requests.get(result.getIndex()))
+                .toList();
+    }
+
+    private static void reject(BatchItemResult<ActorResponse> result, HttpStatus status, String error) {
+        result.setStatus(status.value());
+        result.setError(error);
+    }
+
+    // The written actors come back in the order of the accepted items
+    private BatchResponse<ActorResponse> complete(List<BatchItemResult<ActorResponse>> results, HttpStatus status,
+                                                  Iterator<Actor> written) {
+        int failed = 0;
+        for (BatchItemResult<ActorResponse> result : results) {
+            if (result.getError() != null) {
+                failed++;
+            } else {
+                result.setStatus(status.value());
+                if (written.hasNext()) {
+                    result.setItem(actorMapper.toResponse(written.next()));
+                }
+            }
+        }
+        return new BatchResponse<>(results.size() - failed, failed, results);
+    }
+
     @Operation(summary = "Get request statistics", description = "Retrieves the total number of requests made to the service")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
@@ -200,6 +518,17 @@ public class ActorController {
     })
     @GetMapping("/stats/requests")
     public ResponseEntity<Long> getRequestCount() {
-        return ResponseEntity.ok(actorServiceImpl.getRequestCount());
+        return ResponseEntity.ok(requestStatistics.total());
+    }
+
+    @Operation(summary = "Get request statistics by endpoint", description = "Retrieves the number of requests served since startup, cached responses included, in total and by endpoint, method and status")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/stats/requests/detail")
+    public ResponseEntity<RequestStatsResponse> getRequestStatistics() {
+        return ResponseEntity.ok(requestStatistics.snapshot());
     }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package si.src.bcc.actors.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds the connections handed out at once by the guarded data sources, shared by the primary and the replicas.
+ * <p>
+ * With virtual threads the Tomcat thread pool no longer limits how many requests reach the database, every one of
+ * them would wait in Hikari for its full connection timeout. Here they wait in order for at most
+ * {@code acquire-timeout} and then fail with a {@link SQLTransientConnectionException}. A permit is returned when
+ * the connection is closed.
+ */
+public class ConnectionGuard {
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final Duration acquireTimeout;
+    private final Timer waits;
+    private final Counter rejected;
+
+    public ConnectionGuard(int maxConcurrency, Duration acquireTimeout, MeterRegistry registry) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeout = acquireTimeout;
+        this.waits = Timer.builder("datasource_guard_wait")
+                .tag("service", "actors-service")
+                .register(registry);
+        this.rejected = Counter.builder("datasource_guard_rejected_total")
+                .tag("service", "actors-service")
+                .register(registry);
+        Gauge.builder("datasource_guard_active", this, ConnectionGuard::active)
+                .tag("service", "actors-service")
+                .register(registry);
+        Gauge.builder("datasource_guard_waiting", permits, Semaphore::getQueueLength)
+                .tag("service", "actors-service")
+                .register(registry);
+    }
+
+    public DataSource guard(DataSource target) {
+        return new DelegatingDataSource(target) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                acquire();
+                try {
+                    return releasing(super.getConnection());
+                } catch (SQLException | RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                acquire();
+                try {
+                    return releasing(super.getConnection(username, password));
+                } catch (SQLException | RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    public int active() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new SQLTransientConnectionException("All " + maxConcurrency
+                    + " database connections in use, none became free within " + acquireTimeout.toMillis() + " ms");
+        }
+    }
+
+    // Closing twice returns the permit once
+    private Connection releasing(Connection connection) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionGuard.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    boolean close = method.getName().equals("close") && method.getParameterCount() == 0;
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    } finally {
+                        if (close && closed.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+}
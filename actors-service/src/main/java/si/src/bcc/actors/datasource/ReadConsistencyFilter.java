@@ -0,0 +1,57 @@
+package si.src.bcc.actors.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes for clients of a service with read replicas.
+ * <p>
+ * Responses to writes carry {@code X-Write-Timestamp}. A client sending it back as {@code X-Read-After} has its
+ * reads served by the primary until the replicas are guaranteed to have caught up. Every read made while handling
+ * a write, like the existence checks before an insert, uses the primary as well.
+ */
+public class ReadConsistencyFilter extends OncePerRequestFilter {
+
+    public static final String WRITE_TIMESTAMP_HEADER = "X-Write-Timestamp";
+    public static final String READ_AFTER_HEADER = "X-Read-After";
+
+    private final Duration window;
+
+    public ReadConsistencyFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean write = !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+        if (write) {
+            response.setHeader(WRITE_TIMESTAMP_HEADER, Long.toString(System.currentTimeMillis()));
+        }
+        if (write || recentlyWritten(request.getHeader(READ_AFTER_HEADER))) {
+            ReadConsistency.requirePrimary();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadConsistency.clear();
+        }
+    }
+
+    private boolean recentlyWritten(String readAfter) {
+        if (readAfter == null) {
+            return false;
+        }
+        try {
+            return System.currentTimeMillis() - Long.parseLong(readAfter.trim()) < window.toMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package si.src.bcc.actors.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import si.src.bcc.actors.properties.ReadReplicaProperties;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections of read-only transactions, round robin over the healthy replicas.
+ * <p>
+ * A replica is healthy when it answers the periodic check and, on PostgreSQL, has replayed the primary's WAL up
+ * to at most {@code max-lag} ago. Without a healthy replica, or when {@link ReadConsistency} asks for it, the
+ * primary serves the read. A replica failing to hand out a connection is skipped until its next good check.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    // Zero while the replica has replayed everything it received, an idle primary does not look like lag
+    private static final String LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE coalesce(extract(epoch FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+    private final MeterRegistry registry;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, ReadReplicaProperties properties,
+                                    MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLag = properties.getMaxLag();
+        this.registry = registry;
+        for (Replica replica : this.replicas) {
+            Gauge.builder("datasource_replica_healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("replica", replica.dataSource.getPoolName())
+                    .tag("service", "actors-service")
+                    .register(registry);
+            Gauge.builder("datasource_replica_lag_seconds", replica, r -> r.lagSeconds)
+                    .tag("replica", replica.dataSource.getPoolName())
+                    .tag("service", "actors-service")
+                    .register(registry);
+        }
+        if (this.replicas.isEmpty()) {
+            this.healthChecker = null;
+            return;
+        }
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getHealthCheckInterval().toMillis();
+        this.healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReadConsistency.isPrimaryRequired()) {
+            int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    route(replica.dataSource.getPoolName());
+                    return connection;
+                } catch (SQLException | RuntimeException e) {
+                    replica.healthy = false;
+                    log.warn("Replica {} failed, reading from the primary until it recovers: {}",
+                            replica.dataSource.getPoolName(), e.getMessage());
+                }
+            }
+        }
+        route("primary");
+        return primary.getConnection();
+    }
+
+    // The replicas are configured with their own credentials, explicit ones are only meant for the primary
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        route("primary");
+        return primary.getConnection(username, password);
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                replica.lagSeconds = lagSeconds(connection);
+                healthy = replica.lagSeconds <= maxLag.toMillis() / 1000.0;
+            } catch (SQLException | RuntimeException e) {
+                // Hikari fails with a RuntimeException when the pool cannot start
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("Replica {} is now {}", replica.dataSource.getPoolName(), healthy ? "healthy" : "unhealthy");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private void route(String target) {
+        registry.counter("datasource_read_routed_total", "target", target, "service", "actors-service").increment();
+    }
+
+    private static double lagSeconds(Connection connection) throws SQLException {
+        if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+            // No replication to measure, reachable is healthy
+            return connection.isValid(2) ? 0 : Double.MAX_VALUE;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(LAG_QUERY);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getDouble(1);
+        }
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        // Unhealthy until the first check passed
+        private volatile boolean healthy;
+        private volatile double lagSeconds;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package si.src.bcc.actors.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+// Item of a batch update, which has no path variable to carry the id
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ActorUpdateRequest extends ActorRequest {
+    @NotNull(message = "ID is required")
+    private Long id;
+}
@@ -0,0 +1,17 @@
+package si.src.bcc.actors.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequestStatsResponse {
+    private long total;
+    private Map<String, Long> byMethod;
+    private Map<Integer, Long> byStatus;
+    private List<EndpointRequestCount> endpoints;
+}
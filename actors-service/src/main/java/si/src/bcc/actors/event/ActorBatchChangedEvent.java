@@ -0,0 +1,10 @@
+package si.src.bcc.actors.event;
+
+import java.util.List;
+
+/**
+ * Published instead of one {@link ActorChangedEvent} per actor when many actors change at once, by the batch
+ * endpoints and for invalidations received from other replicas. Listeners handle the whole batch in one pass.
+ */
+public record ActorBatchChangedEvent(List<ActorChangedEvent> changes) {
+}
@@ -0,0 +1,36 @@
+package si.src.bcc.actors.event;
+
+import si.src.bcc.actors.model.Actor;
+
+/**
+ * Published by the actor service after an actor has been created, updated or deleted.
+ * Listeners use it to keep caches and other derived state consistent with the database.
+ * <p>
+ * Changes made by other replicas arrive through the cache invalidation bus as remote events,
+ * they carry only the change type and the id.
+ * <p>
+ * {@code searchTextChanged} is false only for updates known to keep the first and last name, those cannot move
+ * the actor into or out of search results.
+ */
+public record ActorChangedEvent(ChangeType type, Long id, Actor actor, boolean searchTextChanged, boolean remote) {
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    public static ActorChangedEvent created(Actor actor) {
+        return new ActorChangedEvent(ChangeType.CREATED, actor.getId(), actor, true, false);
+    }
+
+    public static ActorChangedEvent updated(Actor actor, boolean searchTextChanged) {
+        return new ActorChangedEvent(ChangeType.UPDATED, actor.getId(), actor, searchTextChanged, false);
+    }
+
+    public static ActorChangedEvent deleted(Long id) {
+        return new ActorChangedEvent(ChangeType.DELETED, id, null, true, false);
+    }
+
+    public static ActorChangedEvent remote(ChangeType type, Long id) {
+        return new ActorChangedEvent(type, id, null, true, true);
+    }
+}
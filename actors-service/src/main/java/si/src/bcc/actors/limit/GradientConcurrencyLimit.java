@@ -0,0 +1,86 @@
+package si.src.bcc.actors.limit;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limit learned from request latency, after the gradient algorithm of Netflix' concurrency-limits.
+ * <p>
+ * Latencies are averaged per sample window and into a long-term average of the latency without queueing. While a
+ * window is no slower than the long-term average times {@code rttTolerance} the limit grows by its square root,
+ * a slower window shrinks it in proportion to the slowdown, by at most half. Windows in which fewer than half of the
+ * limit were in use leave it unchanged, an idle service says nothing about its capacity.
+ */
+public class GradientConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final int longWindow;
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRtt;
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double smoothing,
+                                    Duration sampleWindow, int minWindowSamples, int longWindow) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.windowNanos = sampleWindow.toNanos();
+        this.minWindowSamples = minWindowSamples;
+        this.longWindow = longWindow;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Records a completed request that took {@code rttNanos} and was admitted with {@code inFlight} requests
+     * running, itself included.
+     */
+    public synchronized void onSample(long rttNanos, int inFlight) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        long now = System.nanoTime();
+        if (windowSamples < minWindowSamples || now - windowStart < windowNanos) {
+            return;
+        }
+        update((double) windowRttSum / windowSamples, windowMaxInFlight);
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+    }
+
+    private void update(double shortRtt, int maxInFlight) {
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / longWindow;
+        }
+        // Latency dropped well below the long-term average, e.g. after a slow start, catch up faster
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,137 @@
+package si.src.bcc.actors.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import si.src.bcc.actors.properties.RateLimitProperties;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Per-client rate limits, one {@link TokenBucket} per endpoint group and client.
+ * <p>
+ * Runs after the Spring Security filter chain. Authenticated clients are told apart by the subject of their token,
+ * anonymous requests to the public endpoints by their address. Every limited response carries the
+ * {@code X-RateLimit-*} headers, a request over the limit gets 429 with {@code Retry-After} before any other work
+ * is done for it, cache hits included.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    // Seconds until the bucket is full again
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    private static final byte[] REJECTED_BODY = "{\"status\":429,\"message\":\"Too many requests, please retry later.\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private record Group(String name, List<PathPattern> paths, Set<String> methods, int limit, Duration period,
+                         Counter rejected) {
+    }
+
+    private final boolean enabled;
+    private final List<Group> groups;
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry registry) {
+        this.enabled = properties.isEnabled();
+        this.groups = properties.getGroups().stream()
+                .map(group -> new Group(group.getName(),
+                        group.getPaths().stream().map(PathPatternParser.defaultInstance::parse).toList(),
+                        group.getMethods().stream().map(method -> method.toUpperCase(Locale.ROOT)).collect(Collectors.toSet()),
+                        group.getLimit(), group.getPeriod(),
+                        Counter.builder("rate_limit_rejected_total")
+                                .tag("group", group.getName())
+                                .tag("service", "actors-service")
+                                .register(registry)))
+                .toList();
+        // Expired buckets are removed by the scheduler, also when their clients never come back
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(properties.getIdleTimeout())
+                .maximumSize(properties.getMaximumBuckets())
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+        Gauge.builder("rate_limit_buckets", buckets, Cache::estimatedSize)
+                .tag("service", "actors-service")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || groups.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Group group = match(request);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(group.name() + '|' + client(request),
+                key -> new TokenBucket(group.limit(), group.period(), now));
+        TokenBucket.Probe probe = bucket.tryConsume(now);
+        response.setHeader(LIMIT_HEADER, Integer.toString(group.limit()));
+        response.setHeader(REMAINING_HEADER, Long.toString(probe.remaining()));
+        response.setHeader(RESET_HEADER, Long.toString(seconds(probe.fullInNanos())));
+        if (!probe.allowed()) {
+            group.rejected().increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, seconds(probe.retryInNanos()))));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(REJECTED_BODY.length);
+            response.getOutputStream().write(REJECTED_BODY);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private Group match(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (Group group : groups) {
+            if ((group.methods().isEmpty() || group.methods().contains(request.getMethod()))
+                    && group.paths().stream().anyMatch(pattern -> pattern.matches(path))) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    private static String client(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "subject:" + authentication.getName();
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+
+    private static long seconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
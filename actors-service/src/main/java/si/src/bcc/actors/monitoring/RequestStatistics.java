@@ -0,0 +1,65 @@
+package si.src.bcc.actors.monitoring;
+
+import org.springframework.stereotype.Component;
+import si.src.bcc.actors.dto.EndpointRequestCount;
+import si.src.bcc.actors.dto.RequestStatsResponse;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests served since startup by route template, method and status, as reported on /api/actors/stats/requests/detail;
+ * /api/actors/stats/requests reports the total.
+ * <p>
+ * Counted by {@link HttpMetricsFilter} in front of the response cache, so cached responses are included. Each
+ * combination has its own {@link LongAdder}, concurrent requests increment separate cells instead of contending on one
+ * value. Paths and methods come from {@link HttpRouteMetrics}, which keeps the number of combinations bounded.
+ */
+@Component
+public class RequestStatistics {
+
+    private record Key(String path, String method, int status) {
+    }
+
+    private final ConcurrentMap<Key, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public void record(String path, String method, int status) {
+        Key key = new Key(path, method, status);
+        LongAdder count = counts.get(key);
+        if (count == null) {
+            count = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    public long total() {
+        long total = 0;
+        for (LongAdder count : counts.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    // The sums are read cell by cell while requests go on, each is exact for some moment during the call
+    public RequestStatsResponse snapshot() {
+        List<EndpointRequestCount> endpoints = new ArrayList<>();
+        counts.forEach((key, count) -> endpoints.add(new EndpointRequestCount(key.path(), key.method(), key.status(), count.sum())));
+        endpoints.sort(Comparator.comparing(EndpointRequestCount::getPath)
+                .thenComparing(EndpointRequestCount::getMethod)
+                .thenComparingInt(EndpointRequestCount::getStatus));
+        long total = 0;
+        Map<String, Long> byMethod = new TreeMap<>();
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        for (EndpointRequestCount endpoint : endpoints) {
+            total += endpoint.getCount();
+            byMethod.merge(endpoint.getMethod(), endpoint.getCount(), Long::sum);
+            byStatus.merge(endpoint.getStatus(), endpoint.getCount(), Long::sum);
+        }
+        return new RequestStatsResponse(total, byMethod, byStatus, endpoints);
+    }
+}
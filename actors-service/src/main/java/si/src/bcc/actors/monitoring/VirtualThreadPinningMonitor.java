@@ -0,0 +1,119 @@
+package si.src.bcc.actors.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import si.src.bcc.actors.properties.VirtualThreadProperties;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records virtual threads pinned to their carrier thread, from the JFR events {@code jdk.VirtualThreadPinned}.
+ * <p>
+ * A virtual thread blocking inside a synchronized block or a native frame, e.g. in a JDBC driver, keeps its carrier
+ * thread; with enough of them the few carriers are all taken and every other request stalls. Active with
+ * {@code spring.threads.virtual.enabled}. Pinning is timed per first application or library frame, each frame is
+ * logged once with its stack trace.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    // Frames beyond this share one tag, a pinning library called from many places cannot grow the registry
+    private static final int MAX_FRAMES = 100;
+
+    private final MeterRegistry registry;
+    private final Duration threshold;
+    private final Counter submitFailed;
+    private final Set<String> frames = ConcurrentHashMap.newKeySet();
+    private volatile RecordingStream stream;
+
+    @Autowired
+    public VirtualThreadPinningMonitor(VirtualThreadProperties properties, MeterRegistry registry) {
+        this.registry = registry;
+        this.threshold = properties.getPinnedThreshold();
+        this.submitFailed = Counter.builder("virtual_thread_submit_failed_total")
+                .tag("service", "actors-service")
+                .register(registry);
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        recording.enable("jdk.VirtualThreadSubmitFailed");
+        recording.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        recording.onEvent("jdk.VirtualThreadSubmitFailed", event -> submitFailed.increment());
+        recording.startAsync();
+        stream = recording;
+        log.info("Recording virtual threads pinned for {} ms or longer", threshold.toMillis());
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String frame = frame(event.getStackTrace());
+        if (!frames.contains(frame)) {
+            if (frames.size() >= MAX_FRAMES) {
+                frame = "other";
+            } else if (frames.add(frame)) {
+                log.warn("Virtual thread pinned to its carrier for {} ms at {}:{}", event.getDuration().toMillis(), frame,
+                        stackTrace(event.getStackTrace()));
+            }
+        }
+        Timer.builder("virtual_thread_pinned")
+                .tag("frame", frame)
+                .tag("service", "actors-service")
+                .register(registry)
+                .record(event.getDuration());
+    }
+
+    // The first frame outside the JDK, where the application or a library blocks
+    private static String frame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return "jdk";
+    }
+
+    private static String stackTrace(RecordedStackTrace stackTrace) {
+        StringBuilder text = new StringBuilder();
+        if (stackTrace != null) {
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                text.append("\n\tat ").append(frame.getMethod().getType().getName()).append('.')
+                        .append(frame.getMethod().getName()).append(":").append(frame.getLineNumber());
+            }
+        }
+        return text.toString();
+    }
+}
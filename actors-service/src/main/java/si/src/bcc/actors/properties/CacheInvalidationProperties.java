@@ -0,0 +1,20 @@
+package si.src.bcc.actors.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache-invalidation")
+public class CacheInvalidationProperties {
+    // none, in-process or postgres
+    private String bus = "none";
+    // LISTEN/NOTIFY channel shared by all replicas of the service
+    private String channel = "actors_cache_invalidation";
+    // Local changes are collected this long and sent as one message
+    private Duration batchWindow = Duration.ofMillis(50);
+    private int maxBatchSize = 200;
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+}
@@ -0,0 +1,20 @@
+package si.src.bcc.actors.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.nio.file.Path;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache-warmup")
+public class CacheWarmupProperties {
+    private boolean enabled = true;
+    // Hot keys are written here on shutdown and read back on the next startup
+    private Path snapshotFile = Path.of("cache", "hot-keys.tsv");
+    // Hottest keys kept per cache
+    private int maximumKeys = 500;
+    private int batchSize = 50;
+    // Batches loaded in parallel
+    private int concurrency = 4;
+}
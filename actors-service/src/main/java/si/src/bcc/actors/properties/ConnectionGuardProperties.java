@@ -0,0 +1,17 @@
+package si.src.bcc.actors.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "connection-guard")
+public class ConnectionGuardProperties {
+    private boolean enabled = true;
+    // Connections handed out at once over the primary and the replicas, 0 is the sum of their pool sizes
+    private int maxConcurrency = 0;
+    // Requests waiting longer fail with 503 instead of queueing up in front of the pools
+    private Duration acquireTimeout = Duration.ofSeconds(2);
+}
@@ -0,0 +1,24 @@
+package si.src.bcc.actors.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "http-metrics")
+public class HttpMetricsProperties {
+    // Route and method pairs with meters of their own, the others share the path tag OTHER
+    private int maxRoutes = 200;
+    // Prometheus histogram buckets for quantiles across instances, around 70 per route
+    private boolean percentilesHistogram = false;
+    // Quantiles computed in the service, e.g. 0.5,0.95,0.99, they cannot be aggregated across instances
+    private List<Double> percentiles = new ArrayList<>();
+    // Histogram buckets at these latencies, cheap to keep and to aggregate
+    private List<Duration> slo = new ArrayList<>(List.of(Duration.ofMillis(50), Duration.ofMillis(100),
+            Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofMillis(2500),
+            Duration.ofSeconds(5)));
+}
@@ -0,0 +1,30 @@
+package si.src.bcc.actors.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "read-replicas")
+public class ReadReplicaProperties {
+    // Read-only transactions are spread over these, without any everything uses spring.datasource
+    private List<Replica> replicas = new ArrayList<>();
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    // Replicas further behind the primary are skipped until they catch up
+    private Duration maxLag = Duration.ofSeconds(5);
+    // Reads of a client sending X-Read-After go to the primary this long after its write
+    private Duration readYourWritesWindow = Duration.ofSeconds(15);
+
+    @Data
+    public static class Replica {
+        private String url;
+        // Default to spring.datasource.username and password
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,25 @@
+package si.src.bcc.actors.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "response-cache")
+public class ResponseCacheProperties {
+    private boolean enabled = true;
+    private DataSize maximumWeight = DataSize.ofMegabytes(64);
+    private DataSize maximumEntrySize = DataSize.ofMegabytes(4);
+    private Duration expireAfterWrite = Duration.ofMinutes(30);
+    // Responses at least this large are also stored gzip-compressed
+    private DataSize gzipMinSize = DataSize.ofKilobytes(1);
+    // GET endpoints returning collections, evicted on every write
+    private List<String> collectionPaths = new ArrayList<>(List.of("/api/actors/all", "/api/actors/paged", "/api/actors/search"));
+    // GET endpoint returning a single actor, evicted when that actor is written
+    private String entityPath = "/api/actors/{id:\\d+}";
+}
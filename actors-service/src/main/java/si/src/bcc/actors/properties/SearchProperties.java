@@ -0,0 +1,16 @@
+package si.src.bcc.actors.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "search")
+public class SearchProperties {
+    // auto, like, postgres or index; auto uses the PostgreSQL indexes when the database supports them,
+    // index the in-memory ActorSearchIndex
+    private String engine = "auto";
+    // Builds missing PostgreSQL search indexes concurrently at startup, meant for one instance or a deploy job
+    private boolean createIndexes = false;
+}
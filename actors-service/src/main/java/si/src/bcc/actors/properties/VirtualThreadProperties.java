@@ -0,0 +1,14 @@
+package si.src.bcc.actors.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "virtual-threads")
+public class VirtualThreadProperties {
+    // Virtual threads pinned to their carrier at least this long are recorded, see VirtualThreadPinningMonitor
+    private Duration pinnedThreshold = Duration.ofMillis(20);
+}
@@ -0,0 +1,148 @@
+package si.src.bcc.actors.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import si.src.bcc.actors.model.Actor;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Read paths of the actors: rows through constructor expressions plus one query for the movies, assembled into
+ * plain actors that the persistence context never sees. Same statements as the entity reads with batch fetched
+ * movies, without entity snapshots, collection wrappers and dirty checking.
+ * <p>
+ * The actors are detached values, the caches hold them as they hold detached entities. Call inside a read-only
+ * transaction.
+ */
+@Component
+public class ActorProjections {
+
+    // Bounds the IN lists of the movie queries
+    private static final int COLLECTION_BATCH_SIZE = 1000;
+
+    private final ActorRepository actorRepository;
+
+    @Autowired
+    public ActorProjections(ActorRepository actorRepository) {
+        this.actorRepository = actorRepository;
+    }
+
+    public List<Actor> findAll() {
+        Map<Long, Actor> actors = toActors(actorRepository.findAllRows());
+        addMovies(actors, actorRepository.findAllMovieIds());
+        return new ArrayList<>(actors.values());
+    }
+
+    public Page<Actor> findAll(Pageable pageable) {
+        Page<ActorRow> rows = actorRepository.findRows(pageable);
+        return new PageImpl<>(withMovies(rows.getContent()), pageable, rows.getTotalElements());
+    }
+
+    public Actor findById(Long id) {
+        List<Object[]> rows = actorRepository.findRowWithMovies(id);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] first = rows.get(0);
+        Actor actor = new ActorRow((Long) first[0], (String) first[1], (String) first[2], (LocalDate) first[3],
+                (LocalDateTime) first[4], (LocalDateTime) first[5]).toActor();
+        for (Object[] row : rows) {
+            if (row[6] != null) {
+                actor.getMovies().add((String) row[6]);
+            }
+        }
+        return actor;
+    }
+
+    public List<Actor> findAllById(Collection<Long> ids) {
+        List<ActorRow> rows = new ArrayList<>(ids.size());
+        for (List<Long> batch : batches(ids)) {
+            rows.addAll(actorRepository.findRowsByIdIn(batch));
+        }
+        return withMovies(rows);
+    }
+
+    // The actors of a page of ids in the order of the ids, an actor deleted since the ids were read is skipped
+    public Page<Actor> findAllInOrder(Page<Long> ids) {
+        Map<Long, Actor> actors = new LinkedHashMap<>();
+        findAllById(ids.getContent()).forEach(actor -> actors.put(actor.getId(), actor));
+        List<Actor> ordered = ids.getContent().stream().map(actors::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(ordered, ids.getPageable(), ids.getTotalElements());
+    }
+
+    public List<Actor> findAfter(Long afterId, int limit) {
+        return withMovies(afterId == null
+                ? actorRepository.findRowsOrderById(Limit.of(limit))
+                : actorRepository.findRowsAfterId(afterId, Limit.of(limit)));
+    }
+
+    public Page<Actor> search(String searchTerm, Pageable pageable) {
+        Page<ActorRow> rows = actorRepository.searchActors(searchTerm, pageable);
+        return new PageImpl<>(withMovies(rows.getContent()), pageable, rows.getTotalElements());
+    }
+
+    public Page<Actor> searchRanked(String searchTerm, Pageable pageable) {
+        return findAllInOrder(actorRepository.searchIdsRanked(searchTerm, pageable));
+    }
+
+    // Rows come from an open cursor, the movies are read per chunk
+    public void streamAll(int chunkSize, Consumer<List<Actor>> chunkConsumer) {
+        try (Stream<ActorRow> rows = actorRepository.streamRows()) {
+            List<ActorRow> chunk = new ArrayList<>(chunkSize);
+            Iterator<ActorRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    chunkConsumer.accept(withMovies(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+    }
+
+    private List<Actor> withMovies(List<ActorRow> rows) {
+        Map<Long, Actor> actors = toActors(rows);
+        for (List<Long> batch : batches(actors.keySet())) {
+            addMovies(actors, actorRepository.findMovieIds(batch));
+        }
+        return new ArrayList<>(actors.values());
+    }
+
+    private static Map<Long, Actor> toActors(List<ActorRow> rows) {
+        Map<Long, Actor> actors = new LinkedHashMap<>(rows.size() * 2);
+        rows.forEach(row -> actors.put(row.id(), row.toActor()));
+        return actors;
+    }
+
+    private static void addMovies(Map<Long, Actor> actors, List<Object[]> movieIds) {
+        // An actor inserted between the queries has movies but no row, it is skipped
+        for (Object[] movieId : movieIds) {
+            Actor actor = actors.get((Long) movieId[0]);
+            if (actor != null) {
+                actor.getMovies().add((String) movieId[1]);
+            }
+        }
+    }
+
+    private static List<List<Long>> batches(Collection<Long> ids) {
+        List<Long> list = List.copyOf(ids);
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += COLLECTION_BATCH_SIZE) {
+            batches.add(list.subList(from, Math.min(from + COLLECTION_BATCH_SIZE, list.size())));
+        }
+        return batches;
+    }
+}
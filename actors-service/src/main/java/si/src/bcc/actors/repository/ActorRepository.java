@@ -1,18 +1,85 @@
 package si.src.bcc.actors.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import si.src.bcc.actors.model.Actor;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ActorRepository extends JpaRepository<Actor, Long> {
 
-    @Query("SELECT a FROM Actor a WHERE LOWER(a.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(a.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<Actor> searchActors(@Param("searchTerm") String searchTerm, Pageable pageable);
+    // Read paths select rows, not entities, see ActorProjections
+    String ROW = "new si.src.bcc.actors.repository.ActorRow(a.id, a.firstName, a.lastName, a.bornDate, a.createdAt, a.updatedAt)";
+    String SEARCH_CONDITION = "LOWER(a.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%'))"
+            + " OR LOWER(a.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%'))";
 
-    Page<Actor> findAll(Pageable pageable);
+    String TRIGRAM_CONDITION = "(lower(a.first_name) LIKE '%' || lower(:searchTerm) || '%'"
+            + " OR lower(a.last_name) LIKE '%' || lower(:searchTerm) || '%')";
+
+    @Query(value = "SELECT " + ROW + " FROM Actor a WHERE " + SEARCH_CONDITION,
+            countQuery = "SELECT count(a) FROM Actor a WHERE " + SEARCH_CONDITION)
+    Page<ActorRow> searchActors(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    // PostgreSQL only, see PostgresSearchIndexes: the matches of searchActors, ranked by name similarity. Only the ids,
+    // the rows follow
+    @Query(value = "SELECT a.id FROM actors.actors a WHERE " + TRIGRAM_CONDITION
+            + " ORDER BY greatest(public.similarity(lower(a.first_name), lower(:searchTerm)),"
+            + " public.similarity(lower(a.last_name), lower(:searchTerm))) DESC, a.id",
+            countQuery = "SELECT count(*) FROM actors.actors a WHERE " + TRIGRAM_CONDITION,
+            nativeQuery = true)
+    Page<Long> searchIdsRanked(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    @Query("SELECT " + ROW + " FROM Actor a")
+    List<ActorRow> findAllRows();
+
+    @Query(value = "SELECT " + ROW + " FROM Actor a", countQuery = "SELECT count(a) FROM Actor a")
+    Page<ActorRow> findRows(Pageable pageable);
+
+    @Query("SELECT " + ROW + " FROM Actor a WHERE a.id IN :ids")
+    List<ActorRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // A single actor with the movies joined, one row per movie
+    @Query("SELECT a.id, a.firstName, a.lastName, a.bornDate, a.createdAt, a.updatedAt, m FROM Actor a"
+            + " LEFT JOIN a.movies m WHERE a.id = :id")
+    List<Object[]> findRowWithMovies(@Param("id") Long id);
+
+    // Rows are fetched from an open cursor as the stream advances, not read into memory at once
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT " + ROW + " FROM Actor a")
+    Stream<ActorRow> streamRows();
+
+    // The movies as (id, imdbId) pairs, for a batch of actors or for all of them
+    @Query("SELECT a.id, m FROM Actor a JOIN a.movies m WHERE a.id IN :ids")
+    List<Object[]> findMovieIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT a.id, m FROM Actor a JOIN a.movies m")
+    List<Object[]> findAllMovieIds();
+
+    // One query with the collection joined, instead of a second query for it
+    @Override
+    @EntityGraph(attributePaths = {"movies"})
+    Optional<Actor> findById(Long id);
+
+    // Keyset pagination, seeks on the primary key index instead of skipping OFFSET rows and counting
+    @Query("SELECT " + ROW + " FROM Actor a ORDER BY a.id")
+    List<ActorRow> findRowsOrderById(Limit limit);
+
+    @Query("SELECT " + ROW + " FROM Actor a WHERE a.id > :id ORDER BY a.id")
+    List<ActorRow> findRowsAfterId(@Param("id") Long id, Limit limit);
 
     boolean existsByFirstNameAndLastName(String firstName, String lastName);
+
+    // First and last name of every actor with one of the last names, one query for a whole batch of names
+    @Query("SELECT a.firstName, a.lastName FROM Actor a WHERE a.lastName IN :lastNames")
+    List<Object[]> findNamesByLastNameIn(@Param("lastNames") Collection<String> lastNames);
 } 
\ No newline at end of file
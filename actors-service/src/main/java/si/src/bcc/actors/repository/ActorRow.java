@@ -0,0 +1,25 @@
+package si.src.bcc.actors.repository;
+
+import si.src.bcc.actors.model.Actor;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The columns of an actor without the movies, selected through a constructor expression. Never managed by
+ * the persistence context, so reading it takes no entity snapshot and nothing is dirty checked at flush.
+ */
+public record ActorRow(Long id, String firstName, String lastName, LocalDate bornDate, LocalDateTime createdAt,
+                       LocalDateTime updatedAt) {
+
+    // A plain, unmanaged actor, the movies are filled in by ActorProjections
+    public Actor toActor() {
+        Actor actor = new Actor();
+        actor.setId(id);
+        actor.setFirstName(firstName);
+        actor.setLastName(lastName);
+        actor.setBornDate(bornDate);
+        actor.setCreatedAt(createdAt);
+        actor.setUpdatedAt(updatedAt);
+        return actor;
+    }
+}
@@ -0,0 +1,40 @@
+package si.src.bcc.actors.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import si.src.bcc.actors.model.Actor;
+import si.src.bcc.actors.repository.ActorProjections;
+
+/**
+ * Picks the engine of an actor search: the in-memory index once it is built, then the PostgreSQL trigram similarity ranking,
+ * then the LIKE query. Shared by the service and the cache loader, so a refreshed search page is ranked the same
+ * way as the one it replaces. Call inside a read-only transaction.
+ */
+@Component
+public class ActorSearch {
+
+    private final ActorProjections actorProjections;
+    private final PostgresSearchIndexes searchIndexes;
+    private final ActorSearchIndex searchIndex;
+
+    @Autowired
+    public ActorSearch(ActorProjections actorProjections, PostgresSearchIndexes searchIndexes, ActorSearchIndex searchIndex) {
+        this.actorProjections = actorProjections;
+        this.searchIndexes = searchIndexes;
+        this.searchIndex = searchIndex;
+    }
+
+    public Page<Actor> search(String searchTerm, Pageable pageable) {
+        if (searchIndex.isActive() && pageable.getSort().isUnsorted()) {
+            // Keeps the ranking of the index
+            return actorProjections.findAllInOrder(searchIndex.search(searchTerm, pageable));
+        }
+        // An explicit sort replaces the similarity order, the LIKE query is still served by the trigram indexes
+        if (searchIndexes.isEnabled() && pageable.getSort().isUnsorted()) {
+            return actorProjections.searchRanked(searchTerm, pageable);
+        }
+        return actorProjections.search(searchTerm, pageable);
+    }
+}
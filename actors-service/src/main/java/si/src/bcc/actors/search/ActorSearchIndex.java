@@ -0,0 +1,169 @@
+package si.src.bcc.actors.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import si.src.bcc.actors.event.ActorBatchChangedEvent;
+import si.src.bcc.actors.event.ActorChangedEvent;
+import si.src.bcc.actors.model.Actor;
+import si.src.bcc.actors.properties.SearchProperties;
+import si.src.bcc.actors.repository.ActorRepository;
+import si.src.bcc.actors.repository.ActorRow;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory BM25 search over actor first and last names, used with {@code search.engine: index}.
+ * <p>
+ * Built at startup by walking the actors in primary key order, then kept current from the change events of
+ * this and, through the invalidation bus, the other replicas. Until the build is done searches use the database.
+ */
+@Slf4j
+@Component
+public class ActorSearchIndex implements ApplicationRunner {
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final ActorRepository actorRepository;
+    private final boolean enabled;
+    private final InvertedIndex<Long> index = new InvertedIndex<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Set when a build starts, so changes committed during the build are applied as well
+    private volatile boolean maintained;
+    private volatile boolean ready;
+
+    @Autowired
+    public ActorSearchIndex(ActorRepository actorRepository, SearchProperties properties, MeterRegistry registry) {
+        this.actorRepository = actorRepository;
+        this.enabled = "index".equals(properties.getEngine());
+        Gauge.builder("search_index_documents", this, ActorSearchIndex::size)
+                .tag("service", "actors-service")
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isActive() {
+        return enabled && ready;
+    }
+
+    public void rebuild() {
+        long start = System.nanoTime();
+        ready = false;
+        maintained = true;
+        lock.writeLock().lock();
+        try {
+            index.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Long last = null;
+        int count = 0;
+        while (true) {
+            List<ActorRow> batch;
+            // The batch is read under the lock, a change committed meanwhile is applied after it, never before
+            lock.writeLock().lock();
+            try {
+                batch = last == null
+                        ? actorRepository.findRowsOrderById(Limit.of(BUILD_BATCH_SIZE))
+                        : actorRepository.findRowsAfterId(last, Limit.of(BUILD_BATCH_SIZE));
+                batch.forEach(row -> index.put(row.id(), tokens(row.firstName(), row.lastName())));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            count += batch.size();
+            if (batch.size() < BUILD_BATCH_SIZE) {
+                break;
+            }
+            last = batch.get(batch.size() - 1).id();
+        }
+        ready = true;
+        log.info("Search index built from {} actors in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public Page<Long> search(String searchTerm, Pageable pageable) {
+        List<String> tokens = InvertedIndex.tokenize(searchTerm);
+        InvertedIndex.Result<Long> result;
+        lock.readLock().lock();
+        try {
+            result = index.search(tokens, pageable.getOffset(), pageable.getPageSize());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new PageImpl<>(result.keys(), pageable, result.total());
+    }
+
+    // Before the cache invalidators, a search cached right after their eviction already sees the change
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorChanged(ActorChangedEvent event) {
+        apply(List.of(event));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorsChanged(ActorBatchChangedEvent event) {
+        apply(event.changes());
+    }
+
+    private void apply(List<ActorChangedEvent> events) {
+        if (!maintained) {
+            return;
+        }
+        // Remote events carry only the id, their actors are read in one query
+        List<Long> remoteIds = events.stream()
+                .filter(event -> event.actor() == null && event.type() != ActorChangedEvent.ChangeType.DELETED)
+                .map(ActorChangedEvent::id)
+                .toList();
+        Map<Long, Actor> loaded = remoteIds.isEmpty() ? Map.of() : actorRepository.findRowsByIdIn(remoteIds).stream()
+                .collect(Collectors.toMap(ActorRow::id, ActorRow::toActor));
+        lock.writeLock().lock();
+        try {
+            for (ActorChangedEvent event : events) {
+                Actor actor = event.actor() != null ? event.actor() : loaded.get(event.id());
+                if (actor == null || event.type() == ActorChangedEvent.ChangeType.DELETED) {
+                    index.remove(event.id());
+                } else {
+                    index.put(actor.getId(), tokens(actor.getFirstName(), actor.getLastName()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<String> tokens(String firstName, String lastName) {
+        List<String> tokens = new ArrayList<>(InvertedIndex.tokenize(firstName));
+        tokens.addAll(InvertedIndex.tokenize(lastName));
+        return tokens;
+    }
+}
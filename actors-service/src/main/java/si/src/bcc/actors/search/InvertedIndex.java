@@ -0,0 +1,298 @@
+package si.src.bcc.actors.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index with BM25 scoring, posting lists are primitive arrays of document numbers and term frequencies.
+ * <p>
+ * Documents get increasing numbers, so every posting list stays sorted by document. Removing or replacing a
+ * document only marks its number deleted, the posting lists are rewritten once a quarter of them is deleted.
+ * Not thread safe, callers guard it with a read-write lock.
+ */
+class InvertedIndex<K> {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // A short last word is expanded to at most this many indexed words
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Map<K, Integer> documents = new HashMap<>();
+    private List<K> keys = new ArrayList<>();
+    private int[] lengths = new int[1024];
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private long totalLength;
+
+    record Result<K>(List<K> keys, long total) {
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    void put(K key, List<String> tokens) {
+        remove(key);
+        int doc = keys.size();
+        keys.add(key);
+        if (doc == lengths.length) {
+            lengths = Arrays.copyOf(lengths, doc * 2);
+        }
+        lengths[doc] = tokens.size();
+        totalLength += tokens.size();
+        documents.put(key, doc);
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new Postings()).add(doc, frequency));
+    }
+
+    void remove(K key) {
+        Integer doc = documents.remove(key);
+        if (doc == null) {
+            return;
+        }
+        deleted.set(doc);
+        deletedCount++;
+        totalLength -= lengths[doc];
+        if (deletedCount >= MIN_DELETED_FOR_COMPACTION && deletedCount * 4 >= keys.size()) {
+            compact();
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        documents.clear();
+        keys = new ArrayList<>();
+        lengths = new int[1024];
+        deleted.clear();
+        deletedCount = 0;
+        totalLength = 0;
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    /**
+     * Documents containing every query word, the last word also matches as a prefix so partially typed words
+     * find results. Ordered by the summed BM25 score of the matched words, ties by insertion order.
+     */
+    Result<K> search(List<String> queryTokens, long offset, int limit) {
+        if (queryTokens.isEmpty() || documents.isEmpty()) {
+            return new Result<>(List.of(), 0);
+        }
+        List<Scores> clauses = new ArrayList<>();
+        for (int i = 0; i < queryTokens.size(); i++) {
+            String token = queryTokens.get(i);
+            Collection<Postings> terms = i == queryTokens.size() - 1
+                    ? postings.subMap(token, true, token + Character.MAX_VALUE, false).values()
+                    : postings.containsKey(token) ? List.of(postings.get(token)) : List.of();
+            Scores clause = score(terms);
+            if (clause.size == 0) {
+                return new Result<>(List.of(), 0);
+            }
+            clauses.add(clause);
+        }
+        // Rarest word first, the intersection never grows
+        clauses.sort((a, b) -> Integer.compare(a.size, b.size));
+        Scores matches = clauses.get(0);
+        for (int i = 1; i < clauses.size() && matches.size > 0; i++) {
+            matches = matches.intersect(clauses.get(i));
+        }
+        return new Result<>(top(matches, offset, limit), matches.size);
+    }
+
+    private Scores score(Collection<Postings> terms) {
+        int n = documents.size();
+        float averageLength = (float) totalLength / n;
+        if (terms.size() == 1) {
+            Postings term = terms.iterator().next();
+            Scores scores = new Scores(term.size);
+            float idf = idf(n, term.size);
+            for (int i = 0; i < term.size; i++) {
+                if (!deleted.get(term.docs[i])) {
+                    scores.add(term.docs[i], bm25(idf, term.freqs[i], lengths[term.docs[i]], averageLength));
+                }
+            }
+            return scores;
+        }
+        // Prefix matches: document in the high and score in the low half of a long, sorted by document
+        int total = 0;
+        int expanded = 0;
+        for (Postings term : terms) {
+            if (expanded++ == MAX_PREFIX_TERMS) {
+                break;
+            }
+            total += term.size;
+        }
+        long[] packed = new long[total];
+        int count = 0;
+        expanded = 0;
+        for (Postings term : terms) {
+            if (expanded++ == MAX_PREFIX_TERMS) {
+                break;
+            }
+            float idf = idf(n, term.size);
+            for (int i = 0; i < term.size; i++) {
+                int doc = term.docs[i];
+                if (!deleted.get(doc)) {
+                    float score = bm25(idf, term.freqs[i], lengths[doc], averageLength);
+                    packed[count++] = ((long) doc << 32) | Float.floatToRawIntBits(score);
+                }
+            }
+        }
+        Arrays.sort(packed, 0, count);
+        Scores scores = new Scores(count);
+        for (int i = 0; i < count; i++) {
+            int doc = (int) (packed[i] >>> 32);
+            float score = Float.intBitsToFloat((int) packed[i]);
+            if (scores.size > 0 && scores.docs[scores.size - 1] == doc) {
+                scores.scores[scores.size - 1] += score;
+            } else {
+                scores.add(doc, score);
+            }
+        }
+        return scores;
+    }
+
+    private List<K> top(Scores matches, long offset, int limit) {
+        if (offset >= matches.size) {
+            return List.of();
+        }
+        // Scores are never negative, so their bits sort like the floats; the low half keeps lower documents first
+        long[] packed = new long[matches.size];
+        for (int i = 0; i < matches.size; i++) {
+            packed[i] = ((long) Float.floatToRawIntBits(matches.scores[i]) << 32) | (Integer.MAX_VALUE - matches.docs[i]);
+        }
+        Arrays.sort(packed);
+        List<K> page = new ArrayList<>((int) Math.min(limit, matches.size - offset));
+        for (long i = packed.length - 1 - offset; i >= 0 && page.size() < limit; i--) {
+            page.add(keys.get(Integer.MAX_VALUE - (int) packed[(int) i]));
+        }
+        return page;
+    }
+
+    // Document frequencies still count deleted documents until the next compaction, hence the clamp
+    private static float idf(int documentCount, int documentFrequency) {
+        return (float) Math.log(1 + (Math.max(documentCount - documentFrequency, 0) + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static float bm25(float idf, int frequency, int length, float averageLength) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private void compact() {
+        int[] renumbered = new int[keys.size()];
+        List<K> liveKeys = new ArrayList<>(documents.size());
+        int[] liveLengths = new int[Math.max(1024, documents.size() * 2)];
+        for (int doc = 0; doc < keys.size(); doc++) {
+            if (deleted.get(doc)) {
+                renumbered[doc] = -1;
+            } else {
+                renumbered[doc] = liveKeys.size();
+                liveLengths[liveKeys.size()] = lengths[doc];
+                liveKeys.add(keys.get(doc));
+            }
+        }
+        Iterator<Postings> terms = postings.values().iterator();
+        while (terms.hasNext()) {
+            Postings term = terms.next();
+            term.renumber(renumbered);
+            if (term.size == 0) {
+                terms.remove();
+            }
+        }
+        documents.clear();
+        for (int doc = 0; doc < liveKeys.size(); doc++) {
+            documents.put(liveKeys.get(doc), doc);
+        }
+        keys = liveKeys;
+        lengths = liveLengths;
+        deleted.clear();
+        deletedCount = 0;
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = frequency;
+            size++;
+        }
+
+        void renumber(int[] renumbered) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = renumbered[docs[i]];
+                if (doc >= 0) {
+                    docs[live] = doc;
+                    freqs[live] = freqs[i];
+                    live++;
+                }
+            }
+            size = live;
+        }
+    }
+
+    private static final class Scores {
+        private final int[] docs;
+        private final float[] scores;
+        private int size;
+
+        Scores(int capacity) {
+            docs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void add(int doc, float score) {
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
+
+        // Merge join of two lists sorted by document, scores of common documents are summed
+        Scores intersect(Scores other) {
+            Scores result = new Scores(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (docs[i] < other.docs[j]) {
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    j++;
+                } else {
+                    result.add(docs[i], scores[i] + other.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
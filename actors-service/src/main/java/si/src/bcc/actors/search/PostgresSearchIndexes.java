@@ -0,0 +1,102 @@
+package si.src.bcc.actors.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import si.src.bcc.actors.properties.SearchProperties;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The indexes behind actor search on PostgreSQL, used once they exist and are valid.
+ * <p>
+ * {@code pg_trgm} GIN indexes on the lower-cased names serve the substring matches, results are ranked by
+ * trigram similarity to the term. With {@code search.create-indexes} the missing ones are built
+ * with {@code CREATE INDEX CONCURRENTLY}, which does not block writes; one instance or a deploy job should do that,
+ * the others only check. Other databases (H2 in the tests) keep the plain LIKE query.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class PostgresSearchIndexes {
+
+    private static final Map<String, String> INDEXES = new LinkedHashMap<>();
+
+    static {
+        INDEXES.put("actors_first_name_trgm_idx", "ON actors.actors USING gin (lower(first_name) public.gin_trgm_ops)");
+        INDEXES.put("actors_last_name_trgm_idx", "ON actors.actors USING gin (lower(last_name) public.gin_trgm_ops)");
+    }
+
+    private final boolean enabled;
+
+    @Autowired
+    public PostgresSearchIndexes(JdbcTemplate jdbcTemplate, SearchProperties properties) {
+        this.enabled = switch (properties.getEngine()) {
+            case "like", "index" -> false;
+            case "postgres" -> {
+                if (!prepare(jdbcTemplate, properties.isCreateIndexes())) {
+                    throw new IllegalStateException("search.engine is postgres, but the search indexes are missing");
+                }
+                yield true;
+            }
+            case "auto" -> prepare(jdbcTemplate, properties.isCreateIndexes());
+            default -> throw new IllegalArgumentException("Unknown search engine: " + properties.getEngine());
+        };
+        log.info("Actor search uses {}", enabled ? "PostgreSQL trigram indexes" : "LIKE queries");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static boolean prepare(JdbcTemplate jdbcTemplate, boolean createIndexes) {
+        try {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equals(database)) {
+                return false;
+            }
+            Set<String> valid = validIndexes(jdbcTemplate);
+            if (createIndexes && !valid.containsAll(INDEXES.keySet())) {
+                create(jdbcTemplate, valid);
+                valid = validIndexes(jdbcTemplate);
+            }
+            Set<String> missing = new HashSet<>(INDEXES.keySet());
+            missing.removeAll(valid);
+            if (!missing.isEmpty()) {
+                log.warn("Search indexes {} are missing, set search.create-indexes on one instance to build them", missing);
+                return false;
+            }
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Search indexes could not be checked or created, falling back to LIKE queries: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // Each statement commits on its own, CREATE INDEX CONCURRENTLY cannot run inside a transaction
+    private static void create(JdbcTemplate jdbcTemplate, Set<String> valid) {
+        // Created by init-db/init.sql, pg_trgm is a trusted extension so older databases get it here
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm SCHEMA public");
+        INDEXES.forEach((name, definition) -> {
+            if (!valid.contains(name)) {
+                log.info("Building search index {}", name);
+                // A failed concurrent build leaves an invalid index behind
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS actors." + name);
+                jdbcTemplate.execute("CREATE INDEX CONCURRENTLY " + name + " " + definition);
+            }
+        });
+    }
+
+    private static Set<String> validIndexes(JdbcTemplate jdbcTemplate) {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT c.relname FROM pg_index i"
+                + " JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_namespace n ON n.oid = c.relnamespace"
+                + " WHERE n.nspname = 'actors' AND i.indisvalid", String.class));
+    }
+}
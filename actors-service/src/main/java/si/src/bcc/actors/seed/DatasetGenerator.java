@@ -0,0 +1,169 @@
+package si.src.bcc.actors.seed;
+
+import si.src.bcc.actors.properties.SeedProperties;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic movies, actors and the links between them, for benchmarks and load tests.
+ * <p>
+ * Every row is derived from the seed and its own index only, so the same settings always give the same data
+ * and the movies service generates exactly the same links. Keep in sync with the copy in the movies service.
+ */
+public class DatasetGenerator {
+
+    private static final int MOVIE = 1;
+    private static final int ACTOR = 2;
+    private static final int LINKS = 3;
+    private static final LocalDateTime CREATED_FROM = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final int CREATED_RANGE_SECONDS = 5 * 365 * 24 * 3600;
+    private static final LocalDate BORN_FROM = LocalDate.of(1930, 1, 1);
+    private static final int BORN_RANGE_DAYS = 75 * 365;
+
+    private static final String[] WORDS = {
+            "love", "war", "night", "city", "dream", "shadow", "river", "storm", "king", "queen", "secret", "road",
+            "last", "first", "dark", "silent", "broken", "golden", "lost", "wild", "hidden", "final", "burning",
+            "frozen", "summer", "winter", "island", "empire", "ghost", "heart", "fire", "stone", "blood", "star",
+            "moon", "sea", "mountain", "desert", "journey", "return", "escape", "promise", "memory", "stranger",
+            "family", "brother", "sister", "father", "mother", "friend", "enemy", "soldier", "detective", "thief",
+            "doctor", "teacher", "pilot", "hunter", "runs", "falls", "hides", "finds", "loses", "fights", "waits",
+            "remembers", "discovers", "betrays", "protects", "follows", "town", "house", "garden", "train",
+            "letter", "song", "game", "truth", "lie", "time", "world", "light", "rain", "wolf", "horse", "bridge"};
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth",
+            "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark", "Margaret", "Paul", "Sandra", "Steven",
+            "Ashley", "Andrew", "Emily", "Joshua", "Donna", "Kevin", "Michelle", "Brian", "Carol", "George", "Amanda",
+            "Edward", "Melissa", "Ronald", "Deborah", "Timothy", "Stephanie", "Jason", "Rebecca", "Luka", "Ana",
+            "Marko", "Eva", "Jan", "Nina", "Hugo", "Lea", "Mateo", "Sofia"};
+    private static final String[] LAST_NAME_STEMS = {
+            "Ander", "Bright", "Clark", "Dal", "Elling", "Fair", "Gold", "Hart", "Iver", "Johan", "Kel", "Lind",
+            "Mar", "Nor", "Ost", "Pen", "Quin", "Ros", "Stan", "Thorn", "Ul", "Van", "West", "York", "Zel", "Black",
+            "Green", "Wood", "Hill", "Brook", "Novak", "Horvat", "Kranj", "Zupan", "Pot", "Vid", "Hol", "Mil",
+            "Brad", "Cart"};
+    private static final String[] LAST_NAME_ENDINGS = {
+            "son", "sen", "ton", "ford", "ley", "wood", "field", "man", "berg", "stein", "ic", "ec", "er", "ing",
+            "well", "more", "by", "ham", "worth", "s"};
+
+    private final long seed;
+    private final long movies;
+    private final long actors;
+    private final long links;
+    private final int picturesPerMovie;
+
+    public record GeneratedMovie(String imdbId, String title, int year, String description, LocalDateTime createdAt) {
+    }
+
+    public record GeneratedActor(long id, String firstName, String lastName, LocalDate bornDate,
+                                 LocalDateTime createdAt) {
+    }
+
+    public DatasetGenerator(SeedProperties properties) {
+        this.seed = properties.getSeed();
+        this.movies = properties.getMovies();
+        this.actors = properties.getActors();
+        this.links = properties.getLinks();
+        this.picturesPerMovie = properties.getPicturesPerMovie();
+    }
+
+    public long movies() {
+        return movies;
+    }
+
+    public long actors() {
+        return actors;
+    }
+
+    // tt followed by 8 digits, the movie index is zero based
+    public static String imdbId(long movie) {
+        String digits = Long.toString(movie + 1);
+        return "tt" + "00000000".substring(Math.min(digits.length(), 8)) + digits;
+    }
+
+    public GeneratedMovie movie(long index) {
+        SplittableRandom random = random(MOVIE, index);
+        String title = words(random, 1 + random.nextInt(4));
+        title = Character.toUpperCase(title.charAt(0)) + title.substring(1);
+        int year = 1920 + random.nextInt(106);
+        String description = words(random, 12 + random.nextInt(30));
+        description = Character.toUpperCase(description.charAt(0)) + description.substring(1) + ".";
+        return new GeneratedMovie(imdbId(index), title, year, description, created(random));
+    }
+
+    public GeneratedActor actor(long index) {
+        SplittableRandom random = random(ACTOR, index);
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAME_STEMS[random.nextInt(LAST_NAME_STEMS.length)]
+                + LAST_NAME_ENDINGS[random.nextInt(LAST_NAME_ENDINGS.length)];
+        LocalDate bornDate = BORN_FROM.plusDays(random.nextInt(BORN_RANGE_DAYS));
+        return new GeneratedActor(index + 1, firstName, lastName, bornDate, created(random));
+    }
+
+    /**
+     * Distinct actor ids of a movie. The links are spread evenly over the movies, while low actor ids are
+     * cast far more often, like the few very busy actors of a real catalog.
+     */
+    public long[] actorIds(long movie) {
+        if (movies == 0 || actors == 0) {
+            return new long[0];
+        }
+        long count = Math.min(links / movies + (movie < links % movies ? 1 : 0), actors);
+        long[] ids = new long[(int) count];
+        SplittableRandom random = random(LINKS, movie);
+        int size = 0;
+        while (size < ids.length) {
+            double u = random.nextDouble();
+            long id = 1 + (long) (actors * u * u);
+            if (!contains(ids, size, id)) {
+                ids[size++] = id;
+            }
+        }
+        return ids;
+    }
+
+    public List<String> pictures(long movie) {
+        List<String> pictures = new ArrayList<>(picturesPerMovie);
+        for (int i = 1; i <= picturesPerMovie; i++) {
+            pictures.add("https://images.example.com/movies/" + imdbId(movie) + "/" + i + ".jpg");
+        }
+        return pictures;
+    }
+
+    private SplittableRandom random(int stream, long index) {
+        return new SplittableRandom(mix(mix(seed + stream) + index));
+    }
+
+    private static String words(SplittableRandom random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static LocalDateTime created(SplittableRandom random) {
+        return CREATED_FROM.plusSeconds(random.nextInt(CREATED_RANGE_SECONDS));
+    }
+
+    private static boolean contains(long[] ids, int size, long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // SplitMix64 finalizer, neighbouring indexes get unrelated random streams
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
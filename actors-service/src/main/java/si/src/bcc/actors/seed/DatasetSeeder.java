@@ -0,0 +1,273 @@
+package si.src.bcc.actors.seed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import si.src.bcc.actors.properties.SeedProperties;
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the synthetic dataset of {@link DatasetGenerator} into the actors schema, run with the seed profile.
+ * <p>
+ * PostgreSQL gets the rows through {@code COPY ... FROM STDIN} in one transaction, other databases (H2) through
+ * JDBC batches committed one by one. Runs before every other runner and exits once the data is loaded, so the
+ * service never serves requests from a half seeded database.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "seed", name = "enabled", havingValue = "true")
+public class DatasetSeeder implements ApplicationRunner {
+
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+    private static final List<String> TABLES = List.of("actors.actor_movies", "actors.actors");
+    // allocationSize of Actor, the sequence is moved past the seeded ids by one allocation
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private final DataSource dataSource;
+    private final SeedProperties properties;
+    private final ConfigurableApplicationContext context;
+
+    @Autowired
+    public DatasetSeeder(@Qualifier("primaryDataSource") DataSource dataSource, SeedProperties properties,
+                         ConfigurableApplicationContext context) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        seed();
+        if (properties.isExit()) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    public void seed() {
+        DatasetGenerator generator = new DatasetGenerator(properties);
+        log.info("Seeding {} actors with {} movie links (seed {})", properties.getActors(), properties.getLinks(),
+                properties.getSeed());
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            connection.setAutoCommit(false);
+            try {
+                if (properties.isTruncate()) {
+                    truncate(connection, postgres);
+                }
+                load(connection, postgres, "actors.actors",
+                        List.of("id", "first_name", "last_name", "born_date", "created_at", "updated_at"), rows -> {
+                            for (long i = 0; i < generator.actors(); i++) {
+                                DatasetGenerator.GeneratedActor actor = generator.actor(i);
+                                rows.add(actor.id(), actor.firstName(), actor.lastName(), actor.bornDate(),
+                                        actor.createdAt(), actor.createdAt());
+                            }
+                        });
+                // The links of the movies schema, generated movie by movie the same way
+                load(connection, postgres, "actors.actor_movies", List.of("actor_id", "movie_imdb_id"), rows -> {
+                    for (long i = 0; i < generator.movies(); i++) {
+                        String imdbId = DatasetGenerator.imdbId(i);
+                        for (long actorId : generator.actorIds(i)) {
+                            rows.add(actorId, imdbId);
+                        }
+                    }
+                });
+                if (generator.actors() > 0) {
+                    advanceSequence(connection, postgres, generator.actors());
+                }
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            if (postgres) {
+                // Fresh statistics, the first benchmark queries get the same plans as later ones
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    for (String table : TABLES) {
+                        statement.execute("ANALYZE " + table);
+                    }
+                }
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Seeding the actors schema failed", e);
+        }
+        log.info("Seeded the actors schema in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void truncate(Connection connection, boolean postgres) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (postgres) {
+                statement.execute("TRUNCATE TABLE " + String.join(", ", TABLES));
+            } else {
+                for (String table : TABLES) {
+                    statement.execute("DELETE FROM " + table);
+                }
+            }
+        }
+    }
+
+    // New actors get ids after the seeded ones
+    private static void advanceSequence(Connection connection, boolean postgres, long lastId) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (postgres) {
+                statement.execute("SELECT setval('actors.actor_id_seq', " + lastId + ")");
+            } else {
+                statement.execute("ALTER SEQUENCE actors.actor_id_seq RESTART WITH " + (lastId + ID_ALLOCATION_SIZE));
+            }
+        }
+    }
+
+    private void load(Connection connection, boolean postgres, String table, List<String> columns, RowSource source)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+        String columnList = String.join(", ", columns);
+        long count;
+        try (Rows rows = postgres
+                ? new CopyRows(connection, "COPY " + table + " (" + columnList + ") FROM STDIN")
+                : new BatchRows(connection, "INSERT INTO " + table + " (" + columnList + ") VALUES ("
+                        + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")", properties.getBatchSize())) {
+            source.write(rows);
+            count = rows.finish();
+        }
+        log.info("Loaded {} rows into {} in {} ms", count, table, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        void write(Rows rows) throws SQLException, IOException;
+    }
+
+    private interface Rows extends AutoCloseable {
+        void add(Object... values) throws SQLException, IOException;
+
+        // Writes the remaining rows, returns the number of rows written
+        long finish() throws SQLException, IOException;
+
+        @Override
+        void close() throws SQLException, IOException;
+    }
+
+    // COPY text format: tab separated, one row per line, backslash escapes
+    private static final class CopyRows implements Rows {
+        private final PGCopyOutputStream copy;
+        private final Writer writer;
+        private long count;
+
+        CopyRows(Connection connection, String sql) throws SQLException {
+            this.copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql, COPY_BUFFER_SIZE);
+            this.writer = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+        }
+
+        @Override
+        public void add(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write('\t');
+                }
+                if (values[i] == null) {
+                    writer.write("\\N");
+                } else {
+                    escape(values[i].toString());
+                }
+            }
+            writer.write('\n');
+            count++;
+        }
+
+        private void escape(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\' -> writer.write("\\\\");
+                    case '\t' -> writer.write("\\t");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    default -> writer.write(c);
+                }
+            }
+        }
+
+        // Flushes the last rows and ends the COPY
+        @Override
+        public long finish() throws IOException {
+            writer.close();
+            return count;
+        }
+
+        // A COPY still running after a failure is cancelled, none of its rows are kept
+        @Override
+        public void close() throws SQLException {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    private static final class BatchRows implements Rows {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final int batchSize;
+        private int pending;
+        private long count;
+
+        BatchRows(Connection connection, String sql, int batchSize) throws SQLException {
+            this.connection = connection;
+            this.statement = connection.prepareStatement(sql);
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+            count++;
+            if (++pending == batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            statement.executeBatch();
+            connection.commit();
+            pending = 0;
+        }
+
+        @Override
+        public long finish() throws SQLException {
+            if (pending > 0) {
+                flush();
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            statement.close();
+        }
+    }
+}
@@ -4,17 +4,27 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import si.src.bcc.actors.model.Actor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface ActorService {
     Page<Actor> getAllActors(Pageable pageable);
     List<Actor> getAllActors();
+    void streamAllActors(Consumer<List<Actor>> chunkConsumer);
+    List<Actor> getActorsAfter(Long afterId, int limit);
     Actor getActorById(Long id);
     Actor createActor(Actor actor);
     Actor updateActor(Long id, Actor actor);
     boolean deleteActor(Long id);
+    Map<Long, Actor> lookupActors(Collection<Long> ids);
+    List<Actor> createActors(List<Actor> actors);
+    Map<Long, Actor> updateActors(Map<Long, Consumer<Actor>> changes);
+    Set<Long> deleteActors(Collection<Long> ids);
+    Set<List<String>> findExistingNames(Collection<String> lastNames);
     Page<Actor> searchActors(String searchTerm, Pageable pageable);
     boolean existsById(Long id);
     boolean existsByName(String firstName, String lastName);
-    long getRequestCount();
 }
\ No newline at end of file
@@ -1,58 +1,103 @@
 package si.src.bcc.actors.service.impl;
 
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import si.src.bcc.actors.event.ActorBatchChangedEvent;
+import si.src.bcc.actors.event.ActorChangedEvent;
 import si.src.bcc.actors.model.Actor;
+import si.src.bcc.actors.repository.ActorProjections;
 import si.src.bcc.actors.repository.ActorRepository;
+import si.src.bcc.actors.repository.ActorRow;
+import si.src.bcc.actors.search.ActorSearch;
 import si.src.bcc.actors.service.ActorService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @Transactional
 public class ActorServiceImpl implements ActorService {
 
+    private static final String ACTOR_CACHE = "actor";
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final ActorRepository actorRepository;
-    private final AtomicLong requestCounter = new AtomicLong(0);
+    private final ActorProjections actorProjections;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ActorSearch actorSearch;
+    private final CacheManager cacheManager;
 
     @Autowired
-    public ActorServiceImpl(ActorRepository actorRepository) {
+    public ActorServiceImpl(ActorRepository actorRepository, ActorProjections actorProjections, EntityManager entityManager,
+                            ApplicationEventPublisher eventPublisher,
+                            ActorSearch actorSearch, CacheManager cacheManager) {
         this.actorRepository = actorRepository;
+        this.actorProjections = actorProjections;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.actorSearch = actorSearch;
+        this.cacheManager = cacheManager;
     }
 
     @Override
-    @Cacheable(value = "actors", key = "'all'")
+    @Transactional(readOnly = true)
+    @Cacheable(value = "actors", key = "'all'", sync = true)
     public List<Actor> getAllActors() {
         log.debug("Fetching all actors");
-        incrementRequestCounter();
-        List<Actor> actors = actorRepository.findAll();
+        List<Actor> actors = actorProjections.findAll();
         log.debug("Found {} actors", actors.size());
         return actors;
     }
 
     @Override
-    @Cacheable(value = "actors", key = "#pageable.pageNumber + '-' + #pageable.pageSize")
+    @Transactional(readOnly = true)
+    public void streamAllActors(Consumer<List<Actor>> chunkConsumer) {
+        log.debug("Streaming all actors");
+        actorProjections.streamAll(STREAM_CHUNK_SIZE, chunkConsumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "actors", key = "#pageable.pageNumber + '-' + #pageable.pageSize", sync = true)
     public Page<Actor> getAllActors(Pageable pageable) {
         log.debug("Fetching all actors with page: {} and size: {}", pageable.getPageNumber(), pageable.getPageSize());
-        incrementRequestCounter();
-        Page<Actor> actors = actorRepository.findAll(pageable);
+        Page<Actor> actors = actorProjections.findAll(pageable);
         log.debug("Found {} actors", actors.getTotalElements());
         return actors;
     }
 
     @Override
-    @Cacheable(value = "actor", key = "#id")
+    @Transactional(readOnly = true)
+    public List<Actor> getActorsAfter(Long afterId, int limit) {
+        log.debug("Fetching {} actors after id: {}", limit, afterId);
+        return actorProjections.findAfter(afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "actor", key = "#id", sync = true)
     public Actor getActorById(Long id) {
         log.debug("Fetching actor with id: {}", id);
-        incrementRequestCounter();
-        Actor actor = actorRepository.findById(id).orElse(null);
+        Actor actor = actorProjections.findById(id);
         if (actor != null) {
             log.debug("Found actor: {} {}", actor.getFirstName(), actor.getLastName());
         } else {
@@ -62,49 +107,132 @@ public class ActorServiceImpl implements ActorService {
     }
 
     @Override
-    @CacheEvict(value = {"actors", "actor"}, allEntries = true)
     public Actor createActor(Actor actor) {
         log.debug("Creating new actor: {} {}", actor.getFirstName(), actor.getLastName());
-        incrementRequestCounter();
         Actor savedActor = actorRepository.save(actor);
+        eventPublisher.publishEvent(ActorChangedEvent.created(savedActor));
         log.info("Created actor with id: {} and name: {} {}", savedActor.getId(), savedActor.getFirstName(), savedActor.getLastName());
         return savedActor;
     }
 
     @Override
-    @CacheEvict(value = {"actors", "actor"}, allEntries = true)
     public Actor updateActor(Long id, Actor actor) {
         log.debug("Updating actor with id: {}", id);
-        incrementRequestCounter();
-        if (!actorRepository.existsById(id)) {
+        List<ActorRow> current = actorRepository.findRowsByIdIn(List.of(id));
+        if (current.isEmpty()) {
             log.debug("No actor found with id: {} for update", id);
             return null;
         }
         actor.setId(id);
         Actor updatedActor = actorRepository.save(actor);
+        eventPublisher.publishEvent(ActorChangedEvent.updated(updatedActor,
+                searchTextChanged(current.get(0).firstName(), current.get(0).lastName(), updatedActor)));
         log.info("Updated actor with id: {} and name: {} {}", updatedActor.getId(), updatedActor.getFirstName(), updatedActor.getLastName());
         return updatedActor;
     }
 
     @Override
-    @CacheEvict(value = {"actors", "actor"}, allEntries = true)
     public boolean deleteActor(Long id) {
         log.debug("Attempting to delete actor with id: {}", id);
-        incrementRequestCounter();
         if (!actorRepository.existsById(id)) {
             log.debug("No actor found with id: {} for deletion", id);
             return false;
         }
         actorRepository.deleteById(id);
+        eventPublisher.publishEvent(ActorChangedEvent.deleted(id));
         log.info("Successfully deleted actor with id: {}", id);
         return true;
     }
 
+    /**
+     * The actors of {@code getActorById} for many ids at once: what the {@code actor} cache holds, found or not,
+     * is served from it, the rest is read with one {@code IN} query and put into the cache. Missing actors are
+     * cached as not found, like the single lookup does.
+     */
     @Override
-    @Cacheable(value = "actorSearch", key = "#searchTerm + '-' + #pageable.pageNumber + '-' + #pageable.pageSize")
+    @Transactional(readOnly = true)
+    public Map<Long, Actor> lookupActors(Collection<Long> ids) {
+        Set<Long> remaining = new LinkedHashSet<>(ids);
+        Map<Long, Actor> actors = new HashMap<>();
+        Cache cache = cacheManager.getCache(ACTOR_CACHE);
+        if (cache instanceof CaffeineCache caffeineCache) {
+            // One bulk read, Cache.get would load every missing key on its own through the refresh loader
+            caffeineCache.getNativeCache().getAllPresent(remaining).forEach((key, value) -> {
+                remaining.remove(key);
+                if (value instanceof Actor actor) {
+                    actors.put(actor.getId(), actor);
+                }
+            });
+        }
+        log.debug("Looking up {} actors, {} from the cache", ids.size(), ids.size() - remaining.size());
+        if (remaining.isEmpty()) {
+            return actors;
+        }
+        for (Actor actor : actorProjections.findAllById(new ArrayList<>(remaining))) {
+            actors.put(actor.getId(), actor);
+        }
+        if (cache != null) {
+            // A write committed meanwhile has already put the newer actor
+            remaining.forEach(id -> cache.putIfAbsent(id, actors.get(id)));
+        }
+        return actors;
+    }
+
+    @Override
+    public List<Actor> createActors(List<Actor> actors) {
+        log.debug("Creating {} actors", actors.size());
+        // Ids come from the pooled sequence, the inserts are sent in JDBC batches at commit
+        List<Actor> savedActors = actorRepository.saveAll(actors);
+        publishBatch(savedActors.stream().map(ActorChangedEvent::created).toList());
+        log.info("Created {} actors", savedActors.size());
+        return savedActors;
+    }
+
+    /**
+     * Applies the changes to the actors as this transaction reads them, with one query. Actors missing by then are
+     * left out of the result and never written, the others are flushed in JDBC batches at commit.
+     */
+    @Override
+    public Map<Long, Actor> updateActors(Map<Long, Consumer<Actor>> changes) {
+        log.debug("Updating {} actors", changes.size());
+        Map<Long, Actor> updatedActors = new HashMap<>();
+        List<ActorChangedEvent> events = new ArrayList<>();
+        for (Actor actor : actorRepository.findAllById(changes.keySet())) {
+            String firstName = actor.getFirstName();
+            String lastName = actor.getLastName();
+            changes.get(actor.getId()).accept(actor);
+            updatedActors.put(actor.getId(), actor);
+            events.add(ActorChangedEvent.updated(actor, searchTextChanged(firstName, lastName, actor)));
+        }
+        publishBatch(events);
+        log.info("Updated {} of {} actors", updatedActors.size(), changes.size());
+        return updatedActors;
+    }
+
+    @Override
+    public Set<Long> deleteActors(Collection<Long> ids) {
+        log.debug("Deleting {} actors", ids.size());
+        List<Actor> actors = actorRepository.findAllById(ids);
+        actorRepository.deleteAll(actors);
+        Set<Long> deleted = actors.stream().map(Actor::getId).collect(Collectors.toSet());
+        publishBatch(deleted.stream().map(ActorChangedEvent::deleted).toList());
+        log.info("Deleted {} actors", deleted.size());
+        return deleted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<List<String>> findExistingNames(Collection<String> lastNames) {
+        return actorRepository.findNamesByLastNameIn(lastNames).stream()
+                .map(name -> List.of((String) name[0], (String) name[1]))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "actorSearch", key = "#searchTerm + '-' + #pageable.pageNumber + '-' + #pageable.pageSize", sync = true)
     public Page<Actor> searchActors(String searchTerm, Pageable pageable) {
-        incrementRequestCounter();
-        return actorRepository.searchActors(searchTerm, pageable);
+        return actorSearch.search(searchTerm, pageable);
     }
 
     @Override
@@ -119,14 +247,14 @@ public class ActorServiceImpl implements ActorService {
         return actorRepository.existsByFirstNameAndLastName(firstName, lastName);
     }
 
-    private void incrementRequestCounter() {
-        long count = requestCounter.incrementAndGet();
-        log.debug("Request counter incremented to: {}", count);
+    private static boolean searchTextChanged(String firstName, String lastName, Actor actor) {
+        return !Objects.equals(firstName, actor.getFirstName()) || !Objects.equals(lastName, actor.getLastName());
     }
 
-    @Override
-    public long getRequestCount() {
-        log.debug("Request counter returned: {}", requestCounter.get());
-        return requestCounter.get();
+    // One event for the whole batch, the caches are invalidated once and not once per actor
+    private void publishBatch(List<ActorChangedEvent> changes) {
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new ActorBatchChangedEvent(changes));
+        }
     }
 }
\ No newline at end of file
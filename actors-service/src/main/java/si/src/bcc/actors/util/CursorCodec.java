@@ -0,0 +1,36 @@
+package si.src.bcc.actors.util;
+
+import si.src.bcc.actors.exception.InvalidActorDataException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation tokens of the keyset pagination: the last actor ID of a page, base64url encoded.
+ */
+public final class CursorCodec {
+
+    private static final String PREFIX = "id:";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Null for the first page
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (value.startsWith(PREFIX)) {
+                return Long.valueOf(value.substring(PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Not base64 or not a number, reported below
+        }
+        throw new InvalidActorDataException("cursor", "Invalid cursor");
+    }
+}
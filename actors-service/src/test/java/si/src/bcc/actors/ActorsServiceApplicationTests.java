@@ -1,26 +1,107 @@
 package si.src.bcc.actors;
 
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.FilterChain;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.*;
+import org.springframework.http.server.PathContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import si.src.bcc.actors.cache.CacheInvalidation;
+import si.src.bcc.actors.cache.CacheInvalidationBroadcaster;
+import si.src.bcc.actors.cache.CacheInvalidationBus;
+import si.src.bcc.actors.cache.CacheWarmer;
+import si.src.bcc.actors.cache.ResponseCache;
+import si.src.bcc.actors.config.JwtConfig;
 import si.src.bcc.actors.config.TestJwtConfig;
+import si.src.bcc.actors.datasource.ConnectionGuard;
+import si.src.bcc.actors.datasource.ReadConsistencyFilter;
+import si.src.bcc.actors.datasource.ReplicaRoutingDataSource;
+import si.src.bcc.actors.event.ActorChangedEvent;
+import si.src.bcc.actors.limit.ConcurrencyLimitFilter;
+import si.src.bcc.actors.limit.GradientConcurrencyLimit;
+import si.src.bcc.actors.limit.RateLimitFilter;
+import si.src.bcc.actors.dto.ActorUpdateRequest;
+import si.src.bcc.actors.dto.BatchItemResult;
+import si.src.bcc.actors.dto.BatchResponse;
+import si.src.bcc.actors.dto.CursorPageResponse;
+import si.src.bcc.actors.dto.EndpointRequestCount;
+import si.src.bcc.actors.dto.RequestStatsResponse;
 import si.src.bcc.actors.dto.ActorRequest;
 import si.src.bcc.actors.dto.ActorResponse;
+import si.src.bcc.actors.model.Actor;
+import si.src.bcc.actors.monitoring.HttpMetricsFilter;
+import si.src.bcc.actors.monitoring.HttpRouteMetrics;
+import si.src.bcc.actors.monitoring.RequestStatistics;
+import si.src.bcc.actors.monitoring.VirtualThreadPinningMonitor;
+import si.src.bcc.actors.properties.CacheProperties;
+import si.src.bcc.actors.properties.ConcurrencyLimitProperties;
+import si.src.bcc.actors.properties.HttpMetricsProperties;
+import si.src.bcc.actors.properties.RateLimitProperties;
+import si.src.bcc.actors.properties.ReadReplicaProperties;
+import si.src.bcc.actors.properties.SeedProperties;
+import si.src.bcc.actors.properties.VirtualThreadProperties;
 import si.src.bcc.actors.repository.ActorRepository;
+import si.src.bcc.actors.search.ActorSearchIndex;
+import si.src.bcc.actors.security.JwtAuthenticationFilter;
+import si.src.bcc.actors.seed.DatasetGenerator;
+import si.src.bcc.actors.seed.DatasetSeeder;
 import si.src.bcc.actors.service.ActorService;
 import si.src.bcc.actors.util.TestJwtUtil;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.time.LocalDate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
 		"spring.main.allow-bean-definition-overriding=true"
@@ -43,6 +124,54 @@ class ActorsServiceApplicationTests {
 	@Autowired
 	private TestJwtUtil jwtUtil;
 
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private ResponseCache responseCache;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private CacheWarmer cacheWarmer;
+
+	@Autowired
+	private CacheInvalidationBus invalidationBus;
+
+	@Autowired
+	private CacheInvalidationBroadcaster invalidationBroadcaster;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ActorSearchIndex searchIndex;
+
+	@Autowired
+	private ReplicaRoutingDataSource replicaDataSource;
+
+	@Autowired
+	private HikariDataSource primaryDataSource;
+
+	@Autowired
+	private ReadReplicaProperties replicaProperties;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ConfigurableApplicationContext applicationContext;
+
+	@Autowired
+	private JwtConfig jwtConfig;
+
+	@Autowired
+	private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+	@Autowired
+	private DataSource dataSource;
+
 	private HttpHeaders headers;
 
 	@BeforeEach
@@ -391,4 +520,1092 @@ class ActorsServiceApplicationTests {
 		List<Map<String, Object>> content = (List<Map<String, Object>>) response.getBody().get("content");
 		assertThat(content).isNull();
 	}
+
+	@Test
+	void testUpdateActorKeepsUnrelatedCacheEntries() {
+		ActorRequest request1 = new ActorRequest();
+		request1.setFirstName("Cached");
+		request1.setLastName("Actor");
+		request1.setBornDate(LocalDate.of(1970, 1, 1));
+		ActorResponse cachedActor = restTemplate.postForEntity("http://localhost:" + port + "/api/actors",
+				new HttpEntity<>(request1, headers), ActorResponse.class).getBody();
+
+		ActorRequest request2 = new ActorRequest();
+		request2.setFirstName("Edited");
+		request2.setLastName("Actor");
+		request2.setBornDate(LocalDate.of(1975, 1, 1));
+		ActorResponse editedActor = restTemplate.postForEntity("http://localhost:" + port + "/api/actors",
+				new HttpEntity<>(request2, headers), ActorResponse.class).getBody();
+
+		// Warm the single-actor cache for the first actor
+		restTemplate.exchange("http://localhost:" + port + "/api/actors/" + cachedActor.getId(),
+				HttpMethod.GET, new HttpEntity<>(headers), ActorResponse.class);
+
+		request2.setFirstName("Reedited");
+		ResponseEntity<ActorResponse> updateResponse = restTemplate.exchange(
+				"http://localhost:" + port + "/api/actors/" + editedActor.getId(),
+				HttpMethod.PUT,
+				new HttpEntity<>(request2, headers),
+				ActorResponse.class
+		);
+		assertThat(updateResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		// Unrelated entry survives, the written actor is put back into the cache
+		Cache actorCache = cacheManager.getCache("actor");
+		assertThat(actorCache.get(cachedActor.getId())).isNotNull();
+		Actor cachedEdit = actorCache.get(editedActor.getId(), Actor.class);
+		assertThat(cachedEdit).isNotNull();
+		assertThat(cachedEdit.getFirstName()).isEqualTo("Reedited");
+
+		// Clean up
+		actorService.deleteActor(cachedActor.getId());
+		actorService.deleteActor(editedActor.getId());
+	}
+
+	@Test
+	void testCacheMetricsExposed() {
+		for (String metric : List.of("cache.gets?tag=cache:actor", "cache.evictions?tag=cache:actors",
+				"cache_hit_ratio?tag=cache:actors")) {
+			ResponseEntity<String> response = restTemplate.getForEntity(
+					"http://localhost:" + port + "/actuator/metrics/" + metric, String.class);
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		}
+	}
+
+	@Test
+	void testCacheSpecRejectsSizeAndWeightTogether() {
+		CacheProperties.CacheSpec spec = new CacheProperties.CacheSpec();
+		spec.setMaximumSize(100L);
+		spec.setMaximumWeight(DataSize.ofMegabytes(1));
+		CacheProperties properties = new CacheProperties();
+		properties.getCaffeine().getCaches().put("both", spec);
+		assertThatThrownBy(properties::validate).isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("spring.cache.caffeine.caches.both").hasMessageContaining("maximum-size or maximum-weight");
+	}
+
+	@Test
+	void testResponseCacheServesAndInvalidates() {
+		ActorRequest request = new ActorRequest();
+		request.setFirstName("Response");
+		request.setLastName("Cached");
+		request.setBornDate(LocalDate.of(1960, 1, 1));
+		ActorResponse created = restTemplate.postForEntity("http://localhost:" + port + "/api/actors",
+				new HttpEntity<>(request, headers), ActorResponse.class).getBody();
+
+		String path = "/api/actors/" + created.getId();
+		String url = "http://localhost:" + port + path;
+		ResponseEntity<String> first = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(responseCache.get(path)).isNotNull();
+		ResponseEntity<String> second = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(second.getBody()).isEqualTo(first.getBody());
+		assertThat(second.getHeaders().getContentType()).isEqualTo(first.getHeaders().getContentType());
+		assertThat(second.getHeaders().getCacheControl()).isEqualTo(first.getHeaders().getCacheControl());
+
+		// A write evicts the cached body
+		request.setLastName("Recached");
+		restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(request, headers), ActorResponse.class);
+		assertThat(responseCache.get(path)).isNull();
+		ResponseEntity<ActorResponse> updated = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), ActorResponse.class);
+		assertThat(updated.getBody().getLastName()).isEqualTo("Recached");
+
+		// Clean up
+		actorService.deleteActor(created.getId());
+	}
+
+
+	@Test
+	void testConditionalGetReturnsNotModified() {
+		ActorRequest request = new ActorRequest();
+		request.setFirstName("Conditional");
+		request.setLastName("Actor");
+		request.setBornDate(LocalDate.of(1960, 1, 1));
+		ActorResponse created = restTemplate.postForEntity("http://localhost:" + port + "/api/actors",
+				new HttpEntity<>(request, headers), ActorResponse.class).getBody();
+
+		String allUrl = "http://localhost:" + port + "/api/actors/all";
+		String entityUrl = "http://localhost:" + port + "/api/actors/" + created.getId();
+		ResponseEntity<String> all = restTemplate.exchange(allUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		ResponseEntity<String> entity = restTemplate.exchange(entityUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		String allEtag = all.getHeaders().getETag();
+		String entityEtag = entity.getHeaders().getETag();
+		assertThat(allEtag).startsWith("W/");
+		assertThat(entityEtag).startsWith("W/");
+		assertThat(entity.getHeaders().getLastModified()).isPositive();
+
+		// Twice each, the second revalidation is answered from the response cache
+		for (int i = 0; i < 2; i++) {
+			HttpHeaders conditional = new HttpHeaders();
+			conditional.putAll(headers);
+			conditional.setIfNoneMatch(allEtag);
+			ResponseEntity<String> notModified = restTemplate.exchange(allUrl, HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+			assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+			assertThat(notModified.getBody()).isNull();
+
+			conditional.setIfNoneMatch(entityEtag);
+			notModified = restTemplate.exchange(entityUrl, HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+			assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		}
+
+		// A write changes both validators
+		request.setLastName("Actor v2");
+		restTemplate.exchange(entityUrl, HttpMethod.PUT, new HttpEntity<>(request, headers), ActorResponse.class);
+		HttpHeaders conditional = new HttpHeaders();
+		conditional.putAll(headers);
+		conditional.setIfNoneMatch(allEtag);
+		ResponseEntity<String> modified = restTemplate.exchange(allUrl, HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+		assertThat(modified.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(modified.getHeaders().getETag()).isNotEqualTo(allEtag);
+		conditional.setIfNoneMatch(entityEtag);
+		modified = restTemplate.exchange(entityUrl, HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+		assertThat(modified.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(modified.getBody()).contains("Actor v2");
+
+		// Clean up
+		actorService.deleteActor(created.getId());
+	}
+
+
+	@Test
+	void testCacheMissesAreCoalescedAndRefreshed() throws Exception {
+		Cache cache = cacheManager.getCache("actors");
+		double coalescedBefore = meterRegistry.counter("cache_coalesced_loads_total",
+				"cache", "actors", "service", "actors-service").count();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		Callable<String> loader = () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return "loaded";
+		};
+		AtomicReference<String> firstValue = new AtomicReference<>();
+		AtomicReference<String> secondValue = new AtomicReference<>();
+		Thread first = new Thread(() -> firstValue.set(cache.get("coalesce-test", loader)));
+		first.start();
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread second = new Thread(() -> secondValue.set(cache.get("coalesce-test", loader)));
+		second.start();
+		// Wait until the second miss is parked on the load in flight
+		for (int i = 0; i < 500 && second.getState() == Thread.State.RUNNABLE; i++) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+		first.join(5000);
+		second.join(5000);
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(firstValue.get()).isEqualTo("loaded");
+		assertThat(secondValue.get()).isEqualTo("loaded");
+		assertThat(meterRegistry.counter("cache_coalesced_loads_total",
+				"cache", "actors", "service", "actors-service").count()).isEqualTo(coalescedBefore + 1);
+		cache.evict("coalesce-test");
+
+		// A refresh reloads the entry through the cache loader
+		Actor actor = new Actor();
+		actor.setFirstName("Refresh");
+		actor.setLastName("Actor");
+		actor.setBornDate(LocalDate.of(1960, 1, 1));
+		Long id = actorService.createActor(actor).getId();
+		assertThat(actorService.getActorById(id).getLastName()).isEqualTo("Actor");
+		Actor changed = actorRepository.findById(id).orElseThrow();
+		changed.setLastName("Actor v2");
+		actorRepository.save(changed);
+		assertThat(actorService.getActorById(id).getLastName()).isEqualTo("Actor");
+		@SuppressWarnings("unchecked")
+		LoadingCache<Object, Object> actorCache = (LoadingCache<Object, Object>) ((CaffeineCache) cacheManager.getCache("actor")).getNativeCache();
+		actorCache.refresh(id);
+		// The reloaded value replaces the entry asynchronously
+		await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+				assertThat(actorService.getActorById(id).getLastName()).isEqualTo("Actor v2"));
+
+		// Clean up
+		actorService.deleteActor(id);
+	}
+
+
+	@Test
+	void testHotKeysSurviveRestart() throws Exception {
+		Actor actor = new Actor();
+		actor.setFirstName("Warm");
+		actor.setLastName("Actor");
+		actor.setBornDate(LocalDate.of(1960, 1, 1));
+		Long id = actorService.createActor(actor).getId();
+		actorService.getActorById(id);
+		actorService.getAllActors();
+
+		// Shutdown writes the hot keys, startup loads them into the emptied caches
+		cacheWarmer.writeSnapshot();
+		cacheManager.getCache("actor").clear();
+		cacheManager.getCache("actors").clear();
+		cacheWarmer.run(null);
+
+		assertThat(cacheManager.getCache("actor").get(id, Actor.class).getLastName()).isEqualTo("Actor");
+		assertThat(cacheManager.getCache("actors").get("all")).isNotNull();
+		assertThat(cacheWarmer.health().getStatus()).isEqualTo(Status.UP);
+		assertThat(meterRegistry.timer("cache_warmup_duration", "service", "actors-service").count()).isPositive();
+
+		// Clean up
+		actorService.deleteActor(id);
+	}
+
+
+	@Test
+	void testInvalidationsAreBatchedAndReplayedFromOtherReplicas() {
+		List<CacheInvalidation> published = new CopyOnWriteArrayList<>();
+		invalidationBus.subscribe(new CacheInvalidationBus.Subscriber() {
+			@Override
+			public void onInvalidations(String origin, List<CacheInvalidation> invalidations) {
+				published.addAll(invalidations);
+			}
+
+			@Override
+			public void onGap() {
+			}
+		});
+		invalidationBroadcaster.flush();
+		published.clear();
+
+		// Create plus two updates of one actor leave a single invalidation
+		Actor actor = new Actor();
+		actor.setFirstName("Broadcast");
+		actor.setLastName("Actor");
+		actor.setBornDate(LocalDate.of(1960, 1, 1));
+		actor = actorService.createActor(actor);
+		Long id = actor.getId();
+		actor.setLastName("Actor v2");
+		actorService.updateActor(id, actor);
+		actor.setLastName("Actor v3");
+		actorService.updateActor(id, actor);
+		invalidationBroadcaster.flush();
+		assertThat(published).containsExactly(new CacheInvalidation(ActorChangedEvent.ChangeType.CREATED, String.valueOf(id)));
+
+		// An update made by another replica evicts the local entry
+		Map<Object, Object> actorEntries = ((CaffeineCache) cacheManager.getCache("actor")).getNativeCache().asMap();
+		assertThat(actorEntries).containsKey(id);
+		invalidationBus.publish("other-replica", List.of(new CacheInvalidation(ActorChangedEvent.ChangeType.UPDATED, String.valueOf(id))));
+		assertThat(actorEntries).doesNotContainKey(id);
+
+		// Clean up
+		actorService.deleteActor(id);
+	}
+
+
+	@Test
+	void testKeysetPaginationWalksAllActors() {
+		List<Long> created = new ArrayList<>();
+		for (String lastName : List.of("One", "Two", "Three")) {
+			Actor actor = new Actor();
+			actor.setFirstName("Cursor");
+			actor.setLastName(lastName);
+			actor.setBornDate(LocalDate.of(1960, 1, 1));
+			created.add(actorService.createActor(actor).getId());
+		}
+
+		List<Long> walked = new ArrayList<>();
+		String cursor = null;
+		do {
+			String url = "http://localhost:" + port + "/api/actors/cursor?size=2" + (cursor != null ? "&cursor=" + cursor : "");
+			ResponseEntity<CursorPageResponse<ActorResponse>> response = restTemplate.exchange(url, HttpMethod.GET,
+					new HttpEntity<>(headers), new ParameterizedTypeReference<CursorPageResponse<ActorResponse>>() {});
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(response.getBody().getContent()).hasSizeLessThanOrEqualTo(2);
+			response.getBody().getContent().forEach(actor -> walked.add(actor.getId()));
+			cursor = response.getBody().getNextCursor();
+		} while (cursor != null);
+		assertThat(walked).isSorted().doesNotHaveDuplicates().containsAll(created);
+		assertThat(walked).hasSize((int) actorRepository.count());
+
+		ResponseEntity<String> invalid = restTemplate.exchange("http://localhost:" + port + "/api/actors/cursor?cursor=not-a-cursor",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+		// Clean up
+		created.forEach(actorService::deleteActor);
+	}
+
+
+	@Test
+	void testReadPathsRunFixedNumberOfStatements() {
+		List<Long> created = new ArrayList<>();
+		for (String lastName : List.of("One", "Two", "Three")) {
+			Actor actor = new Actor();
+			actor.setFirstName("Batch");
+			actor.setLastName(lastName);
+			actor.setBornDate(LocalDate.of(1960, 1, 1));
+			actor.setMovies(new HashSet<>(Set.of("tt0000001", "tt0000002")));
+			created.add(actorService.createActor(actor).getId());
+		}
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		// The actors plus one batch for their movies, independent of the number of actors, read as rows not entities
+		statistics.clear();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/all",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(statistics.getEntityLoadCount() + statistics.getCollectionLoadCount()).isZero();
+
+		// Plus the count query of a partial page
+		statistics.clear();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/paged?page=0&size=2",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(statistics.getEntityLoadCount() + statistics.getCollectionLoadCount()).isZero();
+
+		statistics.clear();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/search?searchTerm=Batch",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(statistics.getEntityLoadCount() + statistics.getCollectionLoadCount()).isZero();
+
+		// A single actor is read with the movies joined
+		statistics.clear();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/" + created.get(0),
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount() + statistics.getCollectionLoadCount()).isZero();
+
+		// Clean up
+		created.forEach(actorService::deleteActor);
+	}
+
+	@Test
+	void testSearchIndexRanksAndFollowsChanges() {
+		List<Long> created = new ArrayList<>();
+		for (String[] name : List.of(new String[]{"Zelda", "Quinlan"}, new String[]{"Quinlan", "Quinlan"}, new String[]{"Zelda", "Moreau"})) {
+			Actor actor = new Actor();
+			actor.setFirstName(name[0]);
+			actor.setLastName(name[1]);
+			actor.setBornDate(LocalDate.of(1960, 1, 1));
+			created.add(actorService.createActor(actor).getId());
+		}
+		searchIndex.rebuild();
+
+		// Every word must match, the last one also as a prefix, more occurrences rank higher
+		assertThat(searchIndex.search("zelda quin", PageRequest.of(0, 10)).getContent()).containsExactly(created.get(0));
+		assertThat(searchIndex.search("quinlan", PageRequest.of(0, 10)).getContent()).containsExactly(created.get(1), created.get(0));
+		assertThat(searchIndex.search("zelda", PageRequest.of(1, 1)).getTotalElements()).isEqualTo(2);
+
+		// Kept current by the change events
+		Actor renamed = actorService.getActorById(created.get(2));
+		renamed.setFirstName("Ysolde");
+		actorService.updateActor(created.get(2), renamed);
+		assertThat(searchIndex.search("zelda", PageRequest.of(0, 10)).getContent()).containsExactly(created.get(0));
+		assertThat(searchIndex.search("ysol", PageRequest.of(0, 10)).getContent()).containsExactly(created.get(2));
+		actorService.deleteActor(created.get(1));
+		assertThat(searchIndex.search("quinlan", PageRequest.of(0, 10)).getContent()).containsExactly(created.get(0));
+
+		// Clean up
+		List.of(created.get(0), created.get(2)).forEach(actorService::deleteActor);
+	}
+
+	@Test
+	void testStreamAllActorsAndPageSizeCap() {
+		List<Long> created = new ArrayList<>();
+		for (String lastName : List.of("One", "Two", "Three")) {
+			Actor actor = new Actor();
+			actor.setFirstName("Stream");
+			actor.setLastName(lastName);
+			actor.setBornDate(LocalDate.of(1960, 1, 1));
+			actor.setMovies(new HashSet<>(Set.of("tt0000001")));
+			created.add(actorService.createActor(actor).getId());
+		}
+		long count = actorRepository.count();
+
+		ResponseEntity<List<ActorResponse>> array = restTemplate.exchange("http://localhost:" + port + "/api/actors/all/stream",
+				HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<List<ActorResponse>>() {});
+		assertThat(array.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(array.getBody()).hasSize((int) count);
+		assertThat(array.getBody()).filteredOn(actor -> actor.getId().equals(created.get(1)))
+				.singleElement().satisfies(actor -> assertThat(actor.getMovies()).containsExactly("tt0000001"));
+
+		HttpHeaders ndjsonHeaders = new HttpHeaders();
+		ndjsonHeaders.addAll(headers);
+		ndjsonHeaders.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+		ResponseEntity<String> ndjson = restTemplate.exchange("http://localhost:" + port + "/api/actors/all/stream",
+				HttpMethod.GET, new HttpEntity<>(ndjsonHeaders), String.class);
+		assertThat(ndjson.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+		assertThat(ndjson.getBody().lines()).hasSize((int) count).allMatch(line -> line.startsWith("{\"id\""));
+
+		// Oversized pages are capped instead of loading the whole table
+		ResponseEntity<String> paged = restTemplate.exchange("http://localhost:" + port + "/api/actors/paged?size=10000000",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(paged.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(paged.getBody()).contains("\"size\":1000");
+
+		// Clean up
+		created.forEach(actorService::deleteActor);
+	}
+
+
+	@Test
+	void testBatchCreateUpdateAndDeleteActors() {
+		Actor existingActor = new Actor();
+		existingActor.setFirstName("Existing");
+		existingActor.setLastName("Bulkactor");
+		actorService.createActor(existingActor);
+		List<ActorRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			ActorRequest request = new ActorRequest();
+			request.setFirstName("Bulk" + i);
+			request.setLastName("Bulkactor");
+			request.setMovies(Set.of("tt" + (9500000 + i)));
+			requests.add(request);
+		}
+		ActorRequest invalid = new ActorRequest();
+		invalid.setFirstName("X");
+		invalid.setLastName("Bulkactor");
+		requests.add(invalid);
+		requests.add(requests.get(0));
+		ActorRequest existing = new ActorRequest();
+		existing.setFirstName("Existing");
+		existing.setLastName("Bulkactor");
+		requests.add(existing);
+		ParameterizedTypeReference<BatchResponse<ActorResponse>> batchType = new ParameterizedTypeReference<>() {};
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		// Ids come from the pooled sequence and the inserts go out in JDBC batches, not one statement per row
+		statistics.clear();
+		ResponseEntity<BatchResponse<ActorResponse>> created = restTemplate.exchange("http://localhost:" + port + "/api/actors/batch",
+				HttpMethod.POST, new HttpEntity<>(requests, headers), batchType);
+		assertThat(created.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(12);
+		assertThat(created.getBody().getSucceeded()).isEqualTo(100);
+		assertThat(created.getBody().getFailed()).isEqualTo(3);
+		List<BatchItemResult<ActorResponse>> results = created.getBody().getResults();
+		assertThat(results.get(5).getStatus()).isEqualTo(201);
+		assertThat(results.get(5).getItem().getFirstName()).isEqualTo("Bulk5");
+		assertThat(results.get(5).getItem().getMovies()).containsExactly("tt9500005");
+		assertThat(results.get(6).getItem().getId()).isEqualTo(results.get(5).getItem().getId() + 1);
+		assertThat(results.get(100).getStatus()).isEqualTo(400);
+		assertThat(results.get(100).getError()).contains("firstName");
+		assertThat(results.get(101).getStatus()).isEqualTo(409);
+		assertThat(results.get(102).getStatus()).isEqualTo(409);
+		assertThat(actorService.existsByName("Bulk42", "Bulkactor")).isTrue();
+
+		List<ActorUpdateRequest> updates = new ArrayList<>();
+		for (BatchItemResult<ActorResponse> result : results.subList(0, 100)) {
+			ActorUpdateRequest update = new ActorUpdateRequest();
+			update.setId(result.getItem().getId());
+			update.setFirstName(result.getItem().getFirstName() + "Updated");
+			update.setLastName("Bulkactor");
+			updates.add(update);
+		}
+		ActorUpdateRequest missing = new ActorUpdateRequest();
+		missing.setId(Long.MAX_VALUE);
+		missing.setFirstName("Missing");
+		missing.setLastName("Bulkactor");
+		updates.add(missing);
+		Long id = updates.get(42).getId();
+		ResponseEntity<BatchResponse<ActorResponse>> updated = restTemplate.exchange("http://localhost:" + port + "/api/actors/batch",
+				HttpMethod.PUT, new HttpEntity<>(updates, headers), batchType);
+		assertThat(updated.getBody().getSucceeded()).isEqualTo(100);
+		assertThat(updated.getBody().getResults().get(100).getStatus()).isEqualTo(404);
+		assertThat(actorService.existsByName("Bulk42Updated", "Bulkactor")).isTrue();
+		// The batch event refreshed the cached actor
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/" + id,
+				HttpMethod.GET, new HttpEntity<>(headers), ActorResponse.class).getBody().getFirstName()).isEqualTo("Bulk42Updated");
+
+		List<Long> ids = new ArrayList<>(updates.stream().map(ActorUpdateRequest::getId).toList());
+		ids.add(existingActor.getId());
+		ResponseEntity<BatchResponse<ActorResponse>> deleted = restTemplate.exchange("http://localhost:" + port + "/api/actors/batch",
+				HttpMethod.DELETE, new HttpEntity<>(ids, headers), batchType);
+		assertThat(deleted.getBody().getSucceeded()).isEqualTo(101);
+		assertThat(deleted.getBody().getResults().get(0).getStatus()).isEqualTo(204);
+		assertThat(deleted.getBody().getResults().get(100).getStatus()).isEqualTo(404);
+		assertThat(actorService.findExistingNames(List.of("Bulkactor"))).isEmpty();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/" + id,
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+	}
+
+
+	@Test
+	void testReadOnlyTransactionsUseHealthyReplicas() throws SQLException {
+		replicaDataSource.checkReplicas();
+		Actor actor = new Actor();
+		actor.setFirstName("Replica");
+		actor.setLastName("Reader");
+		Long id = actorService.createActor(actor).getId();
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+		Counter replicaReads = meterRegistry.counter("datasource_read_routed_total", "target", "replica-0", "service", "actors-service");
+		Counter primaryReads = meterRegistry.counter("datasource_read_routed_total", "target", "primary", "service", "actors-service");
+
+		double replicaBefore = replicaReads.count();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/" + id,
+				HttpMethod.GET, new HttpEntity<>(headers), ActorResponse.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(replicaReads.count()).isGreaterThan(replicaBefore);
+
+		// Sending back the timestamp of a write reads it from the primary
+		ActorRequest request = new ActorRequest();
+		request.setFirstName("Replica");
+		request.setLastName("Writer");
+		ResponseEntity<ActorResponse> created = restTemplate.exchange("http://localhost:" + port + "/api/actors",
+				HttpMethod.POST, new HttpEntity<>(request, headers), ActorResponse.class);
+		String writeTimestamp = created.getHeaders().getFirst(ReadConsistencyFilter.WRITE_TIMESTAMP_HEADER);
+		assertThat(writeTimestamp).isNotNull();
+		Long createdId = created.getBody().getId();
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+		HttpHeaders readAfterHeaders = new HttpHeaders();
+		readAfterHeaders.addAll(headers);
+		readAfterHeaders.set(ReadConsistencyFilter.READ_AFTER_HEADER, writeTimestamp);
+		replicaBefore = replicaReads.count();
+		double primaryBefore = primaryReads.count();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/" + createdId,
+				HttpMethod.GET, new HttpEntity<>(readAfterHeaders), ActorResponse.class).getBody().getLastName()).isEqualTo("Writer");
+		assertThat(primaryReads.count()).isGreaterThan(primaryBefore);
+		assertThat(replicaReads.count()).isEqualTo(replicaBefore);
+
+		// A stale actor a lagging replica put back into the cache after the change is evicted once more
+		cacheManager.getCache("actor").put(createdId, actor);
+		Map<Object, Object> actorEntries = ((CaffeineCache) cacheManager.getCache("actor")).getNativeCache().asMap();
+		await().atMost(Duration.ofSeconds(5)).until(() -> !actorEntries.containsKey(createdId));
+
+		// A replica failing its check is skipped, reads fall back to the primary
+		HikariDataSource brokenReplica = new HikariDataSource();
+		brokenReplica.setPoolName("broken-replica");
+		brokenReplica.setJdbcUrl("jdbc:h2:tcp://localhost:1/missing");
+		SimpleMeterRegistry routedReads = new SimpleMeterRegistry();
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, List.of(brokenReplica),
+				replicaProperties, routedReads);
+		try {
+			routing.checkReplicas();
+			try (Connection connection = routing.getConnection()) {
+				assertThat(connection.isValid(1)).isTrue();
+			}
+			assertThat(routedReads.counter("datasource_read_routed_total", "target", "primary", "service", "actors-service").count()).isEqualTo(1);
+			assertThat(routedReads.get("datasource_replica_healthy").gauge().value()).isZero();
+		} finally {
+			routing.destroy();
+		}
+
+		// Clean up
+		List.of(id, createdId).forEach(actorService::deleteActor);
+	}
+
+
+	@Test
+	void testSeedsDeterministicDataset() {
+		SeedProperties seed = new SeedProperties();
+		seed.setMovies(40);
+		seed.setActors(15);
+		seed.setLinks(130);
+		seed.setBatchSize(16);
+		DatasetSeeder seeder = new DatasetSeeder(primaryDataSource, seed, applicationContext);
+		seeder.seed();
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM actors.actors", Long.class)).isEqualTo(15);
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM actors.actor_movies", Long.class)).isEqualTo(130);
+		DatasetGenerator generator = new DatasetGenerator(seed);
+		DatasetGenerator.GeneratedActor expected = generator.actor(2);
+		assertThat(new DatasetGenerator(seed).actor(2)).isEqualTo(expected);
+		Actor actor = actorService.getActorById(3L);
+		assertThat(actor.getFirstName()).isEqualTo(expected.firstName());
+		assertThat(actor.getLastName()).isEqualTo(expected.lastName());
+		assertThat(actor.getBornDate()).isEqualTo(expected.bornDate());
+		// The same links the movies service seeds, seen from the actor
+		Set<String> movies = new HashSet<>();
+		for (long i = 0; i < 40; i++) {
+			for (long actorId : generator.actorIds(i)) {
+				if (actorId == 3) {
+					movies.add(DatasetGenerator.imdbId(i));
+				}
+			}
+		}
+		assertThat(actor.getMovies()).isEqualTo(movies);
+		// New actors get ids after the seeded ones
+		assertThat(jdbcTemplate.queryForObject("SELECT nextval('actors.actor_id_seq')", Long.class)).isGreaterThan(15);
+
+		// Seeding again replaces the rows instead of failing on them
+		seed.setSeed(7);
+		seeder.seed();
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM actors.actors", Long.class)).isEqualTo(15);
+		assertThat(jdbcTemplate.queryForObject("SELECT last_name FROM actors.actors WHERE id = 3", String.class))
+				.isEqualTo(new DatasetGenerator(seed).actor(2).lastName());
+
+		// Clean up
+		List.of("actors.actor_movies", "actors.actors").forEach(table -> jdbcTemplate.update("DELETE FROM " + table));
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+	}
+
+
+
+	@Test
+	void testConnectionGuardBoundsDatabaseConnections() throws Exception {
+		SimpleMeterRegistry guardRegistry = new SimpleMeterRegistry();
+		ConnectionGuard guard = new ConnectionGuard(1, Duration.ofMillis(100), guardRegistry);
+		DataSource guarded = guard.guard(primaryDataSource);
+		Connection first = guarded.getConnection();
+		assertThat(guard.active()).isEqualTo(1);
+		assertThatThrownBy(guarded::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+		assertThat(guardRegistry.counter("datasource_guard_rejected_total", "service", "actors-service").count()).isEqualTo(1);
+		// Closing twice returns the permit once
+		first.close();
+		first.close();
+		assertThat(guard.active()).isZero();
+		try (Connection second = guarded.getConnection()) {
+			assertThat(second.isValid(1)).isTrue();
+		}
+
+		// With every connection of the primary and the replica taken, requests fail fast with 503
+		Actor actor = new Actor();
+		actor.setFirstName("Guarded");
+		actor.setLastName("Actor");
+		Long id = actorService.createActor(actor).getId();
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+		int permits = primaryDataSource.getMaximumPoolSize() + replicaProperties.getReplicas().get(0).getMaximumPoolSize();
+		List<Connection> held = new ArrayList<>();
+		try {
+			for (int i = 0; i < permits; i++) {
+				Connection connection = dataSource.getConnection();
+				connection.setReadOnly(i % 2 == 0);
+				// The lazy proxy takes the connection at the first statement
+				connection.createStatement().close();
+				held.add(connection);
+			}
+			ResponseEntity<Map<String, Object>> rejected = restTemplate.exchange("http://localhost:" + port + "/api/actors/" + id,
+					HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<>() {});
+			assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+			assertThat(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		} finally {
+			for (Connection connection : held) {
+				connection.close();
+			}
+		}
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/" + id,
+				HttpMethod.GET, new HttpEntity<>(headers), ActorResponse.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		// Clean up
+		actorService.deleteActor(id);
+	}
+
+
+	@Test
+	void testPinnedVirtualThreadsAreRecorded() throws Exception {
+		SimpleMeterRegistry pinnedRegistry = new SimpleMeterRegistry();
+		VirtualThreadProperties properties = new VirtualThreadProperties();
+		properties.setPinnedThreshold(Duration.ofMillis(10));
+		VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(properties, pinnedRegistry);
+		monitor.start();
+		try {
+			Object lock = new Object();
+			// Sleeping inside synchronized keeps the carrier thread
+			Thread pinned = Thread.ofVirtual().start(() -> {
+				synchronized (lock) {
+					try {
+						Thread.sleep(50);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			pinned.join();
+			await().atMost(Duration.ofSeconds(10)).until(() -> pinnedRegistry.find("virtual_thread_pinned").timer() != null);
+			assertThat(pinnedRegistry.find("virtual_thread_pinned").timer().getId().getTag("frame"))
+					.startsWith(ActorsServiceApplicationTests.class.getName());
+		} finally {
+			monitor.stop();
+		}
+	}
+
+
+	@Test
+	void testBatchLookupServesCacheAndKeepsRequestOrder() {
+		List<Long> ids = new ArrayList<>();
+		for (String lastName : List.of("Alpha", "Beta", "Gamma")) {
+			Actor actor = new Actor();
+			actor.setFirstName("Lookup");
+			actor.setLastName(lastName);
+			actor.setBornDate(LocalDate.of(1970, 1, 1));
+			actor.setMovies(new HashSet<>(Set.of("tt0000007")));
+			ids.add(actorService.createActor(actor).getId());
+		}
+		long missing = ids.get(2) + 100_000;
+		Cache actorCache = cacheManager.getCache("actor");
+		actorCache.clear();
+		restTemplate.exchange("http://localhost:" + port + "/api/actors/" + ids.get(0), HttpMethod.GET, new HttpEntity<>(headers), ActorResponse.class);
+		ParameterizedTypeReference<BatchResponse<ActorResponse>> batchType = new ParameterizedTypeReference<>() {};
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		String url = "http://localhost:" + port + "/api/actors/batch?ids=" + ids.get(2) + "," + missing + "," + ids.get(0) + "," + ids.get(1) + "," + ids.get(2);
+
+		// The first actor is cached, the other three are read with one query for the rows and one for their movies
+		statistics.clear();
+		BatchResponse<ActorResponse> batch = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), batchType).getBody();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(batch.getSucceeded()).isEqualTo(4);
+		assertThat(batch.getFailed()).isEqualTo(1);
+		assertThat(batch.getResults()).extracting(BatchItemResult::getStatus).containsExactly(200, 404, 200, 200, 200);
+		assertThat(batch.getResults()).extracting(result -> result.getItem() == null ? null : result.getItem().getId())
+				.containsExactly(ids.get(2), null, ids.get(0), ids.get(1), ids.get(2));
+		assertThat(batch.getResults().get(3).getItem().getMovies()).containsExactly("tt0000007");
+
+		// Back-filled, the missing actor as not found like a single lookup caches it
+		assertThat(actorCache.get(ids.get(1), Actor.class).getLastName()).isEqualTo("Beta");
+		statistics.clear();
+		batch = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), batchType).getBody();
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(batch.getSucceeded()).isEqualTo(4);
+
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/actors/batch?ids=",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+		// Clean up
+		ids.forEach(actorService::deleteActor);
+	}
+
+	@Test
+	void testConcurrencyLimitAdaptsAndShedsLowPriorityFirst() throws Exception {
+		// Steady latency with the limit in use grows it, latency well above the long-term average shrinks it to the minimum
+		GradientConcurrencyLimit gradient = new GradientConcurrencyLimit(20, 5, 100, 1.5, 0.5, Duration.ZERO, 10, 100);
+		for (int i = 0; i < 100; i++) {
+			gradient.onSample(TimeUnit.MILLISECONDS.toNanos(10), 100);
+		}
+		assertThat(gradient.getLimit()).isGreaterThan(40);
+		for (int i = 0; i < 200; i++) {
+			gradient.onSample(TimeUnit.MILLISECONDS.toNanos(200), 100);
+		}
+		assertThat(gradient.getLimit()).isEqualTo(5);
+		assertThat(meterRegistry.get("concurrency_limit").tag("service", "actors-service").gauge().value()).isEqualTo(100);
+
+		// A fixed limit of 4, writes and /all scans may take 2 of it
+		ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+		properties.setLowPriorityShare(0.5);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+				new GradientConcurrencyLimit(4, 4, 4, 1.5, 0.2, Duration.ofHours(1), 10, 100), properties, registry);
+		CountDownLatch release = new CountDownLatch(1);
+		FilterChain blocking = (request, response) -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		Function<MockHttpServletRequest, MockHttpServletResponse> send = request -> {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			try {
+				filter.doFilter(request, response, (req, res) -> {});
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			return response;
+		};
+		List<Thread> held = new ArrayList<>();
+		for (MockHttpServletRequest request : List.of(new MockHttpServletRequest("POST", "/api/actors"),
+				new MockHttpServletRequest("PUT", "/api/actors/1"),
+				new MockHttpServletRequest("GET", "/api/actors/2"),
+				new MockHttpServletRequest("GET", "/api/actors/3"))) {
+			held.add(Thread.ofVirtual().start(() -> {
+				try {
+					filter.doFilter(request, new MockHttpServletResponse(), blocking);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}));
+			if (held.size() == 2) {
+				await().atMost(Duration.ofSeconds(5)).until(() -> registry.get("concurrency_limit_in_flight").gauge().value() == 2);
+				// Over the low priority share, reads still get in
+				MockHttpServletResponse shed = send.apply(new MockHttpServletRequest("DELETE", "/api/actors/4"));
+				assertThat(shed.getStatus()).isEqualTo(503);
+				assertThat(shed.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+				assertThat(shed.getContentAsString()).contains("\"status\":503");
+				assertThat(send.apply(new MockHttpServletRequest("GET", "/api/actors/all")).getStatus()).isEqualTo(503);
+				assertThat(send.apply(new MockHttpServletRequest("GET", "/api/actors/5")).getStatus()).isEqualTo(200);
+			}
+		}
+		await().atMost(Duration.ofSeconds(5)).until(() -> registry.get("concurrency_limit_in_flight").gauge().value() == 4);
+		assertThat(send.apply(new MockHttpServletRequest("GET", "/api/actors/6")).getStatus()).isEqualTo(503);
+		assertThat(send.apply(new MockHttpServletRequest("GET", "/actuator/health")).getStatus()).isEqualTo(200);
+
+		release.countDown();
+		for (Thread thread : held) {
+			thread.join();
+		}
+		assertThat(registry.get("concurrency_limit_in_flight").gauge().value()).isZero();
+		assertThat(registry.get("concurrency_limit_rejected_total").tag("priority", "low").counter().count()).isEqualTo(2);
+		assertThat(registry.get("concurrency_limit_rejected_total").tag("priority", "high").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void testRateLimitsPerSubjectAndAddress() throws Exception {
+		ResponseEntity<String> live = restTemplate.exchange("http://localhost:" + port + "/api/actors/all", HttpMethod.GET,
+				new HttpEntity<>(headers), String.class);
+		assertThat(live.getHeaders().getFirst(RateLimitFilter.LIMIT_HEADER)).isEqualTo("1000");
+
+		RateLimitProperties.Group scans = new RateLimitProperties.Group();
+		scans.setName("scans");
+		scans.setPaths(List.of("/api/actors/all"));
+		scans.setLimit(2);
+		scans.setPeriod(Duration.ofMinutes(1));
+		RateLimitProperties.Group search = new RateLimitProperties.Group();
+		search.setName("search");
+		search.setPaths(List.of("/api/actors/search"));
+		search.setLimit(1);
+		search.setPeriod(Duration.ofMinutes(1));
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.setGroups(List.of(scans, search));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		RateLimitFilter filter = new RateLimitFilter(properties, registry);
+		// Subject null is an anonymous client at the given address
+		BiFunction<String, String, MockHttpServletResponse> send = (client, path) -> {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			if (client.startsWith("10.")) {
+				request.setRemoteAddr(client);
+				SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken("key", "anonymousUser",
+						AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+			} else {
+				SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(client, null, List.of()));
+			}
+			try {
+				filter.doFilter(request, response, (req, res) -> {});
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			} finally {
+				SecurityContextHolder.clearContext();
+			}
+			return response;
+		};
+
+		MockHttpServletResponse response = send.apply("alice", "/api/actors/all");
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(RateLimitFilter.LIMIT_HEADER)).isEqualTo("2");
+		assertThat(response.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("1");
+		assertThat(send.apply("alice", "/api/actors/all").getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("0");
+		response = send.apply("alice", "/api/actors/all");
+		assertThat(response.getStatus()).isEqualTo(429);
+		assertThat(Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(1L, 30L);
+		assertThat(Long.parseLong(response.getHeader(RateLimitFilter.RESET_HEADER))).isBetween(31L, 60L);
+		// Other clients and other groups have buckets of their own
+		assertThat(send.apply("bob", "/api/actors/all").getStatus()).isEqualTo(200);
+		assertThat(send.apply("alice", "/api/actors/search").getStatus()).isEqualTo(200);
+		assertThat(send.apply("10.0.0.1", "/api/actors/search").getStatus()).isEqualTo(200);
+		assertThat(send.apply("10.0.0.1", "/api/actors/search").getStatus()).isEqualTo(429);
+		assertThat(send.apply("10.0.0.2", "/api/actors/search").getStatus()).isEqualTo(200);
+		response = send.apply("alice", "/api/actors/1");
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(RateLimitFilter.LIMIT_HEADER)).isNull();
+		assertThat(registry.get("rate_limit_rejected_total").tag("group", "scans").counter().count()).isEqualTo(1);
+		assertThat(registry.get("rate_limit_rejected_total").tag("group", "search").counter().count()).isEqualTo(1);
+		assertThat(registry.get("rate_limit_buckets").gauge().value()).isEqualTo(5);
+
+		// Concurrent requests of one client never get more than the limit
+		scans.setLimit(100);
+		properties.setIdleTimeout(Duration.ofMillis(200));
+		SimpleMeterRegistry idleRegistry = new SimpleMeterRegistry();
+		RateLimitFilter concurrent = new RateLimitFilter(properties, idleRegistry);
+		AtomicInteger allowed = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int r = 0; r < 50; r++) {
+					MockHttpServletResponse concurrentResponse = new MockHttpServletResponse();
+					try {
+						concurrent.doFilter(new MockHttpServletRequest("GET", "/api/actors/all"), concurrentResponse, (req, res) -> {});
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+					if (concurrentResponse.getStatus() == 200) {
+						allowed.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(allowed.get()).isBetween(100, 101);
+		// Idle buckets are evicted without further requests
+		await().atMost(Duration.ofSeconds(5)).until(() -> idleRegistry.get("rate_limit_buckets").gauge().value() == 0);
+	}
+
+	@Test
+	void testVerifiedTokensAreCachedUntilTheyExpire() throws Exception {
+		Timer verifications = meterRegistry.get("jwt_verification").timer();
+		Function<String, HttpStatusCode> get = token -> {
+			HttpHeaders tokenHeaders = new HttpHeaders();
+			tokenHeaders.setBearerAuth(token);
+			return restTemplate.exchange("http://localhost:" + port + "/api/actors/999999999", HttpMethod.GET,
+					new HttpEntity<>(tokenHeaders), String.class).getStatusCode();
+		};
+
+		// Verified once, then authenticated from the cache; a 404 is an authenticated request
+		String token = jwtUtil.generateToken("cached-user");
+		long verified = verifications.count();
+		double hits = meterRegistry.get("cache.gets").tag("cache", "verifiedTokens").tag("result", "hit").functionCounter().count();
+		for (int i = 0; i < 3; i++) {
+			assertThat(get.apply(token)).isEqualTo(HttpStatus.NOT_FOUND);
+		}
+		assertThat(verifications.count()).isEqualTo(verified + 1);
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "verifiedTokens").tag("result", "hit").functionCounter().count())
+				.isEqualTo(hits + 2);
+
+		// Only the verification is shared, every request gets an authentication of its own
+		List<Authentication> authentications = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/actors/999999999");
+			request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+			jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(),
+					(req, res) -> authentications.add(SecurityContextHolder.getContext().getAuthentication()));
+			SecurityContextHolder.clearContext();
+		}
+		assertThat(authentications.get(0)).isNotSameAs(authentications.get(1));
+		assertThat(authentications).extracting(Authentication::getName).containsOnly("cached-user");
+
+		// A token signed with another key is checked and rejected every time
+		String forged = Jwts.builder()
+				.setSubject("cached-user")
+				.setExpiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(Keys.secretKeyFor(SignatureAlgorithm.HS256))
+				.compact();
+		double rejected = meterRegistry.get("jwt_rejected_total").counter().count();
+		assertThat(get.apply(forged)).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(get.apply(forged)).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(verifications.count()).isEqualTo(verified + 3);
+		assertThat(meterRegistry.get("jwt_rejected_total").counter().count()).isEqualTo(rejected + 2);
+
+		// A remembered token is dropped when it expires
+		String shortLived = Jwts.builder()
+				.setSubject("short-lived-user")
+				.setExpiration(new Date(System.currentTimeMillis() + 2_000))
+				.signWith(jwtConfig.jwtKey())
+				.compact();
+		assertThat(get.apply(shortLived)).isEqualTo(HttpStatus.NOT_FOUND);
+		await().atMost(Duration.ofSeconds(5)).until(() -> get.apply(shortLived) == HttpStatus.FORBIDDEN);
+	}
+
+
+	@Test
+	void testHttpMetricsAreKeyedOnRouteTemplates() throws Exception {
+		Counter byId = meterRegistry.get("http_requests_total").tag("path", "/api/actors/{id}").tag("method", "GET").counter();
+		Counter unmatched = meterRegistry.get("http_requests_total").tag("path", "UNMATCHED").counter();
+		int paths = meterRegistry.find("http_requests_total").counters().size();
+		double byIdBefore = byId.count();
+		double unmatchedBefore = unmatched.count();
+
+		// Distinct ids share the meters of their route, unknown paths share one pair of meters
+		for (String path : List.of("/api/actors/9000001", "/api/actors/9000002", "/no/such/path/1", "/no/such/path/2")) {
+			restTemplate.exchange("http://localhost:" + port + path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		}
+		assertThat(byId.count()).isEqualTo(byIdBefore + 2);
+		assertThat(unmatched.count()).isEqualTo(unmatchedBefore + 2);
+		assertThat(meterRegistry.get("http_request_duration_seconds").tag("path", "/api/actors/{id}").tag("method", "GET").timer().count())
+				.isPositive();
+		assertThat(meterRegistry.find("http_requests_total").counters()).hasSize(paths);
+
+		// Routes over the cap share the path OTHER
+		SimpleMeterRegistry cappedRegistry = new SimpleMeterRegistry();
+		HttpMetricsProperties cappedProperties = new HttpMetricsProperties();
+		cappedProperties.setMaxRoutes(3);
+		HttpRouteMetrics capped = new HttpRouteMetrics(applicationContext, cappedRegistry, cappedProperties);
+		capped.afterSingletonsInstantiated();
+		Set<String> cappedPaths = new HashSet<>();
+		cappedRegistry.find("http_requests_total").counters().forEach(counter -> cappedPaths.add(counter.getId().getTag("path")));
+		assertThat(cappedPaths).contains("UNMATCHED", "OTHER").hasSizeLessThanOrEqualTo(5);
+		capped.meters("GET", PathContainer.parsePath("/api/actors/9000001")).requests().increment();
+		assertThat(cappedRegistry.find("http_requests_total").counters()).hasSize(cappedRegistry.find("http_requests_total").counters().size());
+
+		// An async response is recorded when it completes, with its final status
+		SimpleMeterRegistry asyncRegistry = new SimpleMeterRegistry();
+		HttpRouteMetrics asyncRoutes = new HttpRouteMetrics(applicationContext, asyncRegistry, new HttpMetricsProperties());
+		asyncRoutes.afterSingletonsInstantiated();
+		RequestStatistics asyncStatistics = new RequestStatistics();
+		MockHttpServletRequest streamRequest = new MockHttpServletRequest("GET", "/api/actors/all/stream");
+		streamRequest.setAsyncSupported(true);
+		MockHttpServletResponse streamResponse = new MockHttpServletResponse();
+		new HttpMetricsFilter(asyncRoutes, asyncStatistics).doFilter(streamRequest, streamResponse, (req, res) -> req.startAsync());
+		Timer streamed = asyncRegistry.get("http_request_duration_seconds").tag("path", "/api/actors/all/stream").tag("method", "GET").timer();
+		assertThat(streamed.count()).isZero();
+		assertThat(asyncStatistics.snapshot().getTotal()).isZero();
+		streamResponse.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		streamRequest.getAsyncContext().complete();
+		assertThat(streamed.count()).isEqualTo(1);
+		assertThat(asyncStatistics.snapshot().getEndpoints()).singleElement()
+				.satisfies(endpoint -> assertThat(endpoint.getStatus()).isEqualTo(503));
+	}
+
+
+	@Test
+	void testRequestStatisticsCountCachedResponsesByEndpointAndStatus() {
+		Actor actor = new Actor();
+		actor.setFirstName("Counted");
+		actor.setLastName("Actor");
+		actor.setBornDate(LocalDate.of(1960, 1, 1));
+		Long id = actorService.createActor(actor).getId();
+		Function<RequestStatsResponse, Long> byIdOk = stats -> stats.getEndpoints().stream()
+				.filter(endpoint -> endpoint.getPath().equals("/api/actors/{id}") && endpoint.getMethod().equals("GET") && endpoint.getStatus() == 200)
+				.mapToLong(EndpointRequestCount::getCount)
+				.sum();
+		String base = "http://localhost:" + port + "/api/actors";
+		RequestStatsResponse before = restTemplate.exchange(base + "/stats/requests/detail", HttpMethod.GET, new HttpEntity<>(headers), RequestStatsResponse.class).getBody();
+
+		// The second read is answered from the caches and counted all the same
+		for (int i = 0; i < 2; i++) {
+			assertThat(restTemplate.exchange(base + "/" + id, HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode())
+					.isEqualTo(HttpStatus.OK);
+		}
+		assertThat(restTemplate.exchange(base + "/" + (id + 1000000), HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode())
+				.isEqualTo(HttpStatus.NOT_FOUND);
+		// A request is counted once its filter returns, which can be just after the client has the response
+		await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+			RequestStatsResponse counted = restTemplate.exchange(base + "/stats/requests/detail", HttpMethod.GET, new HttpEntity<>(headers), RequestStatsResponse.class).getBody();
+			assertThat(byIdOk.apply(counted)).isEqualTo(byIdOk.apply(before) + 2);
+			assertThat(counted.getByStatus().getOrDefault(404, 0L)).isGreaterThan(before.getByStatus().getOrDefault(404, 0L));
+		});
+		RequestStatsResponse after = restTemplate.exchange(base + "/stats/requests/detail", HttpMethod.GET, new HttpEntity<>(headers), RequestStatsResponse.class).getBody();
+		// The earlier stats request is counted as well
+		assertThat(after.getTotal()).isGreaterThanOrEqualTo(before.getTotal() + 4);
+		assertThat(after.getTotal()).isEqualTo(after.getEndpoints().stream().mapToLong(EndpointRequestCount::getCount).sum());
+		assertThat(after.getByMethod().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(after.getTotal());
+
+		// The plain endpoint still answers with the total alone
+		Long total = restTemplate.exchange(base + "/stats/requests", HttpMethod.GET, new HttpEntity<>(headers), Long.class).getBody();
+		assertThat(total).isGreaterThanOrEqualTo(after.getTotal());
+	}
+
+
+	@Test
+	void testSearchCacheEvictsEveryPageOfAnAffectedTerm() {
+		List<Long> ids = new ArrayList<>();
+		for (String firstName : List.of("Ann", "Bob", "Cid", "Wombat")) {
+			Actor actor = new Actor();
+			actor.setFirstName(firstName);
+			actor.setLastName(firstName.equals("Wombat") ? "Other" : "Quokka");
+			actor.setBornDate(LocalDate.of(1970, 1, 1));
+			ids.add(actorService.createActor(actor).getId());
+		}
+		Cache searchCache = cacheManager.getCache("actorSearch");
+		Function<Actor, Actor> changed = actor -> {
+			Actor copy = new Actor();
+			copy.setFirstName(actor.getFirstName());
+			copy.setLastName(actor.getLastName());
+			copy.setBornDate(actor.getBornDate());
+			return copy;
+		};
+
+		// The first page holds no changed actor, yet the other pages shift, so every page of the term goes
+		assertThat(actorService.searchActors("Quokka", PageRequest.of(0, 1)).getTotalElements()).isEqualTo(3);
+		actorService.searchActors("Other", PageRequest.of(0, 1));
+		Long last = actorService.searchActors("Quokka", PageRequest.of(2, 1)).getContent().get(0).getId();
+		Actor unchangedName = changed.apply(actorService.getActorById(last));
+		unchangedName.setBornDate(LocalDate.of(1971, 1, 1));
+		actorService.updateActor(last, unchangedName);
+		assertThat(searchCache.get("Quokka-0-1")).isNull();
+		assertThat(searchCache.get("Other-0-1")).isNotNull();
+
+		// An actor leaving the results changes the total of every term it was in
+		actorService.searchActors("Quokka", PageRequest.of(0, 1));
+		Actor renamed = changed.apply(actorService.getActorById(last));
+		renamed.setLastName("Renamed");
+		actorService.updateActor(last, renamed);
+		assertThat(searchCache.get("Other-0-1")).isNull();
+		assertThat(actorService.searchActors("Quokka", PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+	}
 }
\ No newline at end of file
@@ -13,6 +13,9 @@ $do$;
 -- Connect to the database
 \c bcc_db;
 
+-- Trigram indexes for substring search, created in public so both schemas can use it
+CREATE EXTENSION IF NOT EXISTS pg_trgm SCHEMA public;
+
 -- Create users if they don't exist
 DO
 $do$
@@ -30,9 +33,9 @@ $do$;
 CREATE SCHEMA IF NOT EXISTS movies;
 CREATE SCHEMA IF NOT EXISTS actors;
 
--- Create sequences
+-- Create sequences, the increment matches allocationSize of Actor: one call reserves 50 ids
 CREATE SEQUENCE IF NOT EXISTS actors.actor_id_seq
-    INCREMENT 1
+    INCREMENT 50
     START 1
     MINVALUE 1
     NO MAXVALUE
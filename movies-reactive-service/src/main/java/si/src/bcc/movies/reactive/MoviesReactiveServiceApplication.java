@@ -0,0 +1,13 @@
+package si.src.bcc.movies.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class MoviesReactiveServiceApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(MoviesReactiveServiceApplication.class, args);
+	}
+
+}
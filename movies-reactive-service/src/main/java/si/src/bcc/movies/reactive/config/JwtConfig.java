@@ -0,0 +1,28 @@
+package si.src.bcc.movies.reactive.config;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import si.src.bcc.movies.reactive.properties.JwtProperties;
+import javax.crypto.SecretKey;
+
+@Configuration
+public class JwtConfig {
+
+    private final JwtProperties jwtProperties;
+
+    public JwtConfig(JwtProperties jwtProperties) {
+        this.jwtProperties = jwtProperties;
+    }
+
+    @Bean
+    public SecretKey jwtKey() {
+        String secret = jwtProperties.getSecret();
+        if (secret != null && !secret.isBlank()) {
+            return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        }
+        return Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    }
+}
@@ -0,0 +1,53 @@
+package si.src.bcc.movies.reactive.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+import org.springframework.data.relational.core.mapping.DefaultNamingStrategy;
+import org.springframework.data.relational.core.mapping.NamingStrategy;
+import java.time.Year;
+import java.util.List;
+
+@Configuration
+public class R2dbcConfig {
+
+    // Hibernate stores java.time.Year of movies-service as an integer column
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+        return R2dbcCustomConversions.of(DialectResolver.getDialect(connectionFactory),
+                List.of(new IntegerToYearConverter(), new YearToIntegerConverter()));
+    }
+
+    // Quoted names, "year" is a keyword of H2 and of the SQL standard
+    @Bean
+    public R2dbcMappingContext r2dbcMappingContext(ObjectProvider<NamingStrategy> namingStrategy,
+                                                   R2dbcCustomConversions r2dbcCustomConversions) {
+        R2dbcMappingContext mappingContext = new R2dbcMappingContext(namingStrategy.getIfAvailable(() -> DefaultNamingStrategy.INSTANCE));
+        mappingContext.setSimpleTypeHolder(r2dbcCustomConversions.getSimpleTypeHolder());
+        mappingContext.setForceQuote(true);
+        return mappingContext;
+    }
+
+    @ReadingConverter
+    static class IntegerToYearConverter implements Converter<Integer, Year> {
+        @Override
+        public Year convert(Integer source) {
+            return Year.of(source);
+        }
+    }
+
+    @WritingConverter
+    static class YearToIntegerConverter implements Converter<Year, Integer> {
+        @Override
+        public Integer convert(Year source) {
+            return source.getValue();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package si.src.bcc.movies.reactive.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+@Configuration
+public class WebConfig implements WebFluxConfigurer {
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        // Same cap as spring.data.web.pageable.max-page-size of movies-service
+        ReactivePageableHandlerMethodArgumentResolver pageableResolver = new ReactivePageableHandlerMethodArgumentResolver();
+        pageableResolver.setMaxPageSize(1000);
+        configurer.addCustomResolver(pageableResolver);
+    }
+}
@@ -0,0 +1,98 @@
+package si.src.bcc.movies.reactive.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.movies.reactive.dto.MovieResponse;
+import si.src.bcc.movies.reactive.exception.InvalidMovieDataException;
+import si.src.bcc.movies.reactive.exception.MovieNotFoundException;
+import si.src.bcc.movies.reactive.exception.NoMoviesFoundException;
+import si.src.bcc.movies.reactive.mapper.MovieMapper;
+import si.src.bcc.movies.reactive.service.MovieService;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The read endpoints of movies-service on WebFlux and R2DBC, same paths, parameters and response bodies.
+ * <p>
+ * Nothing is cached here and there are no writes, so the collections carry no ETag; a single movie keeps its
+ * ETag and Last-Modified from {@code updated_at}.
+ */
+@RestController
+@RequestMapping("/api/movies")
+public class MovieController {
+
+    private final MovieService movieService;
+    private final MovieMapper movieMapper;
+
+    @Autowired
+    public MovieController(MovieService movieService, MovieMapper movieMapper) {
+        this.movieService = movieService;
+        this.movieMapper = movieMapper;
+    }
+
+    // Written as a JSON array, or newline delimited JSON with Accept: application/x-ndjson, while it is read
+    @GetMapping(value = "/all", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<MovieResponse>>> getAllMoviesWithoutPagination() {
+        return movieService.hasMovies()
+                .flatMap(exists -> exists
+                        ? Mono.just(ResponseEntity.ok()
+                                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                                .body(movieService.streamAllMovies().map(movieMapper::toResponse)))
+                        : Mono.error(new NoMoviesFoundException()));
+    }
+
+    @GetMapping("/paged")
+    public Mono<ResponseEntity<Page<MovieResponse>>> getAllMovies(Pageable pageable) {
+        return movieService.getAllMovies(pageable)
+                .flatMap(movies -> movies.isEmpty()
+                        ? Mono.error(new NoMoviesFoundException())
+                        : Mono.just(ResponseEntity.ok()
+                                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                                .body(movies.map(movieMapper::toResponse))));
+    }
+
+    @GetMapping("/{imdbId}")
+    public Mono<ResponseEntity<MovieResponse>> getMovieById(@PathVariable String imdbId, ServerWebExchange exchange) {
+        return movieService.getMovieById(imdbId)
+                .switchIfEmpty(Mono.error(new MovieNotFoundException(imdbId)))
+                .map(movie -> {
+                    if (movie.getUpdatedAt() != null) {
+                        Instant lastModified = movie.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant();
+                        // The ETag of movies-service, a client can revalidate against either of them
+                        if (exchange.checkNotModified("W/\"" + lastModified.toEpochMilli() + "\"", lastModified)) {
+                            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+                        }
+                    }
+                    return ResponseEntity.ok()
+                            .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                            .body(movieMapper.toResponse(movie));
+                });
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<Page<MovieResponse>>> searchMovies(@RequestParam String searchTerm, Pageable pageable) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return Mono.error(new InvalidMovieDataException("searchTerm", "SearchTerm cannot be empty"));
+        }
+        return movieService.searchMovies(searchTerm, pageable)
+                .flatMap(movies -> movies.isEmpty()
+                        ? Mono.error(new NoMoviesFoundException())
+                        : Mono.just(ResponseEntity.ok()
+                                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                                .body(movies.map(movieMapper::toResponse))));
+    }
+}
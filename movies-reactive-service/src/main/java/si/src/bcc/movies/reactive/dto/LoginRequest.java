@@ -0,0 +1,9 @@
+package si.src.bcc.movies.reactive.dto;
+
+import lombok.Data;
+
+@Data
+public class LoginRequest {
+    private String username;
+    private String password;
+}
\ No newline at end of file
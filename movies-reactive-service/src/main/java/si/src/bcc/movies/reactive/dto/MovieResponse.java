@@ -0,0 +1,25 @@
+package si.src.bcc.movies.reactive.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.Set;
+
+@Data
+public class MovieResponse {
+    private String imdbId;
+    private String title;
+    private String description;
+    private Set<Long> actors;
+    private Set<String> pictures;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy")
+    private Year year;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime createdAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime updatedAt;
+}
\ No newline at end of file
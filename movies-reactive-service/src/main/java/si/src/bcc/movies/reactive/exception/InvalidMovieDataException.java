@@ -0,0 +1,11 @@
+package si.src.bcc.movies.reactive.exception;
+
+public class InvalidMovieDataException extends RuntimeException {
+    public InvalidMovieDataException(String message) {
+        super(message);
+    }
+
+    public InvalidMovieDataException(String field, String reason) {
+        super("Invalid movie data: " + field + " - " + reason);
+    }
+}
@@ -0,0 +1,7 @@
+package si.src.bcc.movies.reactive.exception;
+
+public class MovieNotFoundException extends RuntimeException {
+    public MovieNotFoundException(String imdbId) {
+        super("No movie found with imdbID: " + imdbId);
+    }
+}
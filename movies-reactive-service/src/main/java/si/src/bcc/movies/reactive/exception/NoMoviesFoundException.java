@@ -0,0 +1,7 @@
+package si.src.bcc.movies.reactive.exception;
+
+public class NoMoviesFoundException extends RuntimeException {
+    public NoMoviesFoundException() {
+        super("No movies found.");
+    }
+}
@@ -0,0 +1,22 @@
+package si.src.bcc.movies.reactive.mapper;
+
+import org.springframework.stereotype.Component;
+import si.src.bcc.movies.reactive.dto.MovieResponse;
+import si.src.bcc.movies.reactive.model.Movie;
+
+@Component
+public class MovieMapper {
+
+    public MovieResponse toResponse(Movie movie) {
+        MovieResponse response = new MovieResponse();
+        response.setImdbId(movie.getImdbId());
+        response.setTitle(movie.getTitle());
+        response.setYear(movie.getYear());
+        response.setDescription(movie.getDescription());
+        response.setActors(movie.getActors());
+        response.setPictures(movie.getPictures());
+        response.setCreatedAt(movie.getCreatedAt());
+        response.setUpdatedAt(movie.getUpdatedAt());
+        return response;
+    }
+}
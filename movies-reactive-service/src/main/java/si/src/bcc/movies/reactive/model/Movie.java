@@ -0,0 +1,32 @@
+package si.src.bcc.movies.reactive.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Row of movies.movies, the table movies-service creates and writes. The collections live in movie_actors and
+ * movie_pictures and are filled in by the service, R2DBC maps no relations.
+ */
+@Data
+@Table(name = "movies", schema = "movies")
+public class Movie {
+    @Id
+    private String imdbId;
+    private String title;
+    private Year year;
+    private String description;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @Transient
+    private Set<Long> actors = new HashSet<>();
+
+    @Transient
+    private Set<String> pictures = new HashSet<>();
+}
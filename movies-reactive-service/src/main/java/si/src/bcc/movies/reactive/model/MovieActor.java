@@ -0,0 +1,4 @@
+package si.src.bcc.movies.reactive.model;
+
+public record MovieActor(String imdbId, Long actorId) {
+}
@@ -0,0 +1,4 @@
+package si.src.bcc.movies.reactive.model;
+
+public record MoviePicture(String imdbId, String pictureUrl) {
+}
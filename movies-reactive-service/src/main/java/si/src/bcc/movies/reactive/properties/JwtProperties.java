@@ -0,0 +1,16 @@
+package si.src.bcc.movies.reactive.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "jwt")
+public class JwtProperties {
+    private String username;
+    private String password;
+    private Long expiration;
+    // Base64 HS256 key shared with movies-service, a random key when empty
+    private String secret;
+}
@@ -0,0 +1,31 @@
+package si.src.bcc.movies.reactive.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.movies.reactive.model.Movie;
+import si.src.bcc.movies.reactive.model.MovieActor;
+import si.src.bcc.movies.reactive.model.MoviePicture;
+import java.util.Collection;
+
+public interface MovieRepository extends ReactiveCrudRepository<Movie, String>, MovieSearchRepository {
+
+    Flux<Movie> findAllBy(Pageable pageable);
+
+    Flux<Movie> findAllByOrderByImdbId(Limit limit);
+
+    Flux<Movie> findByImdbIdGreaterThanOrderByImdbId(String imdbId, Limit limit);
+
+    @Query("SELECT EXISTS (SELECT 1 FROM movies.movies)")
+    Mono<Boolean> existsAny();
+
+    @Query("SELECT imdb_id, actor_id FROM movies.movie_actors WHERE imdb_id IN (:imdbIds)")
+    Flux<MovieActor> findActors(@Param("imdbIds") Collection<String> imdbIds);
+
+    @Query("SELECT imdb_id, picture_url FROM movies.movie_pictures WHERE imdb_id IN (:imdbIds)")
+    Flux<MoviePicture> findPictures(@Param("imdbIds") Collection<String> imdbIds);
+}
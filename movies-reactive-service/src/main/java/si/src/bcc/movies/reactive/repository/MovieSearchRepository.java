@@ -0,0 +1,14 @@
+package si.src.bcc.movies.reactive.repository;
+
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.movies.reactive.model.Movie;
+
+public interface MovieSearchRepository {
+
+    // Same matches as the LIKE search of movies-service: the term anywhere in the title or description, any case
+    Flux<Movie> search(String searchTerm, Pageable pageable);
+
+    Mono<Long> countSearch(String searchTerm);
+}
@@ -0,0 +1,36 @@
+package si.src.bcc.movies.reactive.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.movies.reactive.model.Movie;
+
+public class MovieSearchRepositoryImpl implements MovieSearchRepository {
+
+    private final R2dbcEntityTemplate template;
+
+    @Autowired
+    public MovieSearchRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<Movie> search(String searchTerm, Pageable pageable) {
+        return template.select(Movie.class).matching(Query.query(matches(searchTerm)).with(pageable)).all();
+    }
+
+    @Override
+    public Mono<Long> countSearch(String searchTerm) {
+        return template.count(Query.query(matches(searchTerm)), Movie.class);
+    }
+
+    private static Criteria matches(String searchTerm) {
+        String pattern = "%" + searchTerm + "%";
+        return Criteria.where("title").like(pattern).ignoreCase(true)
+                .or(Criteria.where("description").like(pattern).ignoreCase(true));
+    }
+}
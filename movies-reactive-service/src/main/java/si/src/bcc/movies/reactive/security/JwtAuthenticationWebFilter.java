@@ -0,0 +1,52 @@
+package si.src.bcc.movies.reactive.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+
+/**
+ * The JWT check of movies-service on the reactive filter chain: a valid Bearer token authenticates the request,
+ * anything else leaves it anonymous and the authorization rules decide.
+ * <p>
+ * Added to the security chain by {@link si.src.bcc.movies.reactive.config.SecurityConfig}, not as a bean, so
+ * WebFlux does not run it a second time outside of it.
+ */
+public class JwtAuthenticationWebFilter implements WebFilter {
+
+    private final JwtParser parser;
+
+    public JwtAuthenticationWebFilter(SecretKey jwtKey) {
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(jwtKey)
+                .build();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return chain.filter(exchange);
+        }
+        String username;
+        // Signature and expiry are checked, the subject is taken as is: no issuer, audience or roles
+        try {
+            Claims claims = parser.parseClaimsJws(authHeader.substring(7)).getBody();
+            username = claims.getSubject();
+        } catch (Exception e) {
+            return chain.filter(exchange);
+        }
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                username, null, new ArrayList<>());
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+}
@@ -0,0 +1,15 @@
+package si.src.bcc.movies.reactive.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.movies.reactive.model.Movie;
+
+public interface MovieService {
+    Mono<Boolean> hasMovies();
+    Flux<Movie> streamAllMovies();
+    Mono<Page<Movie>> getAllMovies(Pageable pageable);
+    Mono<Movie> getMovieById(String imdbId);
+    Mono<Page<Movie>> searchMovies(String searchTerm, Pageable pageable);
+}
@@ -0,0 +1,89 @@
+package si.src.bcc.movies.reactive.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import si.src.bcc.movies.reactive.model.Movie;
+import si.src.bcc.movies.reactive.repository.MovieRepository;
+import si.src.bcc.movies.reactive.service.MovieService;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads movies with their actors and pictures: one query for the movies, then one {@code IN} query per collection
+ * for all of them, the same statements as the projection reads of movies-service.
+ */
+@Slf4j
+@Service
+public class MovieServiceImpl implements MovieService {
+
+    // Movies per keyset query of streamAllMovies, no connection is held between two chunks
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    private final MovieRepository movieRepository;
+
+    @Autowired
+    public MovieServiceImpl(MovieRepository movieRepository) {
+        this.movieRepository = movieRepository;
+    }
+
+    @Override
+    public Mono<Boolean> hasMovies() {
+        return movieRepository.existsAny();
+    }
+
+    // The next chunk is only read once the client has taken the previous one, a slow client holds one chunk
+    @Override
+    public Flux<Movie> streamAllMovies() {
+        return movieRepository.findAllByOrderByImdbId(Limit.of(STREAM_CHUNK_SIZE)).collectList()
+                .expand(chunk -> chunk.size() < STREAM_CHUNK_SIZE ? Mono.empty()
+                        : movieRepository.findByImdbIdGreaterThanOrderByImdbId(chunk.get(chunk.size() - 1).getImdbId(),
+                                Limit.of(STREAM_CHUNK_SIZE)).collectList())
+                .concatMap(this::withCollections, 1);
+    }
+
+    @Override
+    public Mono<Page<Movie>> getAllMovies(Pageable pageable) {
+        log.debug("Fetching movies page {}", pageable);
+        return Mono.zip(movieRepository.findAllBy(pageable).collectList().flatMapMany(this::withCollections).collectList(),
+                        movieRepository.count())
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    @Override
+    public Mono<Movie> getMovieById(String imdbId) {
+        log.debug("Fetching movie with IMDB ID: {}", imdbId);
+        return movieRepository.findById(imdbId)
+                .flatMap(movie -> withCollections(List.of(movie)).next());
+    }
+
+    @Override
+    public Mono<Page<Movie>> searchMovies(String searchTerm, Pageable pageable) {
+        log.debug("Searching movies with term: {}", searchTerm);
+        return Mono.zip(movieRepository.search(searchTerm, pageable).collectList().flatMapMany(this::withCollections).collectList(),
+                        movieRepository.countSearch(searchTerm))
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    // Both collection queries run at once, each one fills its own set of every movie
+    private Flux<Movie> withCollections(List<Movie> movies) {
+        if (movies.isEmpty()) {
+            return Flux.empty();
+        }
+        Map<String, Movie> byImdbId = new LinkedHashMap<>();
+        movies.forEach(movie -> byImdbId.put(movie.getImdbId(), movie));
+        return Mono.when(
+                        movieRepository.findActors(byImdbId.keySet())
+                                .doOnNext(actor -> byImdbId.get(actor.imdbId()).getActors().add(actor.actorId())),
+                        movieRepository.findPictures(byImdbId.keySet())
+                                .doOnNext(picture -> byImdbId.get(picture.imdbId()).getPictures().add(picture.pictureUrl())))
+                .thenMany(Flux.fromIterable(movies));
+    }
+}
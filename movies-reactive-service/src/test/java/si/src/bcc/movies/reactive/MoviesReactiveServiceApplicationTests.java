@@ -0,0 +1,283 @@
+package si.src.bcc.movies.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+import si.src.bcc.movies.reactive.dto.MovieResponse;
+import si.src.bcc.movies.reactive.util.JwtTokenGenerator;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MoviesReactiveServiceApplicationTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Autowired
+	private ConnectionFactory connectionFactory;
+
+	@Autowired
+	private JwtTokenGenerator tokenGenerator;
+
+	private String token;
+
+	@BeforeEach
+	void setUp() {
+		databaseClient.sql("DELETE FROM movies.movie_pictures").then()
+				.then(databaseClient.sql("DELETE FROM movies.movie_actors").then())
+				.then(databaseClient.sql("DELETE FROM movies.movies").then())
+				.block();
+		token = tokenGenerator.generateToken("demo");
+	}
+
+	@Test
+	void contextLoads() {
+	}
+
+	@Test
+	void testGetMovieById() {
+		insertMovie("tt0111161", "The Shawshank Redemption", 1994, "Two imprisoned men bond over a number of years.");
+		databaseClient.sql("INSERT INTO movies.movie_actors (imdb_id, actor_id) VALUES ('tt0111161', 1), ('tt0111161', 2)").then().block();
+		databaseClient.sql("INSERT INTO movies.movie_pictures (imdb_id, picture_url) VALUES ('tt0111161', 'https://example.com/1.jpg')").then().block();
+
+		MovieResponse movie = webTestClient.get().uri("/api/movies/tt0111161")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueMatches(HttpHeaders.ETAG, "W/\"\\d+\"")
+				.expectBody(MovieResponse.class)
+				.returnResult().getResponseBody();
+		assertThat(movie.getTitle()).isEqualTo("The Shawshank Redemption");
+		assertThat(movie.getYear().getValue()).isEqualTo(1994);
+		assertThat(movie.getActors()).containsExactlyInAnyOrder(1L, 2L);
+		assertThat(movie.getPictures()).containsExactly("https://example.com/1.jpg");
+
+		String etag = webTestClient.get().uri("/api/movies/tt0111161")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectBody().returnResult().getResponseHeaders().getETag();
+		webTestClient.get().uri("/api/movies/tt0111161")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+				.exchange()
+				.expectStatus().isNotModified();
+
+		webTestClient.get().uri("/api/movies/tt9999999")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isNotFound()
+				.expectBody().jsonPath("$.status").isEqualTo(404);
+	}
+
+	@Test
+	void testPagedAndSearchKeepTheServletContract() {
+		for (int i = 0; i < 15; i++) {
+			insertMovie(String.format("tt%07d", i), i % 3 == 0 ? "Star Movie " + i : "Movie " + i, 2000 + i, "Description " + i);
+		}
+
+		webTestClient.get().uri("/api/movies/paged?page=1&size=10")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().cacheControl(org.springframework.http.CacheControl.maxAge(Duration.ofMinutes(30)))
+				.expectBody()
+				.jsonPath("$.content.length()").isEqualTo(5)
+				.jsonPath("$.totalElements").isEqualTo(15)
+				.jsonPath("$.totalPages").isEqualTo(2);
+
+		// Search is public, like on movies-service
+		webTestClient.get().uri("/api/movies/search?searchTerm=star&size=3")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content.length()").isEqualTo(3)
+				.jsonPath("$.totalElements").isEqualTo(5);
+
+		webTestClient.get().uri("/api/movies/search?searchTerm= ")
+				.exchange()
+				.expectStatus().isBadRequest();
+		webTestClient.get().uri("/api/movies/search?searchTerm=nothing")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.message").exists();
+	}
+
+	@Test
+	void testAllStreamsEveryMovieInChunks() {
+		webTestClient.get().uri("/api/movies/all")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.status").isEqualTo(200);
+
+		// More than two keyset chunks of 500
+		databaseClient.sql("INSERT INTO movies.movies (imdb_id, title, \"year\", description, created_at, updated_at) "
+						+ "SELECT 'tt' || LPAD(CAST(x AS VARCHAR), 7, '0'), 'Movie ' || x, 2000, 'Description', NOW(), NOW() "
+						+ "FROM SYSTEM_RANGE(1, 1234)")
+				.then().block();
+		databaseClient.sql("INSERT INTO movies.movie_actors (imdb_id, actor_id) VALUES ('tt0001000', 7)").then().block();
+
+		List<MovieResponse> array = webTestClient.get().uri("/api/movies/all")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(new ParameterizedTypeReference<List<MovieResponse>>() {})
+				.returnResult().getResponseBody();
+		assertThat(array).hasSize(1234);
+		assertThat(array.get(0).getImdbId()).isEqualTo("tt0000001");
+		assertThat(array.get(999).getActors()).containsExactly(7L);
+
+		// Newline delimited JSON, read while it is written
+		Flux<MovieResponse> stream = webTestClient.get().uri("/api/movies/all")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(MovieResponse.class).getResponseBody();
+		StepVerifier.create(stream.map(MovieResponse::getImdbId), 10)
+				.expectNext("tt0000001")
+				.expectNextCount(9)
+				.thenRequest(Long.MAX_VALUE)
+				.expectNextCount(1224)
+				.verifyComplete();
+	}
+
+	@Test
+	void testJwtIsRequiredOutsideThePublicEndpoints() {
+		insertMovie("tt0068646", "The Godfather", 1972, null);
+
+		webTestClient.get().uri("/api/movies/tt0068646")
+				.exchange()
+				.expectStatus().isForbidden();
+		webTestClient.get().uri("/api/movies/tt0068646")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer invalid")
+				.exchange()
+				.expectStatus().isForbidden();
+
+		String issued = webTestClient.post().uri("/api/auth/test-token?username=demo&password=password123")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class)
+				.returnResult().getResponseBody();
+		webTestClient.get().uri("/api/movies/tt0068646")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + issued)
+				.exchange()
+				.expectStatus().isOk();
+		webTestClient.post().uri("/api/auth/test-token?username=demo&password=wrong")
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.UNAUTHORIZED);
+
+		webTestClient.get().uri("/actuator/health")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(Map.class).value(health -> assertThat(health.get("status")).isEqualTo("UP"));
+	}
+
+	private void insertMovie(String imdbId, String title, int year, String description) {
+		LocalDateTime now = LocalDateTime.now();
+		DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO movies.movies "
+						+ "(imdb_id, title, \"year\", description, created_at, updated_at) VALUES (:imdbId, :title, :year, :description, :now, :now)")
+				.bind("imdbId", imdbId)
+				.bind("title", title)
+				.bind("year", year)
+				.bind("now", now);
+		insert = description == null ? insert.bindNull("description", String.class) : insert.bind("description", description);
+		insert.then().block();
+	}
+
+
+	// mvn test -Dreactive.benchmark=true, the same load as the threads benchmark of movies-service
+	@Test
+	@EnabledIfSystemProperty(named = "reactive.benchmark", matches = "true")
+	void benchmarkReactiveReads() throws Exception {
+		databaseClient.sql("INSERT INTO movies.movies (imdb_id, title, \"year\", description, created_at, updated_at) "
+						+ "SELECT 'tt' || LPAD(CAST(x AS VARCHAR), 8, '0'), 'Movie ' || x, 2000, 'Description ' || x, NOW(), NOW() "
+						+ "FROM SYSTEM_RANGE(1, 30000)")
+				.then().block();
+		databaseClient.sql("INSERT INTO movies.movie_actors (imdb_id, actor_id) "
+						+ "SELECT 'tt' || LPAD(CAST(MOD(x, 30000) + 1 AS VARCHAR), 8, '0'), x FROM SYSTEM_RANGE(1, 120000)")
+				.then().block();
+		// Warm-up on other movies
+		concurrentReads(20_000, 1_000, 10);
+		System.out.printf("reactive benchmark: %s%n", concurrentReads(0, 5_000, 4));
+		System.out.printf("reactive benchmark: %d cores, %d event loop threads, %d pooled connections%n",
+				Runtime.getRuntime().availableProcessors(), LoopResources.DEFAULT_IO_WORKER_COUNT,
+				((ConnectionPool) connectionFactory).getMetrics().orElseThrow().getMaxAllocatedSize());
+	}
+
+	// Every client keeps its own connection and reads its movies one after the other
+	private String concurrentReads(int firstMovie, int clients, int requestsPerClient) throws Exception {
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+		List<Long> latencies = new CopyOnWriteArrayList<>();
+		Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int c = 0; c < clients; c++) {
+			int clientNumber = c;
+			threads.add(Thread.ofVirtual().start(() -> {
+				try {
+					start.await();
+					for (int r = 0; r < requestsPerClient; r++) {
+						HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/movies/"
+										+ String.format("tt%08d", firstMovie + (long) r * clients + clientNumber + 1)))
+								.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+								.timeout(Duration.ofSeconds(60))
+								.build();
+						long requestStart = System.nanoTime();
+						HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						latencies.add(System.nanoTime() - requestStart);
+						if (response.statusCode() != 200) {
+							failures.computeIfAbsent(String.valueOf(response.statusCode()), status -> new AtomicInteger()).incrementAndGet();
+						}
+					}
+				} catch (Exception e) {
+					failures.computeIfAbsent(e.getClass().getSimpleName(), error -> new AtomicInteger()).incrementAndGet();
+				}
+			}));
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - begin;
+		List<Long> sorted = latencies.stream().sorted().toList();
+		return String.format("%d requests in %d ms, %.0f requests/s, p50 %d ms, p99 %d ms, failed: %s",
+				sorted.size(), elapsed / 1_000_000, sorted.size() * 1e9 / elapsed,
+				sorted.get(sorted.size() / 2) / 1_000_000, sorted.get(sorted.size() * 99 / 100) / 1_000_000, failures);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+CREATE SCHEMA IF NOT EXISTS movies;
+
+CREATE TABLE IF NOT EXISTS movies.movies (
+    imdb_id VARCHAR(255) NOT NULL PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    "year" INTEGER NOT NULL,
+    description VARCHAR(1000),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS movies.movie_actors (
+    imdb_id VARCHAR(255) NOT NULL REFERENCES movies.movies (imdb_id),
+    actor_id BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS movies.movie_pictures (
+    imdb_id VARCHAR(255) NOT NULL REFERENCES movies.movies (imdb_id),
+    picture_url VARCHAR(255)
+);
@@ -0,0 +1,77 @@
+package si.src.bcc.movies.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Page;
+import si.src.bcc.movies.model.Movie;
+import java.util.Collection;
+
+/**
+ * Estimates the retained heap size of a cached value in bytes, so caches holding whole
+ * lists and pages can be bounded by memory instead of by entry count.
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE = 8;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int SET_ENTRY_OVERHEAD = 40;
+    private static final int MOVIE_OVERHEAD = 96;
+    private static final int UNLOADED_COLLECTION = 64;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long weight = weighKey(key) + weighValue(value);
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long weighKey(Object key) {
+        return key instanceof String s ? weighString(s) : OBJECT_OVERHEAD;
+    }
+
+    private static long weighValue(Object value) {
+        if (value instanceof Movie movie) {
+            return weighMovie(movie);
+        }
+        if (value instanceof Page<?> page) {
+            return 64 + weighCollection(page.getContent());
+        }
+        if (value instanceof Collection<?> collection) {
+            return weighCollection(collection);
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    private static long weighCollection(Collection<?> collection) {
+        long weight = OBJECT_OVERHEAD + (long) collection.size() * REFERENCE;
+        for (Object element : collection) {
+            weight += weighValue(element);
+        }
+        return weight;
+    }
+
+    private static long weighMovie(Movie movie) {
+        long weight = MOVIE_OVERHEAD
+                + weighString(movie.getImdbId())
+                + weighString(movie.getTitle())
+                + weighString(movie.getDescription());
+        // Weighing must never trigger lazy loading, unloaded collections get a flat estimate
+        if (!Hibernate.isInitialized(movie.getActors())) {
+            weight += UNLOADED_COLLECTION;
+        } else if (movie.getActors() != null) {
+            weight += (long) movie.getActors().size() * (SET_ENTRY_OVERHEAD + OBJECT_OVERHEAD + REFERENCE);
+        }
+        if (!Hibernate.isInitialized(movie.getPictures())) {
+            weight += UNLOADED_COLLECTION;
+        } else if (movie.getPictures() != null) {
+            for (String picture : movie.getPictures()) {
+                weight += SET_ENTRY_OVERHEAD + weighString(picture);
+            }
+        }
+        return weight;
+    }
+
+    private static long weighString(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + value.length();
+    }
+}
@@ -0,0 +1,9 @@
+package si.src.bcc.movies.cache;
+
+import si.src.bcc.movies.event.MovieChangedEvent;
+
+/**
+ * Key-level invalidation sent to the other replicas, see {@link CacheInvalidationBus}.
+ */
+public record CacheInvalidation(MovieChangedEvent.ChangeType type, String id) {
+}
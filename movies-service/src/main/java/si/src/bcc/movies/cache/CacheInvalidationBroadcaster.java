@@ -0,0 +1,159 @@
+package si.src.bcc.movies.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import si.src.bcc.movies.event.MovieBatchChangedEvent;
+import si.src.bcc.movies.event.MovieChangedEvent;
+import si.src.bcc.movies.event.MovieChangedEvent.ChangeType;
+import si.src.bcc.movies.properties.CacheInvalidationProperties;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends committed movie changes to the other replicas and replays theirs as remote {@link MovieChangedEvent}s,
+ * so the local cache listeners handle both the same way.
+ * <p>
+ * Changes are collected for one batch window and de-duplicated per movie before they are sent.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBroadcaster implements CacheInvalidationBus.Subscriber {
+
+    private final String origin = UUID.randomUUID().toString();
+    private final CacheInvalidationBus bus;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final ResponseCache responseCache;
+    private final CollectionVersion collectionVersion;
+    private final CacheInvalidationProperties properties;
+    private final MeterRegistry registry;
+    private final Map<String, ChangeType> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    @Autowired
+    public CacheInvalidationBroadcaster(ObjectProvider<CacheInvalidationBus> bus, ApplicationEventPublisher eventPublisher,
+                                        CacheManager cacheManager, ResponseCache responseCache,
+                                        CollectionVersion collectionVersion, CacheInvalidationProperties properties,
+                                        MeterRegistry registry) {
+        this.bus = bus.getIfAvailable();
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.responseCache = responseCache;
+        this.collectionVersion = collectionVersion;
+        this.properties = properties;
+        this.registry = registry;
+        if (this.bus == null) {
+            this.flusher = null;
+            return;
+        }
+        this.bus.subscribe(this);
+        long window = properties.getBatchWindow().toMillis();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        enqueue(List.of(event));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMoviesChanged(MovieBatchChangedEvent event) {
+        enqueue(event.changes());
+    }
+
+    private void enqueue(List<MovieChangedEvent> events) {
+        if (bus == null) {
+            return;
+        }
+        boolean full = false;
+        synchronized (pending) {
+            for (MovieChangedEvent event : events) {
+                if (event.remote()) {
+                    continue;
+                }
+                ChangeType previous = pending.get(event.imdbId());
+                if (previous != null) {
+                    registry.counter("cache_invalidation_deduplicated_total", "service", "movies-service").increment();
+                }
+                pending.put(event.imdbId(), merge(previous, event.type()));
+                full |= pending.size() >= properties.getMaxBatchSize();
+            }
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        List<CacheInvalidation> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.size());
+            pending.forEach((id, type) -> batch.add(new CacheInvalidation(type, id)));
+            pending.clear();
+        }
+        try {
+            bus.publish(origin, batch);
+            registry.counter("cache_invalidation_published_total", "service", "movies-service").increment(batch.size());
+        } catch (RuntimeException e) {
+            // Other replicas keep the stale entries until they expire
+            log.warn("Could not publish {} cache invalidations", batch.size(), e);
+        }
+    }
+
+    @Override
+    public void onInvalidations(String origin, List<CacheInvalidation> invalidations) {
+        if (this.origin.equals(origin)) {
+            return;
+        }
+        log.debug("Received {} cache invalidations from {}", invalidations.size(), origin);
+        eventPublisher.publishEvent(new MovieBatchChangedEvent(invalidations.stream()
+                .map(invalidation -> MovieChangedEvent.remote(invalidation.type(), invalidation.id()))
+                .toList()));
+        registry.counter("cache_invalidation_received_total", "service", "movies-service").increment(invalidations.size());
+    }
+
+    @Override
+    public void onGap() {
+        log.warn("Cache invalidations may have been missed, clearing all caches");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        responseCache.clear();
+        collectionVersion.advance();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flush();
+        }
+    }
+
+    // Inserts and deletes invalidate more than updates, an update never hides them
+    private static ChangeType merge(ChangeType previous, ChangeType current) {
+        if (previous != null && current == ChangeType.UPDATED) {
+            return previous;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,23 @@
+package si.src.bcc.movies.cache;
+
+import java.util.List;
+
+/**
+ * Carries cache invalidations between the replicas of the service.
+ * <p>
+ * Every message reaches all subscribers, the sender included, so subscribers skip their own origin.
+ */
+public interface CacheInvalidationBus {
+
+    void publish(String origin, List<CacheInvalidation> invalidations);
+
+    void subscribe(Subscriber subscriber);
+
+    interface Subscriber {
+
+        void onInvalidations(String origin, List<CacheInvalidation> invalidations);
+
+        // Messages may have been lost, e.g. while the connection to the database was down
+        void onGap();
+    }
+}
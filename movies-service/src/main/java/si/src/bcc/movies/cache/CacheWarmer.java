@@ -0,0 +1,176 @@
+package si.src.bcc.movies.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import si.src.bcc.movies.properties.CacheWarmupProperties;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Carries the hottest cache keys over a restart.
+ * <p>
+ * On shutdown the most used keys of every cache with a loader are written to the snapshot file, on startup
+ * they are loaded again in parallel batches. Health stays OUT_OF_SERVICE until the warm-up is done, so the
+ * instance gets no traffic while its caches are cold.
+ */
+@Slf4j
+@Component
+public class CacheWarmer implements ApplicationRunner, HealthIndicator {
+
+    private final CacheManager cacheManager;
+    private final MovieCacheLoader cacheLoader;
+    private final CacheWarmupProperties properties;
+    private final MeterRegistry registry;
+    private volatile boolean warm;
+
+    @Autowired
+    public CacheWarmer(CacheManager cacheManager, MovieCacheLoader cacheLoader, CacheWarmupProperties properties,
+                       MeterRegistry registry) {
+        this.cacheManager = cacheManager;
+        this.cacheLoader = cacheLoader;
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    @Override
+    public Health health() {
+        return warm ? Health.up().build() : Health.outOfService().withDetail("reason", "cache warm-up in progress").build();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Path file = properties.getSnapshotFile();
+        if (!properties.isEnabled() || !Files.isReadable(file)) {
+            warm = true;
+            return;
+        }
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            warmUp(readSnapshot(file));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cache warm-up from {} failed, starting with cold caches", file, e);
+        } finally {
+            long nanos = sample.stop(Timer.builder("cache_warmup_duration")
+                    .description("Time spent loading the hot keys of the previous run")
+                    .tag("service", "movies-service")
+                    .register(registry));
+            warm = true;
+            log.info("Cache warm-up finished in {} ms", nanos / 1_000_000);
+        }
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void writeSnapshot() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (String cacheName : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(cacheName) instanceof CaffeineCache cache && cacheLoader.forCache(cacheName) != null) {
+                hottest(cache.getNativeCache()).forEach(key -> lines.add(toLine(cacheName, key)));
+            }
+        }
+        Path file = properties.getSnapshotFile().toAbsolutePath();
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(temp, lines);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.info("Wrote {} hot cache keys to {}", lines.size(), file);
+        } catch (IOException e) {
+            log.warn("Could not write hot cache keys to {}", file, e);
+        }
+    }
+
+    private void warmUp(Map<String, List<Object>> keysByCache) {
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getConcurrency());
+        try {
+            List<CompletableFuture<Void>> batches = new ArrayList<>();
+            keysByCache.forEach((cacheName, keys) -> {
+                for (int from = 0; from < keys.size(); from += properties.getBatchSize()) {
+                    List<Object> batch = keys.subList(from, Math.min(from + properties.getBatchSize(), keys.size()));
+                    batches.add(CompletableFuture.runAsync(() -> loadBatch(cacheName, batch), executor));
+                }
+            });
+            CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void loadBatch(String cacheName, List<Object> keys) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        try {
+            Map<Object, Object> values = cacheLoader.loadAll(cacheName, keys);
+            // A request may already have cached a newer value
+            values.forEach(cache::putIfAbsent);
+            registry.counter("cache_warmup_keys_total", "cache", cacheName, "service", "movies-service")
+                    .increment(values.size());
+        } catch (RuntimeException e) {
+            log.warn("Cache '{}': warm-up batch of {} keys failed", cacheName, keys.size(), e);
+        }
+    }
+
+    private List<Object> hottest(com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        return cache.policy().eviction()
+                .<List<Object>>map(eviction -> new ArrayList<>(eviction.hottest(properties.getMaximumKeys()).keySet()))
+                .orElseGet(() -> cache.asMap().keySet().stream().limit(properties.getMaximumKeys()).toList());
+    }
+
+    private Map<String, List<Object>> readSnapshot(Path file) throws IOException {
+        Map<String, List<Object>> keysByCache = new LinkedHashMap<>();
+        try (var lines = Files.lines(file)) {
+            lines.map(line -> line.split("\t", 3))
+                    .filter(fields -> fields.length == 3)
+                    .forEach(fields -> keysByCache.computeIfAbsent(fields[0], name -> new ArrayList<>()).add(fromField(fields[1], fields[2])));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Warming up caches with {} keys from {}", keysByCache.values().stream().mapToInt(List::size).sum(), file);
+        return keysByCache;
+    }
+
+    // "<cache>\t<key type>\t<url-encoded key>", the type keeps numeric ids numeric on the way back
+    private static String toLine(String cacheName, Object key) {
+        String type = key instanceof Long ? "long" : "string";
+        return cacheName + "\t" + type + "\t" + URLEncoder.encode(String.valueOf(key), StandardCharsets.UTF_8);
+    }
+
+    private static Object fromField(String type, String encodedKey) {
+        String key = URLDecoder.decode(encodedKey, StandardCharsets.UTF_8);
+        return "long".equals(type) ? Long.valueOf(key) : key;
+    }
+}
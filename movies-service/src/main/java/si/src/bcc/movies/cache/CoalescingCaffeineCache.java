@@ -0,0 +1,40 @@
+package si.src.bcc.movies.cache;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.cache.caffeine.CaffeineCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.concurrent.Callable;
+
+/**
+ * Caffeine cache that counts the misses answered by a load another thread already had in flight.
+ * <p>
+ * {@code @Cacheable(sync = true)} goes through {@link #get(Object, Callable)}, where Caffeine runs
+ * one load per key and blocks the other callers for the same key until it completes.
+ */
+public class CoalescingCaffeineCache extends CaffeineCache {
+
+    private final Counter coalescedLoads;
+
+    public CoalescingCaffeineCache(String name, Cache<Object, Object> cache, boolean allowNullValues,
+                                   Counter coalescedLoads) {
+        super(name, cache, allowNullValues);
+        this.coalescedLoads = coalescedLoads;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        // asMap() reads do not count as hits or misses in the cache statistics
+        if (getNativeCache().asMap().containsKey(key)) {
+            return super.get(key, valueLoader);
+        }
+        boolean[] loaded = new boolean[1];
+        T value = super.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        if (!loaded[0]) {
+            coalescedLoads.increment();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,53 @@
+package si.src.bcc.movies.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import si.src.bcc.movies.event.MovieBatchChangedEvent;
+import si.src.bcc.movies.event.MovieChangedEvent;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Version stamp of the movie collection, used as validator for the /all, /paged and /search responses.
+ * <p>
+ * Every committed write moves the stamp forward, so collection ETags never require reading or hashing
+ * the list itself. The boot time is part of the ETag, a restarted instance never reuses an old one.
+ */
+@Slf4j
+@Component
+public class CollectionVersion {
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicReference<Stamp> current = new AtomicReference<>(new Stamp(0, System.currentTimeMillis()));
+
+    public Stamp current() {
+        return current.get();
+    }
+
+    public String etag(Stamp stamp) {
+        return "W/\"" + bootId + "-" + stamp.version() + "\"";
+    }
+
+    // After the entity caches and before the response cache, see ResponseCache
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        advance();
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMoviesChanged(MovieBatchChangedEvent event) {
+        advance();
+    }
+
+    public void advance() {
+        Stamp stamp = current.updateAndGet(previous ->
+                new Stamp(previous.version() + 1, Math.max(System.currentTimeMillis(), previous.lastModified())));
+        log.debug("Movie collection version moved to {}", stamp.version());
+    }
+
+    public record Stamp(long version, long lastModified) {
+    }
+}
@@ -0,0 +1,185 @@
+package si.src.bcc.movies.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import si.src.bcc.movies.event.MovieBatchChangedEvent;
+import si.src.bcc.movies.event.MovieChangedEvent;
+import si.src.bcc.movies.model.Movie;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the movie caches consistent after writes without dropping unrelated entries.
+ * <p>
+ * The written movie is put back into the {@code movie} cache (write-through), while the
+ * {@code movies} and {@code movieSearch} caches only lose the entries the change can affect.
+ * Runs after the surrounding transaction commits, so readers never cache uncommitted state.
+ */
+@Slf4j
+@Component
+public class MovieCacheInvalidator {
+
+    static final String MOVIE_CACHE = "movie";
+    static final String MOVIES_CACHE = "movies";
+    static final String SEARCH_CACHE = "movieSearch";
+    static final String ALL_KEY = "all";
+
+    private final CacheManager cacheManager;
+    private final MeterRegistry registry;
+
+    @Autowired
+    public MovieCacheInvalidator(CacheManager cacheManager, MeterRegistry registry) {
+        this.cacheManager = cacheManager;
+        this.registry = registry;
+    }
+
+    // Right after the search index, see MovieSearchIndex
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        invalidate(List.of(event));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMoviesChanged(MovieBatchChangedEvent event) {
+        invalidate(event.changes());
+    }
+
+    // One pass over every cache for the whole batch, however many movies it holds
+    private void invalidate(List<MovieChangedEvent> events) {
+        log.debug("Invalidating caches for {} movie changes", events.size());
+        events.forEach(this::writeThrough);
+        Set<String> imdbIds = events.stream().map(MovieChangedEvent::imdbId).collect(Collectors.toSet());
+        // Inserts and deletes shift offsets and totals of every page, only single-movie entries survive
+        boolean shifted = events.stream().anyMatch(event -> event.type() != MovieChangedEvent.ChangeType.UPDATED);
+        evictMatching(MOVIES_CACHE, (key, value) -> shifted || ALL_KEY.equals(key) || contains(value, imdbIds));
+        // A movie leaving the results of a term shifts its later pages and changes its total, and which terms it
+        // left is not known. Remote events carry no movie, any term may match its new title or description
+        if (events.stream().anyMatch(event -> event.type() != MovieChangedEvent.ChangeType.CREATED && event.searchTextChanged())) {
+            evictMatching(SEARCH_CACHE, (key, value) -> true);
+        } else {
+            Set<Object> terms = affectedSearchTerms(events, imdbIds);
+            evictMatching(SEARCH_CACHE, (key, value) -> terms.contains(searchTermOf(key)));
+        }
+    }
+
+    // Terms with a page holding one of the movies or matching a created one, every page of those terms is stale
+    private Set<Object> affectedSearchTerms(List<MovieChangedEvent> events, Set<String> imdbIds) {
+        Set<Object> terms = new HashSet<>();
+        if (cacheManager.getCache(SEARCH_CACHE) instanceof CaffeineCache caffeineCache) {
+            caffeineCache.getNativeCache().asMap().forEach((key, value) -> {
+                if (contains(value, imdbIds) || events.stream().anyMatch(event -> matchesSearchTerm(key, event.movie()))) {
+                    terms.add(searchTermOf(key));
+                }
+            });
+        }
+        return terms;
+    }
+
+    private void writeThrough(MovieChangedEvent event) {
+        Cache cache = cacheManager.getCache(MOVIE_CACHE);
+        if (cache == null) {
+            return;
+        }
+        if (event.movie() == null) {
+            cache.evict(event.imdbId());
+            counter("cache_invalidated_entries_total", MOVIE_CACHE).increment();
+        } else {
+            cache.put(event.imdbId(), event.movie());
+            counter("cache_write_through_total", MOVIE_CACHE).increment();
+        }
+    }
+
+    private void evictMatching(String cacheName, BiPredicate<Object, Object> affected) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (!(cache instanceof CaffeineCache caffeineCache)) {
+            if (cache != null) {
+                cache.clear();
+            }
+            return;
+        }
+        long evicted = 0;
+        long retained = 0;
+        Iterator<Map.Entry<Object, Object>> entries = caffeineCache.getNativeCache().asMap().entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Object, Object> entry = entries.next();
+            if (affected.test(entry.getKey(), entry.getValue())) {
+                entries.remove();
+                evicted++;
+            } else {
+                retained++;
+            }
+        }
+        counter("cache_invalidated_entries_total", cacheName).increment(evicted);
+        counter("cache_retained_entries_total", cacheName).increment(retained);
+        log.debug("Cache '{}': evicted {} entries, retained {}", cacheName, evicted, retained);
+    }
+
+    private static boolean contains(Object value, Set<String> imdbIds) {
+        Collection<?> movies;
+        if (value instanceof Page<?> page) {
+            movies = page.getContent();
+        } else if (value instanceof Collection<?> collection) {
+            movies = collection;
+        } else {
+            return false;
+        }
+        for (Object movie : movies) {
+            if (movie instanceof Movie m && imdbIds.contains(m.getImdbId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Search keys are "<searchTerm>-<page>-<size>", any other key stands for itself
+    private static Object searchTermOf(Object key) {
+        if (!(key instanceof String searchKey)) {
+            return key;
+        }
+        int sizeSeparator = searchKey.lastIndexOf('-');
+        int pageSeparator = sizeSeparator > 0 ? searchKey.lastIndexOf('-', sizeSeparator - 1) : -1;
+        return pageSeparator < 0 ? key : searchKey.substring(0, pageSeparator);
+    }
+
+    // Checks every word of the term on its own, which covers both the LIKE substring match and the full-text
+    // match of the words in any order
+    private static boolean matchesSearchTerm(Object key, Movie movie) {
+        if (movie == null) {
+            return false;
+        }
+        Object searchTerm = searchTermOf(key);
+        if (searchTerm == key) {
+            return true;
+        }
+        String text = (movie.getTitle() + " " + movie.getDescription()).toLowerCase(Locale.ROOT);
+        for (String word : ((String) searchTerm).toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (!text.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Counter counter(String name, String cacheName) {
+        return registry.counter(name, "cache", cacheName, "service", "movies-service");
+    }
+}
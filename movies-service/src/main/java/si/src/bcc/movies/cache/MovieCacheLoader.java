@@ -0,0 +1,103 @@
+package si.src.bcc.movies.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import si.src.bcc.movies.model.Movie;
+import si.src.bcc.movies.repository.MovieProjections;
+import si.src.bcc.movies.search.MovieSearch;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads movie cache entries by their {@code @Cacheable} key, used by the caches configured with
+ * refresh-after-write to reload hot entries in the background while the old value is still served.
+ * <p>
+ * Reloads read through the same projections and search engine as the service, in a read-only transaction of
+ * their own.
+ */
+@Slf4j
+@Component
+public class MovieCacheLoader {
+
+    private final MovieProjections movieProjections;
+    private final MovieSearch movieSearch;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public MovieCacheLoader(MovieProjections movieProjections, MovieSearch movieSearch,
+                            PlatformTransactionManager transactionManager) {
+        this.movieProjections = movieProjections;
+        this.movieSearch = movieSearch;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public CacheLoader<Object, Object> forCache(String cacheName) {
+        Function<Object, Object> loader = loader(cacheName);
+        if (loader == null) {
+            return null;
+        }
+        return key -> {
+            log.debug("Loading entry {} of cache '{}'", key, cacheName);
+            return transactionTemplate.execute(status -> loader.apply(key));
+        };
+    }
+
+    // Single movies of a batch are read with one query, the other caches load key by key
+    public Map<Object, Object> loadAll(String cacheName, Collection<?> keys) {
+        if (MovieCacheInvalidator.MOVIE_CACHE.equals(cacheName)) {
+            List<String> ids = keys.stream().map(String.class::cast).toList();
+            return transactionTemplate.execute(status -> movieProjections.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Movie::getImdbId, movie -> movie)));
+        }
+        Function<Object, Object> loader = loader(cacheName);
+        if (loader == null) {
+            return Map.of();
+        }
+        Map<Object, Object> values = new HashMap<>();
+        for (Object key : keys) {
+            Object value = transactionTemplate.execute(status -> loader.apply(key));
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    private Function<Object, Object> loader(String cacheName) {
+        return switch (cacheName) {
+            case MovieCacheInvalidator.MOVIE_CACHE -> key -> movieProjections.findById((String) key);
+            case MovieCacheInvalidator.MOVIES_CACHE -> key -> loadMovies((String) key);
+            case MovieCacheInvalidator.SEARCH_CACHE -> key -> loadSearch((String) key);
+            default -> null;
+        };
+    }
+
+    // "all" or "<page>-<size>"
+    private Object loadMovies(String key) {
+        if (MovieCacheInvalidator.ALL_KEY.equals(key)) {
+            return movieProjections.findAll();
+        }
+        int separator = key.lastIndexOf('-');
+        return movieProjections.findAll(PageRequest.of(
+                Integer.parseInt(key.substring(0, separator)), Integer.parseInt(key.substring(separator + 1))));
+    }
+
+    // "<searchTerm>-<page>-<size>", the term itself may contain '-'
+    private Object loadSearch(String key) {
+        int sizeSeparator = key.lastIndexOf('-');
+        int pageSeparator = key.lastIndexOf('-', sizeSeparator - 1);
+        return movieSearch.search(key.substring(0, pageSeparator), PageRequest.of(
+                Integer.parseInt(key.substring(pageSeparator + 1, sizeSeparator)),
+                Integer.parseInt(key.substring(sizeSeparator + 1))));
+    }
+}
@@ -0,0 +1,90 @@
+package si.src.bcc.movies.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import si.src.bcc.movies.event.MovieBatchChangedEvent;
+import si.src.bcc.movies.event.MovieChangedEvent;
+import si.src.bcc.movies.properties.ResponseCacheProperties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Serialized GET responses keyed by the normalized request, see {@link ResponseCacheFilter}.
+ * <p>
+ * Every write bumps the generation, a response computed while the generation changed is not
+ * stored, so a request racing with a write can never put a stale body back into the cache.
+ */
+@Slf4j
+@Component
+public class ResponseCache {
+
+    private final Cache<String, CachedResponse> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumWeight().toBytes())
+                .weigher((String key, CachedResponse response) -> key.length() + response.weight())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "responseCache", Tags.of("cache.manager", "responseCache"));
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(String key, CachedResponse response, long generationAtStart) {
+        if (generation.get() != generationAtStart) {
+            log.debug("Response for {} not cached, movies were written meanwhile", key);
+            return;
+        }
+        cache.put(key, response);
+        // A write may have slipped in between the check and the put
+        if (generation.get() != generationAtStart) {
+            cache.invalidate(key);
+        }
+    }
+
+    // Runs after the entity caches are invalidated, so a miss here never re-reads stale entities
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        invalidate(Set.of(event.imdbId()));
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMoviesChanged(MovieBatchChangedEvent event) {
+        invalidate(event.changes().stream().map(MovieChangedEvent::imdbId).collect(Collectors.toSet()));
+    }
+
+    private void invalidate(Set<String> imdbIds) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(response ->
+                response.entityId() == null || imdbIds.contains(response.entityId()));
+        log.debug("Response cache invalidated for movies {}", imdbIds);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        log.debug("Response cache cleared");
+    }
+}
@@ -0,0 +1,230 @@
+package si.src.bcc.movies.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import si.src.bcc.movies.dto.ActorSummary;
+import si.src.bcc.movies.dto.BatchItemResult;
+import si.src.bcc.movies.dto.BatchResponse;
+import si.src.bcc.movies.properties.ActorsClientProperties;
+import si.src.bcc.movies.util.JwtTokenGenerator;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Reads actor summaries from actors-service through its {@code GET /api/actors/batch} endpoint.
+ * <p>
+ * Summaries are kept in a bounded near-cache for {@code cache-ttl}, only the missing ones are requested, in as few
+ * batches as actors-service accepts. The remote call is bounded by timeouts, a bulkhead and a circuit breaker. When
+ * it fails or is refused the lookup is degraded and answers from the near-cache alone.
+ */
+@Slf4j
+@Component
+public class ActorsClient {
+
+    // Batch size limit of actors-service
+    private static final int MAX_LOOKUP_SIZE = 500;
+    // A token is renewed this long before it expires, or halfway through shorter lifetimes
+    private static final long TOKEN_RENEWAL_MARGIN_MILLIS = 60_000;
+
+    private final RestClient restClient;
+    private final JwtTokenGenerator jwtTokenGenerator;
+    private final ActorsClientProperties properties;
+    private final Cache<Long, Optional<ActorSummary>> nearCache;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry registry;
+    private final Timer remoteCalls;
+    // One token for every call until shortly before it expires, actors-service verifies it once and then hits its cache
+    private volatile ServiceToken serviceToken;
+
+    @Autowired
+    public ActorsClient(RestClient.Builder restClientBuilder, JwtTokenGenerator jwtTokenGenerator,
+                        ActorsClientProperties properties, MeterRegistry registry, Environment environment) {
+        HttpClient.Builder httpClient = HttpClient.newBuilder()
+                .connectTimeout(properties.getConnectTimeout());
+        // The call blocks the request thread, the client's own async work runs on virtual threads as well when enabled
+        if (Threading.VIRTUAL.isActive(environment)) {
+            httpClient.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient.build());
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+        this.restClient = restClientBuilder
+                .baseUrl(properties.getBaseUrl())
+                .requestFactory(requestFactory)
+                .build();
+        this.jwtTokenGenerator = jwtTokenGenerator;
+        this.properties = properties;
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaximumSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .recordStats()
+                .build();
+        this.bulkhead = new Semaphore(properties.getMaxConcurrentCalls(), true);
+        this.circuitBreaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenDuration());
+        this.registry = registry;
+        this.remoteCalls = Timer.builder("actors_client_calls")
+                .tag("service", "movies-service")
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, nearCache, "actorSummaries", "service", "movies-service");
+        Gauge.builder("actors_client_circuit_state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("0 closed, 1 open, 2 half open")
+                .tag("service", "movies-service")
+                .register(registry);
+        Gauge.builder("actors_client_bulkhead_available", bulkhead, Semaphore::availablePermits)
+                .tag("service", "movies-service")
+                .register(registry);
+    }
+
+    private record ServiceToken(String value, long renewAt) {
+    }
+
+    public record ActorLookup(Map<Long, ActorSummary> actors, boolean degraded) {
+    }
+
+    /**
+     * Summaries of the given actors, actors unknown to actors-service are left out. A degraded lookup holds only
+     * the actors found in the near-cache.
+     */
+    public ActorLookup getActors(Collection<Long> ids) {
+        Map<Long, ActorSummary> actors = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        Map<Long, Optional<ActorSummary>> cached = nearCache.getAllPresent(ids);
+        for (Long id : ids) {
+            Optional<ActorSummary> summary = cached.get(id);
+            if (summary == null) {
+                missing.add(id);
+            } else {
+                summary.ifPresent(actor -> actors.put(id, actor));
+            }
+        }
+        if (missing.isEmpty()) {
+            return new ActorLookup(actors, false);
+        }
+        Map<Long, Optional<ActorSummary>> fetched = fetch(missing.stream().distinct().toList());
+        if (fetched == null) {
+            counter("actors_client_degraded_total").increment();
+            return new ActorLookup(actors, true);
+        }
+        nearCache.putAll(fetched);
+        fetched.forEach((id, summary) -> summary.ifPresent(actor -> actors.put(id, actor)));
+        return new ActorLookup(actors, false);
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    // Null when the call is refused or fails
+    private Map<Long, Optional<ActorSummary>> fetch(List<Long> ids) {
+        if (!acquireBulkhead()) {
+            counter("actors_client_rejected_total", "reason", "bulkhead").increment();
+            return null;
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                counter("actors_client_rejected_total", "reason", "circuit_open").increment();
+                return null;
+            }
+            Timer.Sample sample = Timer.start(registry);
+            try {
+                Map<Long, Optional<ActorSummary>> fetched = new HashMap<>();
+                for (int from = 0; from < ids.size(); from += MAX_LOOKUP_SIZE) {
+                    fetched.putAll(fetchBatch(ids.subList(from, Math.min(from + MAX_LOOKUP_SIZE, ids.size()))));
+                }
+                circuitBreaker.onSuccess();
+                return fetched;
+            } catch (RuntimeException e) {
+                // Not only RestClientException: the JDK request factory can let its read timeout escape as a
+                // CancellationException, and an outcome must be recorded or a trial call leaves the circuit half open
+                circuitBreaker.onFailure();
+                counter("actors_client_failures_total").increment();
+                log.warn("Actors lookup of {} ids failed: {}", ids.size(), e.getMessage());
+                return null;
+            } finally {
+                sample.stop(remoteCalls);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private Map<Long, Optional<ActorSummary>> fetchBatch(List<Long> ids) {
+        BatchResponse<ActorSummary> response = restClient.get()
+                .uri(uri -> uri.path("/api/actors/batch")
+                        .queryParam("ids", ids.stream().map(String::valueOf).collect(Collectors.joining(",")))
+                        .build())
+                .headers(headers -> headers.setBearerAuth(serviceToken()))
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {});
+        if (response == null || response.getResults() == null || response.getResults().size() != ids.size()) {
+            throw new RestClientException("Unexpected batch response from actors-service");
+        }
+        // Results come back in the order of the requested ids
+        Map<Long, Optional<ActorSummary>> fetched = new HashMap<>();
+        for (BatchItemResult<ActorSummary> result : response.getResults()) {
+            if (result.getIndex() < 0 || result.getIndex() >= ids.size()) {
+                throw new RestClientException("Batch result index " + result.getIndex() + " out of range from actors-service");
+            }
+            Long id = ids.get(result.getIndex());
+            if (result.getStatus() == HttpStatus.OK.value() && result.getItem() != null) {
+                fetched.put(id, Optional.of(result.getItem()));
+            } else if (result.getStatus() == HttpStatus.NOT_FOUND.value()) {
+                fetched.put(id, Optional.empty());
+            }
+        }
+        return fetched;
+    }
+
+    // Concurrent renewals may sign a token each, any of them is valid
+    private String serviceToken() {
+        ServiceToken token = serviceToken;
+        long now = System.currentTimeMillis();
+        if (token == null || now >= token.renewAt()) {
+            long lifetime = jwtTokenGenerator.getExpiration();
+            token = new ServiceToken(jwtTokenGenerator.generateToken(jwtTokenGenerator.getUsername()),
+                    now + lifetime - Math.min(lifetime / 2, TOKEN_RENEWAL_MARGIN_MILLIS));
+            serviceToken = token;
+        }
+        return token.value();
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(properties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Counter counter(String name, String... tags) {
+        return Counter.builder(name)
+                .tags(tags)
+                .tag("service", "movies-service")
+                .register(registry);
+    }
+}
@@ -0,0 +1,58 @@
+package si.src.bcc.movies.client;
+
+import java.time.Duration;
+
+/**
+ * Consecutive-failure circuit breaker around a remote dependency.
+ * <p>
+ * After {@code failureThreshold} failures in a row the circuit opens and calls are refused without touching the
+ * remote side. Once {@code openDuration} has passed a single trial call is let through, its outcome closes the
+ * circuit or opens it for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    public synchronized boolean tryAcquire() {
+        return switch (state) {
+            case CLOSED -> true;
+            // The trial call is still running
+            case HALF_OPEN -> false;
+            case OPEN -> {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    yield false;
+                }
+                state = State.HALF_OPEN;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        failures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            failures = 0;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -1,13 +1,24 @@
 package si.src.bcc.movies.config;
 
+import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import si.src.bcc.movies.cache.CacheEntryWeigher;
+import si.src.bcc.movies.cache.CoalescingCaffeineCache;
+import si.src.bcc.movies.cache.MovieCacheLoader;
 import si.src.bcc.movies.properties.CacheProperties;
 
+@Slf4j
 @Configuration
 @EnableCaching
 public class CacheConfig {
@@ -18,32 +29,58 @@ public class CacheConfig {
         this.cacheProperties = cacheProperties;
     }
 
-    // From properties
+    // Default spec from properties, plus every cache listed under spring.cache.caffeine.caches with its own bounds.
+    // Stats are recorded for all caches, Spring Boot binds the registered caches to Micrometer (cache_gets, cache_evictions...)
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        cacheManager.setCaffeine(Caffeine.from(cacheProperties.getCaffeine().getSpec()));
+    public CacheManager cacheManager(MovieCacheLoader cacheLoader, MeterRegistry registry) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+                return new CoalescingCaffeineCache(name, cache, isAllowNullValues(),
+                        registry.counter("cache_coalesced_loads_total", "cache", name, "service", "movies-service"));
+            }
+        };
+        cacheManager.setCaffeine(Caffeine.from(cacheProperties.getCaffeine().getSpec()).recordStats());
+        cacheProperties.getCaffeine().getCaches().forEach((name, spec) ->
+                cacheManager.registerCustomCache(name, build(name, spec, cacheLoader.forCache(name))));
         return cacheManager;
     }
-    /*
+
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        Caffeine<Object, Object> caffeineSpec = Caffeine.from(cacheProperties.getCaffeine().getSpec()).recordStats();  // THIS is required for metrics
-        cacheManager.setCaffeine(caffeineSpec);
-        return cacheManager;
+    public MeterBinder cacheHitRatioMetrics(CacheManager cacheManager) {
+        return registry -> cacheManager.getCacheNames().forEach(name -> {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                Gauge.builder("cache_hit_ratio", cache.getNativeCache(), c -> c.stats().hitRate())
+                        .tag("cache", name)
+                        .tag("service", "movies-service")
+                        .register(registry);
+            }
+        });
     }
-    */
 
-    /*
-    @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES)
-                .maximumSize(1000)
-                .recordStats());
-        return cacheManager;
+    private Cache<Object, Object> build(String name, CacheProperties.CacheSpec spec, CacheLoader<Object, Object> loader) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (spec.getMaximumWeight() != null) {
+            builder.maximumWeight(spec.getMaximumWeight().toBytes()).weigher(new CacheEntryWeigher());
+        }
+        if (spec.getMaximumSize() != null) {
+            builder.maximumSize(spec.getMaximumSize());
+        }
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(spec.getExpireAfterAccess());
+        }
+        log.debug("Cache '{}' configured: {}", name, spec);
+        if (spec.getRefreshAfterWrite() == null) {
+            return builder.build();
+        }
+        if (loader == null) {
+            log.warn("Cache '{}': refresh-after-write is ignored, no cache loader is registered", name);
+            return builder.build();
+        }
+        // Entries older than refresh-after-write are still served while the loader reloads them in the background
+        return builder.refreshAfterWrite(spec.getRefreshAfterWrite()).build(loader);
     }
-    */
 }
@@ -0,0 +1,32 @@
+package si.src.bcc.movies.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import si.src.bcc.movies.limit.ConcurrencyLimitFilter;
+import si.src.bcc.movies.limit.GradientConcurrencyLimit;
+import si.src.bcc.movies.properties.ConcurrencyLimitProperties;
+
+@Configuration
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public GradientConcurrencyLimit concurrencyLimit(ConcurrencyLimitProperties properties) {
+        return new GradientConcurrencyLimit(properties.getInitialLimit(), properties.getMinLimit(),
+                properties.getMaxLimit(), properties.getRttTolerance(), properties.getSmoothing(),
+                properties.getSampleWindow(), properties.getMinWindowSamples(), properties.getLongWindow());
+    }
+
+    // After the metrics filter, so shed requests are measured, and before any authentication or database work
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(GradientConcurrencyLimit concurrencyLimit,
+                                                                                 ConcurrencyLimitProperties properties,
+                                                                                 MeterRegistry registry) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(concurrencyLimit, properties, registry));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 5);
+        return registration;
+    }
+}
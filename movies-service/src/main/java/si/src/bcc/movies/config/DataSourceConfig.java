@@ -0,0 +1,88 @@
+package si.src.bcc.movies.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import si.src.bcc.movies.datasource.ConnectionGuard;
+import si.src.bcc.movies.datasource.ReadConsistencyFilter;
+import si.src.bcc.movies.datasource.ReplicaRoutingDataSource;
+import si.src.bcc.movies.properties.ConnectionGuardProperties;
+import si.src.bcc.movies.properties.ReadReplicaProperties;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes go to spring.datasource, read-only transactions to the read replicas, see {@link ReplicaRoutingDataSource}.
+ * <p>
+ * The lazy proxy takes the connection at the first statement of a transaction, when the transaction manager has
+ * already marked it read-only, and takes it from the replicas then. Open-in-view is off, so every transaction gets
+ * its own connection instead of keeping the first one for the whole request. Both sides go through one
+ * {@link ConnectionGuard}, which bounds the connections in use however many request threads there are.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                      DataSourceProperties dataSourceProperties,
+                                                      ReadReplicaProperties properties, MeterRegistry registry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (ReadReplicaProperties.Replica replica : properties.getReplicas()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + replicas.size());
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername());
+            dataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(dataSource);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, properties, registry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primary, ReplicaRoutingDataSource replicaDataSource,
+                                 ReadReplicaProperties replicaProperties, ConnectionGuardProperties guardProperties,
+                                 MeterRegistry registry) {
+        DataSource target = primary;
+        DataSource readOnly = replicaDataSource;
+        if (guardProperties.isEnabled()) {
+            int maxConcurrency = guardProperties.getMaxConcurrency() > 0 ? guardProperties.getMaxConcurrency()
+                    : primary.getMaximumPoolSize() + replicaProperties.getReplicas().stream()
+                            .mapToInt(ReadReplicaProperties.Replica::getMaximumPoolSize).sum();
+            ConnectionGuard guard = new ConnectionGuard(maxConcurrency, guardProperties.getAcquireTimeout(), registry);
+            target = guard.guard(primary);
+            readOnly = guard.guard(replicaDataSource);
+        }
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(target);
+        dataSource.setReadOnlyDataSource(readOnly);
+        return dataSource;
+    }
+
+    // Before the Spring Security filter chain, so the whole request sees the same choice
+    @Bean
+    public FilterRegistrationBean<ReadConsistencyFilter> readConsistencyFilter(ReadReplicaProperties properties) {
+        FilterRegistrationBean<ReadConsistencyFilter> registration =
+                new FilterRegistrationBean<>(new ReadConsistencyFilter(properties.getReadYourWritesWindow()));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+        return registration;
+    }
+}
@@ -0,0 +1,25 @@
+package si.src.bcc.movies.config;
+
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import si.src.bcc.movies.cache.ResponseCache;
+import si.src.bcc.movies.cache.ResponseCacheFilter;
+import si.src.bcc.movies.properties.ResponseCacheProperties;
+
+@Configuration
+public class ResponseCacheConfig {
+
+    // Right after the Spring Security filter chain, requests are authenticated before a cached body is returned
+    public static final int RESPONSE_CACHE_FILTER_ORDER = SecurityProperties.DEFAULT_FILTER_ORDER + 10;
+
+    @Bean
+    public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(ResponseCache responseCache,
+                                                                           ResponseCacheProperties properties) {
+        FilterRegistrationBean<ResponseCacheFilter> registration =
+                new FilterRegistrationBean<>(new ResponseCacheFilter(responseCache, properties));
+        registration.setOrder(RESPONSE_CACHE_FILTER_ORDER);
+        return registration;
+    }
+}
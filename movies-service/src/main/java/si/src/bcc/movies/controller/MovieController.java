@@ -1,46 +1,93 @@
 package si.src.bcc.movies.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import si.src.bcc.movies.cache.CollectionVersion;
+import si.src.bcc.movies.client.ActorsClient;
+import si.src.bcc.movies.dto.BatchItemResult;
+import si.src.bcc.movies.dto.BatchResponse;
+import si.src.bcc.movies.dto.CursorPageResponse;
 import si.src.bcc.movies.dto.MovieRequest;
 import si.src.bcc.movies.dto.MovieResponse;
+import si.src.bcc.movies.dto.RequestStatsResponse;
 import si.src.bcc.movies.exception.InvalidMovieDataException;
 import si.src.bcc.movies.exception.MovieAlreadyExistsException;
 import si.src.bcc.movies.exception.MovieNotFoundException;
 import si.src.bcc.movies.exception.NoMoviesFoundException;
 import si.src.bcc.movies.mapper.MovieMapper;
 import si.src.bcc.movies.model.Movie;
+import si.src.bcc.movies.monitoring.RequestStatistics;
 import si.src.bcc.movies.service.MovieService;
-import si.src.bcc.movies.service.impl.MovieServiceImpl;
+import si.src.bcc.movies.util.CursorCodec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/movies")
 @Tag(name = "Movie Management", description = "APIs for managing movies")
 public class MovieController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 500;
+    private static final String EXPAND_ACTORS = "actors";
+    // Set on responses whose actor summaries may be incomplete
+    private static final String DEGRADED_HEADER = "X-Degraded";
+
     private final MovieService movieService;
-    private final MovieServiceImpl movieServiceImpl;
     private final MovieMapper movieMapper;
+    private final CollectionVersion collectionVersion;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ActorsClient actorsClient;
+    private final RequestStatistics requestStatistics;
 
     @Autowired
-    public MovieController(MovieService movieService, MovieServiceImpl movieServiceImpl, MovieMapper movieMapper) {
+    public MovieController(MovieService movieService, MovieMapper movieMapper, CollectionVersion collectionVersion,
+                           ObjectMapper objectMapper, Validator validator, ActorsClient actorsClient,
+                           RequestStatistics requestStatistics) {
         this.movieService = movieService;
-        this.movieServiceImpl = movieServiceImpl;
         this.movieMapper = movieMapper;
+        this.collectionVersion = collectionVersion;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.actorsClient = actorsClient;
+        this.requestStatistics = requestStatistics;
     }
 
     @Operation(summary = "Get all movies", description = "Retrieves a full list of all movies")
@@ -50,7 +97,11 @@ public class MovieController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/all")
-    public ResponseEntity<List<MovieResponse>> getAllMoviesWithoutPagination() {
+    public ResponseEntity<List<MovieResponse>> getAllMoviesWithoutPagination(WebRequest webRequest) {
+        CollectionVersion.Stamp stamp = collectionVersion.current();
+        if (webRequest.checkNotModified(collectionVersion.etag(stamp), stamp.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         List<Movie> movies = movieService.getAllMovies();
         if (movies.isEmpty()) {
             throw new NoMoviesFoundException();
@@ -63,6 +114,44 @@ public class MovieController {
                 .body(response);
     }
 
+    @Operation(summary = "Stream all movies", description = "Streams all movies as a chunked JSON array, or as newline delimited JSON with Accept: application/x-ndjson, without loading the full list into memory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Movies streamed successfully, an empty catalog is an empty array"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(value = "/all/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamAllMovies(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest webRequest) {
+        CollectionVersion.Stamp stamp = collectionVersion.current();
+        if (webRequest.checkNotModified(collectionVersion.etag(stamp), stamp.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+        // Written on an async thread, every chunk is mapped, serialized and flushed before the next one is read
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer();
+            try (SequenceWriter sequence = ndjson
+                    ? writer.withRootValueSeparator("\n").writeValues(outputStream)
+                    : writer.writeValuesAsArray(outputStream)) {
+                movieService.streamAllMovies(chunk -> {
+                    try {
+                        for (Movie movie : chunk) {
+                            sequence.write(movieMapper.toResponse(movie));
+                        }
+                        sequence.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     @Operation(summary = "Get all movies with pagination support", description = "Retrieves a paginated list of all movies")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Movies retrieved successfully"),
@@ -71,17 +160,58 @@ public class MovieController {
     })
     @GetMapping("/paged")
     public ResponseEntity<Page<MovieResponse>> getAllMovies(
-            @ParameterObject Pageable pageable) {
+            @ParameterObject Pageable pageable,
+            @Parameter(description = "Set to actors to embed actor summaries") @RequestParam(required = false) String expand,
+            WebRequest webRequest) {
+        boolean expandActors = expandsActors(expand);
+        CollectionVersion.Stamp stamp = collectionVersion.current();
+        if (!expandActors && webRequest.checkNotModified(collectionVersion.etag(stamp), stamp.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         Page<Movie> movies = movieService.getAllMovies(pageable);
         if (movies.isEmpty()) {
             throw new NoMoviesFoundException();
         }
         Page<MovieResponse> response = movies.map(movieMapper::toResponse);
+        if (expandActors) {
+            return expanded(response, addCast(response.getContent()));
+        }
         return ResponseEntity.ok()
                 .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
                 .body(response);
     }
 
+    @Operation(summary = "Get movies with keyset pagination", description = "Retrieves movies ordered by IMDB ID, page by page with continuation tokens and without a total count")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Movies retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageResponse<MovieResponse>> getMoviesByCursor(
+            @Parameter(description = "Continuation token of the previous page, omitted for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "50") int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new InvalidMovieDataException("size", "Size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        String afterImdbId = CursorCodec.decode(cursor);
+        // One movie more than requested tells whether there is a next page
+        List<Movie> movies = movieService.getMoviesAfter(afterImdbId, size + 1);
+        if (movies.isEmpty() && afterImdbId == null) {
+            throw new NoMoviesFoundException();
+        }
+        boolean hasNext = movies.size() > size;
+        List<MovieResponse> content = movies.stream()
+                .limit(size)
+                .map(movieMapper::toResponse)
+                .toList();
+        String nextCursor = hasNext ? CursorCodec.encode(content.get(content.size() - 1).getImdbId()) : null;
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                .body(new CursorPageResponse<>(content, content.size(), nextCursor));
+    }
+
     @Operation(summary = "Get movie by IMDB ID", description = "Retrieves a movie by its IMDB ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Movie retrieved successfully"),
@@ -91,11 +221,26 @@ public class MovieController {
     })
     @GetMapping("/{imdbId}")
     public ResponseEntity<MovieResponse> getMovieById(
-            @Parameter(description = "Movie IMDB ID") @PathVariable String imdbId) {
+            @Parameter(description = "Movie IMDB ID") @PathVariable String imdbId,
+            @Parameter(description = "Set to actors to embed actor summaries") @RequestParam(required = false) String expand,
+            WebRequest webRequest) {
+        boolean expandActors = expandsActors(expand);
         Movie movie = movieService.getMovieById(imdbId);
         if (movie == null) {
             throw new MovieNotFoundException(imdbId);
         }
+        if (expandActors) {
+            // The validators cover the movie only, not the embedded actors
+            MovieResponse response = movieMapper.toResponse(movie);
+            return expanded(response, addCast(List.of(response)));
+        }
+        if (movie.getUpdatedAt() != null) {
+            long lastModified = movie.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            // Weak, Tomcat does not compress responses carrying a strong ETag
+            if (webRequest.checkNotModified("W/\"" + lastModified + "\"", lastModified)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+        }
         return ResponseEntity.ok()
                 .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
                 .body(movieMapper.toResponse(movie));
@@ -168,6 +313,143 @@ public class MovieController {
         return ResponseEntity.noContent().build();
     }
 
+    @Operation(summary = "Get movies by IMDB IDs", description = "Retrieves up to 500 movies in one request, in the order of the requested IDs; missing movies are reported per item with status 404")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Movies retrieved, see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/batch")
+    public ResponseEntity<BatchResponse<MovieResponse>> getMoviesByIds(
+            @Parameter(description = "IMDB IDs, comma separated or repeated") @RequestParam List<String> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            throw new InvalidMovieDataException("ids", "Batch must contain between 1 and " + MAX_LOOKUP_SIZE + " items");
+        }
+        Map<String, Movie> movies = movieService.lookupMovies(ids.stream().filter(id -> !id.isBlank()).toList());
+        List<BatchItemResult<MovieResponse>> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            BatchItemResult<MovieResponse> result = new BatchItemResult<>(i, HttpStatus.OK.value(), null, null);
+            Movie movie = movies.get(ids.get(i));
+            if (ids.get(i).isBlank()) {
+                reject(result, HttpStatus.BAD_REQUEST, "IMDB ID is required");
+            } else if (movie == null) {
+                reject(result, HttpStatus.NOT_FOUND, new MovieNotFoundException(ids.get(i)).getMessage());
+            } else {
+                result.setItem(movieMapper.toResponse(movie));
+            }
+            results.add(result);
+        }
+        int failed = (int) results.stream().filter(result -> result.getError() != null).count();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                .body(new BatchResponse<>(results.size() - failed, failed, results));
+    }
+
+    @Operation(summary = "Create movies in bulk", description = "Creates up to 1000 movies in one transaction. Invalid, duplicate and existing movies are reported per item, the others are created")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponse<MovieResponse>> createMovies(
+            @Parameter(description = "Movies to create") @RequestBody List<MovieRequest> requests) {
+        checkBatchSize(requests);
+        List<BatchItemResult<MovieResponse>> results = validateBatch(requests);
+        DataIntegrityViolationException conflict = null;
+        while (true) {
+            Set<String> existing = movieService.findExistingImdbIds(pendingIds(requests, results));
+            if (conflict != null && existing.isEmpty()) {
+                throw conflict;
+            }
+            List<Movie> movies = new ArrayList<>();
+            for (BatchItemResult<MovieResponse> result : results) {
+                MovieRequest request = requests.get(result.getIndex());
+                if (result.getError() == null && existing.contains(request.getImdbId())) {
+                    reject(result, HttpStatus.CONFLICT, new MovieAlreadyExistsException(request.getImdbId()).getMessage());
+                } else if (result.getError() == null) {
+                    movies.add(movieMapper.toEntity(request));
+                }
+            }
+            try {
+                Iterator<Movie> created = movieService.createMovies(movies).iterator();
+                return ResponseEntity.ok(complete(results, HttpStatus.CREATED, created));
+            } catch (DataIntegrityViolationException e) {
+                // Movies created concurrently since the check, they are conflicts on the next round and the rest is written again
+                conflict = e;
+            }
+        }
+    }
+
+    @Operation(summary = "Update movies in bulk", description = "Updates up to 1000 movies, identified by their IMDB ID, in one transaction. Invalid, duplicate and missing movies are reported per item, the others are updated")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/batch")
+    public ResponseEntity<BatchResponse<MovieResponse>> updateMovies(
+            @Parameter(description = "Updated movie details") @RequestBody List<MovieRequest> requests) {
+        checkBatchSize(requests);
+        List<BatchItemResult<MovieResponse>> results = validateBatch(requests);
+        Map<String, Consumer<Movie>> changes = new HashMap<>();
+        for (BatchItemResult<MovieResponse> result : results) {
+            MovieRequest request = requests.get(result.getIndex());
+            if (result.getError() == null) {
+                changes.put(request.getImdbId(), movie -> movieMapper.updateEntity(movie, request));
+            }
+        }
+        // Found and changed in the write transaction, a movie deleted meanwhile is reported and not written again
+        Map<String, Movie> updatedMovies = movieService.updateMovies(changes);
+        List<Movie> updated = new ArrayList<>();
+        for (BatchItemResult<MovieResponse> result : results) {
+            MovieRequest request = requests.get(result.getIndex());
+            Movie movie = updatedMovies.get(request.getImdbId());
+            if (result.getError() == null && movie == null) {
+                reject(result, HttpStatus.NOT_FOUND, new MovieNotFoundException(request.getImdbId()).getMessage());
+            } else if (result.getError() == null) {
+                updated.add(movie);
+            }
+        }
+        return ResponseEntity.ok(complete(results, HttpStatus.OK, updated.iterator()));
+    }
+
+    @Operation(summary = "Delete movies in bulk", description = "Deletes up to 1000 movies by their IMDB IDs in one transaction, missing movies are reported per item")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping("/batch")
+    public ResponseEntity<BatchResponse<MovieResponse>> deleteMovies(
+            @Parameter(description = "IMDB IDs of the movies to delete") @RequestBody List<String> imdbIds) {
+        checkBatchSize(imdbIds);
+        List<BatchItemResult<MovieResponse>> results = new ArrayList<>(imdbIds.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < imdbIds.size(); i++) {
+            BatchItemResult<MovieResponse> result = new BatchItemResult<>(i, 0, null, null);
+            String imdbId = imdbIds.get(i);
+            if (imdbId == null || imdbId.isBlank()) {
+                reject(result, HttpStatus.BAD_REQUEST, "IMDB ID is required");
+            } else if (!seen.add(imdbId)) {
+                reject(result, HttpStatus.CONFLICT, "Duplicate IMDB ID in batch: " + imdbId);
+            }
+            results.add(result);
+        }
+        Set<String> deleted = movieService.deleteMovies(seen);
+        for (BatchItemResult<MovieResponse> result : results) {
+            String imdbId = imdbIds.get(result.getIndex());
+            if (result.getError() == null && !deleted.contains(imdbId)) {
+                reject(result, HttpStatus.NOT_FOUND, new MovieNotFoundException(imdbId).getMessage());
+            }
+        }
+        return ResponseEntity.ok(complete(results, HttpStatus.NO_CONTENT, Collections.emptyIterator()));
+    }
+
     @Operation(summary = "Search movies with pagination support", description = "Searches movies by title or description with searchTerm and pagination support")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Search completed successfully"),
@@ -178,20 +460,128 @@ public class MovieController {
     @GetMapping("/search")
     public ResponseEntity<Page<MovieResponse>> searchMovies(
             @Parameter(description = "Search term") @RequestParam String searchTerm,
-            @ParameterObject Pageable pageable) {
+            @ParameterObject Pageable pageable,
+            @Parameter(description = "Set to actors to embed actor summaries") @RequestParam(required = false) String expand,
+            WebRequest webRequest) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             throw new InvalidMovieDataException("searchTerm", "SearchTerm cannot be empty");
         }
+        boolean expandActors = expandsActors(expand);
+        CollectionVersion.Stamp stamp = collectionVersion.current();
+        if (!expandActors && webRequest.checkNotModified(collectionVersion.etag(stamp), stamp.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         Page<Movie> movies = movieService.searchMovies(searchTerm, pageable);
         if (movies.isEmpty()) {
             throw new NoMoviesFoundException();
         }
         Page<MovieResponse> response = movies.map(movieMapper::toResponse);
+        if (expandActors) {
+            return expanded(response, addCast(response.getContent()));
+        }
         return ResponseEntity.ok()
                 .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
                 .body(response);
     }
 
+    private static boolean expandsActors(String expand) {
+        if (expand == null) {
+            return false;
+        }
+        if (!EXPAND_ACTORS.equals(expand)) {
+            throw new InvalidMovieDataException("expand", "Only actors can be expanded");
+        }
+        return true;
+    }
+
+    // One actors lookup for all the movies, true when actors-service could not be asked
+    private boolean addCast(List<MovieResponse> movies) {
+        Set<Long> actorIds = movies.stream()
+                .filter(movie -> movie.getActors() != null)
+                .flatMap(movie -> movie.getActors().stream())
+                .collect(Collectors.toSet());
+        ActorsClient.ActorLookup lookup = actorsClient.getActors(actorIds);
+        for (MovieResponse movie : movies) {
+            movie.setCast(movie.getActors() == null ? List.of() : movie.getActors().stream()
+                    .sorted()
+                    .map(lookup.actors()::get)
+                    .filter(Objects::nonNull)
+                    .toList());
+        }
+        return lookup.degraded();
+    }
+
+    // A degraded response is not stored anywhere, the next request asks actors-service again
+    private static <T> ResponseEntity<T> expanded(T body, boolean degraded) {
+        if (degraded) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .header(DEGRADED_HEADER, EXPAND_ACTORS)
+                    .body(body);
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(30, TimeUnit.MINUTES))
+                .body(body);
+    }
+
+    private static void checkBatchSize(List<?> batch) {
+        if (batch == null || batch.isEmpty() || batch.size() > MAX_BATCH_SIZE) {
+            throw new InvalidMovieDataException("batch", "Batch must contain between 1 and " + MAX_BATCH_SIZE + " items");
+        }
+    }
+
+    // Bean validation of every item, the first occurrence of an IMDB ID wins over later duplicates
+    private List<BatchItemResult<MovieResponse>> validateBatch(List<MovieRequest> requests) {
+        List<BatchItemResult<MovieResponse>> results = new ArrayList<>(requests.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BatchItemResult<MovieResponse> result = new BatchItemResult<>(i, 0, null, null);
+            MovieRequest request = requests.get(i);
+            Set<ConstraintViolation<MovieRequest>> violations = request == null ? Set.of() : validator.validate(request);
+            if (request == null) {
+                reject(result, HttpStatus.BAD_REQUEST, "Movie is required");
+            } else if (!violations.isEmpty()) {
+                reject(result, HttpStatus.BAD_REQUEST, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            } else if (!seen.add(request.getImdbId())) {
+                reject(result, HttpStatus.CONFLICT, "Duplicate IMDB ID in batch: " + request.getImdbId());
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static List<String> pendingIds(List<MovieRequest> requests, List<BatchItemResult<MovieResponse>> results) {
+        return results.stream()
+                .filter(result -> result.getError() == null)
+                .map(result -> requests.get(result.getIndex()).getImdbId())
+                .toList();
+    }
+
+    private static void reject(BatchItemResult<MovieResponse> result, HttpStatus status, String error) {
+        result.setStatus(status.value());
+        result.setError(error);
+    }
+
+    // The written movies come back in the order of the accepted items
+    private BatchResponse<MovieResponse> complete(List<BatchItemResult<MovieResponse>> results, HttpStatus status,
+                                                  Iterator<Movie> written) {
+        int failed = 0;
+        for (BatchItemResult<MovieResponse> result : results) {
+            if (result.getError() != null) {
+                failed++;
+            } else {
+                result.setStatus(status.value());
+                if (written.hasNext()) {
+                    result.setItem(movieMapper.toResponse(written.next()));
+                }
+            }
+        }
+        return new BatchResponse<>(results.size() - failed, failed, results);
+    }
+
     @Operation(summary = "Get request statistics", description = "Retrieves the total number of requests made to the service")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
@@ -200,6 +590,17 @@ public class MovieController {
     })
     @GetMapping("/stats/requests")
     public ResponseEntity<Long> getRequestCount() {
-        return ResponseEntity.ok(movieServiceImpl.getRequestCount());
+        return ResponseEntity.ok(requestStatistics.total());
+    }
+
+    @Operation(summary = "Get request statistics by endpoint", description = "Retrieves the number of requests served since startup, cached responses included, in total and by endpoint, method and status")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Invalid or missing token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/stats/requests/detail")
+    public ResponseEntity<RequestStatsResponse> getRequestStatistics() {
+        return ResponseEntity.ok(requestStatistics.snapshot());
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package si.src.bcc.movies.datasource;
+
+/**
+ * Per-thread choice between replicas and the primary for read-only transactions, set by
+ * {@link ReadConsistencyFilter} for the request being handled.
+ */
+public final class ReadConsistency {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadConsistency() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    public static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PRIMARY_REQUIRED.remove();
+    }
+}
@@ -0,0 +1,16 @@
+package si.src.bcc.movies.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ActorSummary {
+    private Long id;
+    private String firstName;
+    private String lastName;
+}
@@ -0,0 +1,19 @@
+package si.src.bcc.movies.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult<T> {
+    // Position of the item in the request array
+    private int index;
+    // HTTP status the item would have got as a single request
+    private int status;
+    private String error;
+    private T item;
+}
@@ -0,0 +1,15 @@
+package si.src.bcc.movies.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResponse<T> {
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult<T>> results;
+}
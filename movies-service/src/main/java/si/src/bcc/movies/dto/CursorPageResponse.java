@@ -0,0 +1,16 @@
+package si.src.bcc.movies.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private int size;
+    // Continuation token of the next page, null on the last page
+    private String nextCursor;
+}
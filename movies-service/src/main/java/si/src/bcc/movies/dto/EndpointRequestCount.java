@@ -0,0 +1,16 @@
+package si.src.bcc.movies.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EndpointRequestCount {
+    // Route template, UNMATCHED or OTHER as on the http_requests_total metric
+    private String path;
+    private String method;
+    private int status;
+    private long count;
+}
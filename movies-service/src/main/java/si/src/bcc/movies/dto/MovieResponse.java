@@ -1,10 +1,12 @@
 package si.src.bcc.movies.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 import java.time.LocalDateTime;
 import java.time.Year;
+import java.util.List;
 import java.util.Set;
 
 @Data
@@ -15,6 +17,10 @@ public class MovieResponse {
     private Set<Long> actors;
     private Set<String> pictures;
 
+    // Actor summaries ordered by id, only with ?expand=actors
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ActorSummary> cast;
+
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy")
     @Schema(type = "string", example = "2025", pattern = "^\\d{4}$")
     private Year year;
@@ -0,0 +1,10 @@
+package si.src.bcc.movies.event;
+
+import java.util.List;
+
+/**
+ * Published instead of one {@link MovieChangedEvent} per movie when many movies change at once, by the batch
+ * endpoints and for invalidations received from other replicas. Listeners handle the whole batch in one pass.
+ */
+public record MovieBatchChangedEvent(List<MovieChangedEvent> changes) {
+}
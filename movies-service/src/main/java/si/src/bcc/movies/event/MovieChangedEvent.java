@@ -0,0 +1,36 @@
+package si.src.bcc.movies.event;
+
+import si.src.bcc.movies.model.Movie;
+
+/**
+ * Published by the movie service after a movie has been created, updated or deleted.
+ * Listeners use it to keep caches and other derived state consistent with the database.
+ * <p>
+ * Changes made by other replicas arrive through the cache invalidation bus as remote events,
+ * they carry only the change type and the id.
+ * <p>
+ * {@code searchTextChanged} is false only for updates known to keep the title and description, those cannot move
+ * the movie into or out of search results.
+ */
+public record MovieChangedEvent(ChangeType type, String imdbId, Movie movie, boolean searchTextChanged, boolean remote) {
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    public static MovieChangedEvent created(Movie movie) {
+        return new MovieChangedEvent(ChangeType.CREATED, movie.getImdbId(), movie, true, false);
+    }
+
+    public static MovieChangedEvent updated(Movie movie, boolean searchTextChanged) {
+        return new MovieChangedEvent(ChangeType.UPDATED, movie.getImdbId(), movie, searchTextChanged, false);
+    }
+
+    public static MovieChangedEvent deleted(String imdbId) {
+        return new MovieChangedEvent(ChangeType.DELETED, imdbId, null, true, false);
+    }
+
+    public static MovieChangedEvent remote(ChangeType type, String imdbId) {
+        return new MovieChangedEvent(type, imdbId, null, true, true);
+    }
+}
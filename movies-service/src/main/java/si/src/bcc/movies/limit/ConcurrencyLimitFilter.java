@@ -0,0 +1,159 @@
+package si.src.bcc.movies.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import si.src.bcc.movies.properties.ConcurrencyLimitProperties;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sheds load once the requests in flight reach the limit learned by {@link GradientConcurrencyLimit}.
+ * <p>
+ * Requests over the limit get an immediate 503 with {@code Retry-After} instead of queueing in front of the
+ * Tomcat workers. Writes and full scans may only take {@code low-priority-share} of the limit, the rest is kept
+ * for the cheap reads, most of which the caches answer. An async request, like /all/stream, holds its place until
+ * it completes but is not sampled, its duration is not a latency.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final byte[] REJECTED_BODY = "{\"status\":503,\"message\":\"The service is overloaded, please retry.\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final GradientConcurrencyLimit limit;
+    private final ConcurrencyLimitProperties properties;
+    private final List<PathPattern> lowPriorityPatterns;
+    private final List<PathPattern> exemptPatterns;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedHigh;
+    private final Counter rejectedLow;
+
+    public ConcurrencyLimitFilter(GradientConcurrencyLimit limit, ConcurrencyLimitProperties properties,
+                                  MeterRegistry registry) {
+        this.limit = limit;
+        this.properties = properties;
+        this.lowPriorityPatterns = properties.getLowPriorityPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        this.exemptPatterns = properties.getExemptPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        Gauge.builder("concurrency_limit", limit, GradientConcurrencyLimit::getLimit)
+                .tag("service", "movies-service")
+                .register(registry);
+        Gauge.builder("concurrency_limit_in_flight", inFlight, AtomicInteger::get)
+                .tag("service", "movies-service")
+                .register(registry);
+        this.rejectedHigh = rejectedCounter(registry, "high");
+        this.rejectedLow = rejectedCounter(registry, "low");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || matches(exemptPatterns, request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean lowPriority = isLowPriority(request);
+        int admittedWith = tryAcquire(lowPriority);
+        if (admittedWith < 0) {
+            (lowPriority ? rejectedLow : rejectedHigh).increment();
+            reject(response);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                async = true;
+                request.getAsyncContext().addListener(new ReleasingListener());
+            } else {
+                limit.onSample(System.nanoTime() - start, admittedWith);
+            }
+        } finally {
+            if (!async) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    // The requests in flight with this one admitted, or -1 when it is over the limit of its priority
+    private int tryAcquire(boolean lowPriority) {
+        int currentLimit = limit.getLimit();
+        int allowed = lowPriority ? Math.max(1, (int) (currentLimit * properties.getLowPriorityShare())) : currentLimit;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    private boolean isLowPriority(HttpServletRequest request) {
+        boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        return !read || matches(lowPriorityPatterns, request);
+    }
+
+    private static boolean matches(List<PathPattern> patterns, HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        return patterns.stream().anyMatch(pattern -> pattern.matches(path));
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, properties.getRetryAfter().toSeconds())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTED_BODY.length);
+        response.getOutputStream().write(REJECTED_BODY);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String priority) {
+        return Counter.builder("concurrency_limit_rejected_total")
+                .tag("priority", priority)
+                .tag("service", "movies-service")
+                .register(registry);
+    }
+
+    private class ReleasingListener implements AsyncListener {
+
+        // Also called after an error or a timeout
+        @Override
+        public void onComplete(AsyncEvent event) {
+            inFlight.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
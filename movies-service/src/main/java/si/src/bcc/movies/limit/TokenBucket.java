@@ -0,0 +1,41 @@
+package si.src.bcc.movies.limit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket holding {@code limit} tokens and refilled by {@code limit} tokens per {@code period}.
+ * <p>
+ * Kept as a single timestamp, the generic cell rate algorithm: the theoretical time at which the bucket would be
+ * full again. Taking a token moves it one refill interval ahead, which is allowed as long as it stays within
+ * {@code period} of now. Concurrent requests race on one compare-and-set.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long periodNanos;
+    private final AtomicLong fullAt;
+
+    public record Probe(boolean allowed, long remaining, long fullInNanos, long retryInNanos) {
+    }
+
+    public TokenBucket(int limit, Duration period, long nowNanos) {
+        this.periodNanos = period.toNanos();
+        this.intervalNanos = Math.max(1, periodNanos / limit);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    public Probe tryConsume(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long base = current - nowNanos > 0 ? current : nowNanos;
+            long next = base + intervalNanos;
+            if (next - nowNanos > periodNanos) {
+                return new Probe(false, 0, base - nowNanos, next - periodNanos - nowNanos);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return new Probe(true, (periodNanos - (next - nowNanos)) / intervalNanos, next - nowNanos, 0);
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -36,11 +37,13 @@ public class Movie {
     private String description;
 
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "movie_actors", schema = "movies", joinColumns = @JoinColumn(name = "imdb_id"))
     @Column(name = "actor_id")
     private Set<Long> actors = new HashSet<>();
 
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "movie_pictures", schema = "movies", joinColumns = @JoinColumn(name = "imdb_id"))
     @Column(name = "picture_url")
     private Set<String> pictures = new HashSet<>();
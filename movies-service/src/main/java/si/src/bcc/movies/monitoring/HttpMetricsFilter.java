@@ -0,0 +1,88 @@
+package si.src.bcc.movies.monitoring;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts and times every request on the meters of its route, see {@link HttpRouteMetrics}, and counts it by status in
+ * {@link RequestStatistics}. Requests that go async, like the streamed /all, are recorded when the async request
+ * completes, with the status and duration of the whole response.
+ */
+public class HttpMetricsFilter extends OncePerRequestFilter {
+
+    private final HttpRouteMetrics routeMetrics;
+    private final RequestStatistics statistics;
+
+    public HttpMetricsFilter(HttpRouteMetrics routeMetrics, RequestStatistics statistics) {
+        this.routeMetrics = routeMetrics;
+        this.statistics = statistics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        HttpRouteMetrics.Meters meters = routeMetrics.meters(request.getMethod(), path);
+        meters.requests().increment();
+        long start = System.nanoTime();
+        // An exception leaving the chain is answered with 500 by the error page
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                async = true;
+                request.getAsyncContext().addListener(new RecordingListener(meters, response, start));
+            }
+            status = response.getStatus();
+        } finally {
+            if (!async) {
+                record(meters, start, status);
+            }
+        }
+    }
+
+    private void record(HttpRouteMetrics.Meters meters, long start, int status) {
+        meters.duration().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        statistics.record(meters.path(), meters.method(), status);
+    }
+
+    private class RecordingListener implements AsyncListener {
+
+        private final HttpRouteMetrics.Meters meters;
+        private final HttpServletResponse response;
+        private final long start;
+
+        RecordingListener(HttpRouteMetrics.Meters meters, HttpServletResponse response, long start) {
+            this.meters = meters;
+            this.response = response;
+            this.start = start;
+        }
+
+        // Also called after an error or a timeout, once the error status is set
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(meters, start, response.getStatus());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
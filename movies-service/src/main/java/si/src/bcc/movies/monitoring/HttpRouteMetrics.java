@@ -0,0 +1,133 @@
+package si.src.bcc.movies.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import si.src.bcc.movies.properties.HttpMetricsProperties;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The {@code http_requests_total} and {@code http_request_duration_seconds} meters, one pair per route template and
+ * method, all registered at startup.
+ * <p>
+ * The routes are the request mappings of the controllers and actuator endpoints. A request is matched against their
+ * templates, most specific first, so {@code /api/movies/tt1234567} is measured as {@code /api/movies/{imdbId}}.
+ * Requests matching no route, or using a method the route does not declare, share the path UNMATCHED. The cap
+ * {@code max-routes} counts route and method pairs, the pairs over it share the path OTHER. The number of meters is
+ * fixed whatever the clients send.
+ */
+@Slf4j
+@Component
+public class HttpRouteMetrics implements SmartInitializingSingleton {
+
+    static final String UNMATCHED = "UNMATCHED";
+    static final String OTHER = "OTHER";
+    private static final Set<String> ANY_METHOD = Set.of("GET", "POST", "PUT", "PATCH", "DELETE");
+
+    // The path and method the meters are tagged with
+    public record Meters(String path, String method, Counter requests, Timer duration) {
+    }
+
+    private record Route(PathPattern pattern, Map<String, Meters> methods) {
+    }
+
+    private final ApplicationContext applicationContext;
+    private final MeterRegistry registry;
+    private final HttpMetricsProperties properties;
+    private final Meters unmatched;
+    private final Map<String, Meters> other = new HashMap<>();
+    private volatile List<Route> routes = List.of();
+
+    @Autowired
+    public HttpRouteMetrics(ApplicationContext applicationContext, MeterRegistry registry,
+                            HttpMetricsProperties properties) {
+        this.applicationContext = applicationContext;
+        this.registry = registry;
+        this.properties = properties;
+        this.unmatched = register(UNMATCHED, OTHER);
+    }
+
+    // The handler mappings have registered their handler methods by now
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<String, Set<String>> templates = new TreeMap<>();
+        for (RequestMappingInfoHandlerMapping mapping : applicationContext.getBeansOfType(RequestMappingInfoHandlerMapping.class).values()) {
+            for (RequestMappingInfo info : mapping.getHandlerMethods().keySet()) {
+                Set<String> methods = new TreeSet<>();
+                info.getMethodsCondition().getMethods().stream().map(RequestMethod::name).forEach(methods::add);
+                for (String template : info.getPatternValues()) {
+                    templates.computeIfAbsent(template, key -> new TreeSet<>()).addAll(methods.isEmpty() ? ANY_METHOD : methods);
+                }
+            }
+        }
+        List<Route> built = new ArrayList<>();
+        int registered = 0;
+        int overflowed = 0;
+        for (Map.Entry<String, Set<String>> template : templates.entrySet()) {
+            Map<String, Meters> methods = new HashMap<>();
+            for (String method : template.getValue()) {
+                if (registered < properties.getMaxRoutes()) {
+                    methods.put(method, register(template.getKey(), method));
+                    registered++;
+                } else {
+                    methods.put(method, other.computeIfAbsent(method, key -> register(OTHER, key)));
+                    overflowed++;
+                }
+            }
+            built.add(new Route(PathPatternParser.defaultInstance.parse(template.getKey()), methods));
+        }
+        if (overflowed > 0) {
+            log.warn("More route and method pairs than http-metrics.max-routes ({}), {} are measured as {}",
+                    properties.getMaxRoutes(), overflowed, OTHER);
+        }
+        built.sort(Comparator.comparing(Route::pattern, PathPattern.SPECIFICITY_COMPARATOR));
+        routes = List.copyOf(built);
+        log.info("Registered HTTP metrics for {} route and method pairs", registered);
+    }
+
+    public Meters meters(String method, PathContainer path) {
+        for (Route route : routes) {
+            if (route.pattern().matches(path)) {
+                Meters meters = route.methods().get(method);
+                return meters != null ? meters : unmatched;
+            }
+        }
+        return unmatched;
+    }
+
+    private Meters register(String path, String method) {
+        Counter requests = Counter.builder("http_requests_total")
+                .tag("path", path)
+                .tag("method", method)
+                .tag("service", "movies-service")
+                .register(registry);
+        Timer duration = Timer.builder("http_request_duration_seconds")
+                .tag("path", path)
+                .tag("method", method)
+                .tag("service", "movies-service")
+                .publishPercentileHistogram(properties.isPercentilesHistogram())
+                .publishPercentiles(properties.getPercentiles().stream().mapToDouble(Double::doubleValue).toArray())
+                .serviceLevelObjectives(properties.getSlo().toArray(Duration[]::new))
+                .register(registry);
+        return new Meters(path, method, requests, duration);
+    }
+}
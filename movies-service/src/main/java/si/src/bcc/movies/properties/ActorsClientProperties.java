@@ -0,0 +1,24 @@
+package si.src.bcc.movies.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "actors-client")
+public class ActorsClientProperties {
+    private String baseUrl = "http://localhost:8082";
+    private Duration connectTimeout = Duration.ofMillis(500);
+    private Duration readTimeout = Duration.ofSeconds(1);
+    // Bulkhead, calls over the limit wait at most max-wait and then get a degraded response
+    private int maxConcurrentCalls = 20;
+    private Duration maxWait = Duration.ZERO;
+    // Consecutive failures that open the circuit, after open-duration a single trial call may close it again
+    private int failureThreshold = 5;
+    private Duration openDuration = Duration.ofSeconds(10);
+    // Near-cache of actor summaries, not-found actors included
+    private long cacheMaximumSize = 10000;
+    private Duration cacheTtl = Duration.ofMinutes(5);
+}
@@ -1,8 +1,13 @@
 package si.src.bcc.movies.properties;
 
+import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Data
 @Component
@@ -11,8 +16,31 @@ public class CacheProperties {
 
     private Caffeine caffeine = new Caffeine();
 
+    // Caffeine rejects both bounds on one cache with a bare IllegalStateException, name the cache instead
+    @PostConstruct
+    public void validate() {
+        caffeine.getCaches().forEach((name, spec) -> {
+            if (spec.getMaximumSize() != null && spec.getMaximumWeight() != null) {
+                throw new IllegalStateException("spring.cache.caffeine.caches." + name
+                        + ": set either maximum-size or maximum-weight, not both");
+            }
+        });
+    }
+
     @Data
     public static class Caffeine {
+        // Used for caches without their own entry in 'caches'
         private String spec = "maximumSize=1000,expireAfterWrite=30m";
+        private Map<String, CacheSpec> caches = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class CacheSpec {
+        // Either maximumSize (entries) or maximumWeight (estimated bytes), not both
+        private Long maximumSize;
+        private DataSize maximumWeight;
+        private Duration expireAfterWrite;
+        private Duration expireAfterAccess;
+        private Duration refreshAfterWrite;
     }
-}
\ No newline at end of file
+}
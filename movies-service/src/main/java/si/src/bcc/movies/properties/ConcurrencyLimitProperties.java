@@ -0,0 +1,34 @@
+package si.src.bcc.movies.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+    private int initialLimit = 100;
+    private int minLimit = 10;
+    // Tomcat's max-threads, with virtual threads the connection guard is the next bound
+    private int maxLimit = 200;
+    // Latency within this factor of the long-term average does not count as queueing
+    private double rttTolerance = 1.5;
+    // Weight of a new limit against the current one
+    private double smoothing = 0.2;
+    // Latencies are averaged over a window of at least this long and min-window-samples requests
+    private Duration sampleWindow = Duration.ofSeconds(1);
+    private int minWindowSamples = 10;
+    // Windows the long-term latency is averaged over
+    private int longWindow = 100;
+    // Share of the limit writes and full scans may take, the rest is kept for cheap reads
+    private double lowPriorityShare = 0.75;
+    private List<String> lowPriorityPaths = new ArrayList<>(List.of("/api/movies/all", "/api/movies/all/stream"));
+    // Never limited, like the health checks of the orchestrator
+    private List<String> exemptPaths = new ArrayList<>(List.of("/actuator/**"));
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
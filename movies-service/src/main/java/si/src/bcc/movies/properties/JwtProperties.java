@@ -3,6 +3,7 @@ package si.src.bcc.movies.properties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
 
 @Data
 @Configuration
@@ -11,4 +12,9 @@ public class JwtProperties {
     private String username;
     private String password;
     private Long expiration;
+    // Base64 HS256 key, shared with the reactive read service; a random key per instance when empty
+    private String secret;
+    // Verified tokens are remembered until they expire, at most this long and this many
+    private Duration verifiedCacheMaxTtl = Duration.ofHours(1);
+    private long verifiedCacheMaximumSize = 10000;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package si.src.bcc.movies.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    // Buckets unused this long are dropped, being longer than every period a dropped bucket was full anyway
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private long maximumBuckets = 100_000;
+    // The first group matching a request applies, requests matching none are not limited
+    private List<Group> groups = new ArrayList<>();
+
+    @Data
+    public static class Group {
+        private String name;
+        private List<String> paths = new ArrayList<>();
+        // Any method when empty
+        private List<String> methods = new ArrayList<>();
+        // Requests per period of one client, also the burst it may send at once
+        private int limit = 100;
+        private Duration period = Duration.ofSeconds(1);
+    }
+}
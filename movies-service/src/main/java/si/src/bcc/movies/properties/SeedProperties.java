@@ -0,0 +1,24 @@
+package si.src.bcc.movies.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "seed")
+public class SeedProperties {
+    // Set by the seed profile, loads the dataset and exits instead of serving requests
+    private boolean enabled = false;
+    // Both services must use the same counts and seed, so the links of both schemas match
+    private long movies = 1_000_000;
+    private long actors = 200_000;
+    private long links = 5_000_000;
+    private int picturesPerMovie = 2;
+    private long seed = 42;
+    // Rows per JDBC batch and commit when the database has no COPY (H2)
+    private int batchSize = 10_000;
+    // Empties the tables first, so every run starts from the same data
+    private boolean truncate = true;
+    private boolean exit = true;
+}
@@ -0,0 +1,142 @@
+package si.src.bcc.movies.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import si.src.bcc.movies.model.Movie;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Read paths of the movies: rows through constructor expressions plus one query per collection, assembled into
+ * plain movies that the persistence context never sees. Same statements as the entity reads with batch fetched
+ * collections, without entity snapshots, collection wrappers and dirty checking.
+ * <p>
+ * The movies are detached values, the caches hold them as they hold detached entities. Call inside a read-only
+ * transaction.
+ */
+@Component
+public class MovieProjections {
+
+    // Bounds the IN lists of the collection queries
+    private static final int COLLECTION_BATCH_SIZE = 1000;
+
+    private final MovieRepository movieRepository;
+
+    @Autowired
+    public MovieProjections(MovieRepository movieRepository) {
+        this.movieRepository = movieRepository;
+    }
+
+    public List<Movie> findAll() {
+        Map<String, Movie> movies = toMovies(movieRepository.findAllRows());
+        addCollections(movies, movieRepository.findAllActorIds(), movieRepository.findAllPictures());
+        return new ArrayList<>(movies.values());
+    }
+
+    public Page<Movie> findAll(Pageable pageable) {
+        Page<MovieRow> rows = movieRepository.findRows(pageable);
+        return new PageImpl<>(withCollections(rows.getContent()), pageable, rows.getTotalElements());
+    }
+
+    // The row and each collection on their own, joining both collections would return actors times pictures rows
+    public Movie findById(String imdbId) {
+        List<Movie> movies = withCollections(movieRepository.findRowsByImdbIdIn(List.of(imdbId)));
+        return movies.isEmpty() ? null : movies.get(0);
+    }
+
+    public List<Movie> findAllById(Collection<String> imdbIds) {
+        List<MovieRow> rows = new ArrayList<>(imdbIds.size());
+        for (List<String> batch : batches(imdbIds)) {
+            rows.addAll(movieRepository.findRowsByImdbIdIn(batch));
+        }
+        return withCollections(rows);
+    }
+
+    // The movies of a page of ids in the order of the ids, a movie deleted since the ids were read is skipped
+    public Page<Movie> findAllInOrder(Page<String> imdbIds) {
+        Map<String, Movie> movies = new LinkedHashMap<>();
+        findAllById(imdbIds.getContent()).forEach(movie -> movies.put(movie.getImdbId(), movie));
+        List<Movie> ordered = imdbIds.getContent().stream().map(movies::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(ordered, imdbIds.getPageable(), imdbIds.getTotalElements());
+    }
+
+    public List<Movie> findAfter(String afterImdbId, int limit) {
+        return withCollections(afterImdbId == null
+                ? movieRepository.findRowsOrderByImdbId(Limit.of(limit))
+                : movieRepository.findRowsAfterImdbId(afterImdbId, Limit.of(limit)));
+    }
+
+    public Page<Movie> search(String searchTerm, Pageable pageable) {
+        Page<MovieRow> rows = movieRepository.searchMovies(searchTerm, pageable);
+        return new PageImpl<>(withCollections(rows.getContent()), pageable, rows.getTotalElements());
+    }
+
+    public Page<Movie> searchFullText(String searchTerm, Pageable pageable) {
+        return findAllInOrder(movieRepository.searchImdbIdsFullText(searchTerm, pageable));
+    }
+
+    // Rows come from an open cursor, the collections are read per chunk
+    public void streamAll(int chunkSize, Consumer<List<Movie>> chunkConsumer) {
+        try (Stream<MovieRow> rows = movieRepository.streamRows()) {
+            List<MovieRow> chunk = new ArrayList<>(chunkSize);
+            Iterator<MovieRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    chunkConsumer.accept(withCollections(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+    }
+
+    private List<Movie> withCollections(List<MovieRow> rows) {
+        Map<String, Movie> movies = toMovies(rows);
+        for (List<String> batch : batches(movies.keySet())) {
+            addCollections(movies, movieRepository.findActorIds(batch), movieRepository.findPictures(batch));
+        }
+        return new ArrayList<>(movies.values());
+    }
+
+    private static Map<String, Movie> toMovies(List<MovieRow> rows) {
+        Map<String, Movie> movies = new LinkedHashMap<>(rows.size() * 2);
+        rows.forEach(row -> movies.put(row.imdbId(), row.toMovie()));
+        return movies;
+    }
+
+    private static void addCollections(Map<String, Movie> movies, List<Object[]> actorIds, List<Object[]> pictures) {
+        // A movie inserted between the queries has elements but no row, it is skipped
+        for (Object[] actorId : actorIds) {
+            Movie movie = movies.get((String) actorId[0]);
+            if (movie != null) {
+                movie.getActors().add((Long) actorId[1]);
+            }
+        }
+        for (Object[] picture : pictures) {
+            Movie movie = movies.get((String) picture[0]);
+            if (movie != null) {
+                movie.getPictures().add((String) picture[1]);
+            }
+        }
+    }
+
+    private static List<List<String>> batches(Collection<String> imdbIds) {
+        List<String> ids = List.copyOf(imdbIds);
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += COLLECTION_BATCH_SIZE) {
+            batches.add(ids.subList(from, Math.min(from + COLLECTION_BATCH_SIZE, ids.size())));
+        }
+        return batches;
+    }
+}
@@ -1,16 +1,78 @@
 package si.src.bcc.movies.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import si.src.bcc.movies.model.Movie;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface MovieRepository extends JpaRepository<Movie, String> {
 
-    @Query("SELECT m FROM Movie m WHERE LOWER(m.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(m.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<Movie> searchMovies(@Param("searchTerm") String searchTerm, Pageable pageable);
+    // Read paths select rows, not entities, see MovieProjections
+    String ROW = "new si.src.bcc.movies.repository.MovieRow(m.imdbId, m.title, m.year, m.description, m.createdAt, m.updatedAt)";
+    String SEARCH_CONDITION = "LOWER(m.title) LIKE LOWER(CONCAT('%', :searchTerm, '%'))"
+            + " OR LOWER(m.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))";
 
-    Page<Movie> findAll(Pageable pageable);
+    // The expression of the GIN index of PostgresSearchIndexes, a query has to use it as is for the index to serve it
+    String SEARCH_VECTOR = "to_tsvector('simple', coalesce(title, '') || ' ' || coalesce(description, ''))";
+    String FULL_TEXT_CONDITION = "(" + SEARCH_VECTOR + " @@ plainto_tsquery('simple', :searchTerm)"
+            + " OR lower(m.title) LIKE '%' || lower(:searchTerm) || '%'"
+            + " OR lower(m.description) LIKE '%' || lower(:searchTerm) || '%')";
+
+    @Query(value = "SELECT " + ROW + " FROM Movie m WHERE " + SEARCH_CONDITION,
+            countQuery = "SELECT count(m) FROM Movie m WHERE " + SEARCH_CONDITION)
+    Page<MovieRow> searchMovies(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    // PostgreSQL only, see PostgresSearchIndexes: word matches in any order plus the substring matches of searchMovies,
+    // every condition is served by a GIN index and the results are ranked by relevance. Only the ids, the rows follow
+    @Query(value = "SELECT m.imdb_id FROM movies.movies m WHERE " + FULL_TEXT_CONDITION
+            + " ORDER BY ts_rank(" + SEARCH_VECTOR + ", plainto_tsquery('simple', :searchTerm)) DESC, m.imdb_id",
+            countQuery = "SELECT count(*) FROM movies.movies m WHERE " + FULL_TEXT_CONDITION,
+            nativeQuery = true)
+    Page<String> searchImdbIdsFullText(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    @Query("SELECT " + ROW + " FROM Movie m")
+    List<MovieRow> findAllRows();
+
+    @Query(value = "SELECT " + ROW + " FROM Movie m", countQuery = "SELECT count(m) FROM Movie m")
+    Page<MovieRow> findRows(Pageable pageable);
+
+    @Query("SELECT " + ROW + " FROM Movie m WHERE m.imdbId IN :imdbIds")
+    List<MovieRow> findRowsByImdbIdIn(@Param("imdbIds") Collection<String> imdbIds);
+
+    // Rows are fetched from an open cursor as the stream advances, not read into memory at once
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT " + ROW + " FROM Movie m")
+    Stream<MovieRow> streamRows();
+
+    // The collections as (imdbId, element) pairs, for a batch of movies or for all of them
+    @Query("SELECT m.imdbId, a FROM Movie m JOIN m.actors a WHERE m.imdbId IN :imdbIds")
+    List<Object[]> findActorIds(@Param("imdbIds") Collection<String> imdbIds);
+
+    @Query("SELECT m.imdbId, p FROM Movie m JOIN m.pictures p WHERE m.imdbId IN :imdbIds")
+    List<Object[]> findPictures(@Param("imdbIds") Collection<String> imdbIds);
+
+    @Query("SELECT m.imdbId, a FROM Movie m JOIN m.actors a")
+    List<Object[]> findAllActorIds();
+
+    @Query("SELECT m.imdbId, p FROM Movie m JOIN m.pictures p")
+    List<Object[]> findAllPictures();
+
+    // Keyset pagination, seeks on the primary key index instead of skipping OFFSET rows and counting
+    @Query("SELECT " + ROW + " FROM Movie m ORDER BY m.imdbId")
+    List<MovieRow> findRowsOrderByImdbId(Limit limit);
+
+    @Query("SELECT " + ROW + " FROM Movie m WHERE m.imdbId > :imdbId ORDER BY m.imdbId")
+    List<MovieRow> findRowsAfterImdbId(@Param("imdbId") String imdbId, Limit limit);
+
+    @Query("SELECT m.imdbId FROM Movie m WHERE m.imdbId IN :imdbIds")
+    List<String> findExistingImdbIds(@Param("imdbIds") Collection<String> imdbIds);
 }
@@ -0,0 +1,25 @@
+package si.src.bcc.movies.repository;
+
+import si.src.bcc.movies.model.Movie;
+import java.time.LocalDateTime;
+import java.time.Year;
+
+/**
+ * The columns of a movie without its collections, selected through a constructor expression. Never managed by
+ * the persistence context, so reading it takes no entity snapshot and nothing is dirty checked at flush.
+ */
+public record MovieRow(String imdbId, String title, Year year, String description, LocalDateTime createdAt,
+                       LocalDateTime updatedAt) {
+
+    // A plain, unmanaged movie, the collections are filled in by MovieProjections
+    public Movie toMovie() {
+        Movie movie = new Movie();
+        movie.setImdbId(imdbId);
+        movie.setTitle(title);
+        movie.setYear(year);
+        movie.setDescription(description);
+        movie.setCreatedAt(createdAt);
+        movie.setUpdatedAt(updatedAt);
+        return movie;
+    }
+}
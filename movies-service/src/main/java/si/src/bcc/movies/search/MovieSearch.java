@@ -0,0 +1,40 @@
+package si.src.bcc.movies.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import si.src.bcc.movies.model.Movie;
+import si.src.bcc.movies.repository.MovieProjections;
+
+/**
+ * Picks the engine of a movie search: the in-memory index once it is built, then the PostgreSQL full-text index,
+ * then the LIKE query. Shared by the service and the cache loader, so a refreshed search page is ranked the same
+ * way as the one it replaces. Call inside a read-only transaction.
+ */
+@Component
+public class MovieSearch {
+
+    private final MovieProjections movieProjections;
+    private final PostgresSearchIndexes searchIndexes;
+    private final MovieSearchIndex searchIndex;
+
+    @Autowired
+    public MovieSearch(MovieProjections movieProjections, PostgresSearchIndexes searchIndexes, MovieSearchIndex searchIndex) {
+        this.movieProjections = movieProjections;
+        this.searchIndexes = searchIndexes;
+        this.searchIndex = searchIndex;
+    }
+
+    public Page<Movie> search(String searchTerm, Pageable pageable) {
+        if (searchIndex.isActive() && pageable.getSort().isUnsorted()) {
+            // Keeps the ranking of the index
+            return movieProjections.findAllInOrder(searchIndex.search(searchTerm, pageable));
+        }
+        // An explicit sort replaces the relevance order, the LIKE query is still served by the trigram indexes
+        if (searchIndexes.isEnabled() && pageable.getSort().isUnsorted()) {
+            return movieProjections.searchFullText(searchTerm, pageable);
+        }
+        return movieProjections.search(searchTerm, pageable);
+    }
+}
@@ -0,0 +1,169 @@
+package si.src.bcc.movies.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import si.src.bcc.movies.event.MovieBatchChangedEvent;
+import si.src.bcc.movies.event.MovieChangedEvent;
+import si.src.bcc.movies.model.Movie;
+import si.src.bcc.movies.properties.SearchProperties;
+import si.src.bcc.movies.repository.MovieRepository;
+import si.src.bcc.movies.repository.MovieRow;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory BM25 search over movie titles and descriptions, used with {@code search.engine: index}.
+ * <p>
+ * Built at startup by walking the movies in primary key order, then kept current from the change events of
+ * this and, through the invalidation bus, the other replicas. Until the build is done searches use the database.
+ */
+@Slf4j
+@Component
+public class MovieSearchIndex implements ApplicationRunner {
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final MovieRepository movieRepository;
+    private final boolean enabled;
+    private final InvertedIndex<String> index = new InvertedIndex<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Set when a build starts, so changes committed during the build are applied as well
+    private volatile boolean maintained;
+    private volatile boolean ready;
+
+    @Autowired
+    public MovieSearchIndex(MovieRepository movieRepository, SearchProperties properties, MeterRegistry registry) {
+        this.movieRepository = movieRepository;
+        this.enabled = "index".equals(properties.getEngine());
+        Gauge.builder("search_index_documents", this, MovieSearchIndex::size)
+                .tag("service", "movies-service")
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isActive() {
+        return enabled && ready;
+    }
+
+    public void rebuild() {
+        long start = System.nanoTime();
+        ready = false;
+        maintained = true;
+        lock.writeLock().lock();
+        try {
+            index.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        String last = null;
+        int count = 0;
+        while (true) {
+            List<MovieRow> batch;
+            // The batch is read under the lock, a change committed meanwhile is applied after it, never before
+            lock.writeLock().lock();
+            try {
+                batch = last == null
+                        ? movieRepository.findRowsOrderByImdbId(Limit.of(BUILD_BATCH_SIZE))
+                        : movieRepository.findRowsAfterImdbId(last, Limit.of(BUILD_BATCH_SIZE));
+                batch.forEach(row -> index.put(row.imdbId(), tokens(row.title(), row.description())));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            count += batch.size();
+            if (batch.size() < BUILD_BATCH_SIZE) {
+                break;
+            }
+            last = batch.get(batch.size() - 1).imdbId();
+        }
+        ready = true;
+        log.info("Search index built from {} movies in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public Page<String> search(String searchTerm, Pageable pageable) {
+        List<String> tokens = InvertedIndex.tokenize(searchTerm);
+        InvertedIndex.Result<String> result;
+        lock.readLock().lock();
+        try {
+            result = index.search(tokens, pageable.getOffset(), pageable.getPageSize());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new PageImpl<>(result.keys(), pageable, result.total());
+    }
+
+    // Before the cache invalidators, a search cached right after their eviction already sees the change
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        apply(List.of(event));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMoviesChanged(MovieBatchChangedEvent event) {
+        apply(event.changes());
+    }
+
+    private void apply(List<MovieChangedEvent> events) {
+        if (!maintained) {
+            return;
+        }
+        // Remote events carry only the id, their movies are read in one query
+        List<String> remoteIds = events.stream()
+                .filter(event -> event.movie() == null && event.type() != MovieChangedEvent.ChangeType.DELETED)
+                .map(MovieChangedEvent::imdbId)
+                .toList();
+        Map<String, Movie> loaded = remoteIds.isEmpty() ? Map.of() : movieRepository.findRowsByImdbIdIn(remoteIds).stream()
+                .collect(Collectors.toMap(MovieRow::imdbId, MovieRow::toMovie));
+        lock.writeLock().lock();
+        try {
+            for (MovieChangedEvent event : events) {
+                Movie movie = event.movie() != null ? event.movie() : loaded.get(event.imdbId());
+                if (movie == null || event.type() == MovieChangedEvent.ChangeType.DELETED) {
+                    index.remove(event.imdbId());
+                } else {
+                    index.put(movie.getImdbId(), tokens(movie.getTitle(), movie.getDescription()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<String> tokens(String title, String description) {
+        List<String> tokens = new ArrayList<>(InvertedIndex.tokenize(title));
+        tokens.addAll(InvertedIndex.tokenize(description));
+        return tokens;
+    }
+}
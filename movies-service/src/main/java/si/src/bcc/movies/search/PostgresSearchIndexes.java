@@ -0,0 +1,105 @@
+package si.src.bcc.movies.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import si.src.bcc.movies.properties.SearchProperties;
+import si.src.bcc.movies.repository.MovieRepository;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The indexes behind movie search on PostgreSQL, used once they exist and are valid.
+ * <p>
+ * A GIN index on the {@code tsvector} of title and description serves word matches ranked by relevance,
+ * {@code pg_trgm} GIN indexes on the lower-cased columns serve the substring matches of the LIKE query. They are
+ * expression indexes, adding them rewrites nothing. With {@code search.create-indexes} the missing ones are built
+ * with {@code CREATE INDEX CONCURRENTLY}, which does not block writes; one instance or a deploy job should do that,
+ * the others only check. Other databases (H2 in the tests) keep the plain LIKE query.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class PostgresSearchIndexes {
+
+    private static final Map<String, String> INDEXES = new LinkedHashMap<>();
+
+    static {
+        INDEXES.put("movies_search_vector_idx", "ON movies.movies USING gin ((" + MovieRepository.SEARCH_VECTOR + "))");
+        INDEXES.put("movies_title_trgm_idx", "ON movies.movies USING gin (lower(title) public.gin_trgm_ops)");
+        INDEXES.put("movies_description_trgm_idx", "ON movies.movies USING gin (lower(description) public.gin_trgm_ops)");
+    }
+
+    private final boolean enabled;
+
+    @Autowired
+    public PostgresSearchIndexes(JdbcTemplate jdbcTemplate, SearchProperties properties) {
+        this.enabled = switch (properties.getEngine()) {
+            case "like", "index" -> false;
+            case "postgres" -> {
+                if (!prepare(jdbcTemplate, properties.isCreateIndexes())) {
+                    throw new IllegalStateException("search.engine is postgres, but the search indexes are missing");
+                }
+                yield true;
+            }
+            case "auto" -> prepare(jdbcTemplate, properties.isCreateIndexes());
+            default -> throw new IllegalArgumentException("Unknown search engine: " + properties.getEngine());
+        };
+        log.info("Movie search uses {}", enabled ? "PostgreSQL full-text and trigram indexes" : "LIKE queries");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static boolean prepare(JdbcTemplate jdbcTemplate, boolean createIndexes) {
+        try {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equals(database)) {
+                return false;
+            }
+            Set<String> valid = validIndexes(jdbcTemplate);
+            if (createIndexes && !valid.containsAll(INDEXES.keySet())) {
+                create(jdbcTemplate, valid);
+                valid = validIndexes(jdbcTemplate);
+            }
+            Set<String> missing = new HashSet<>(INDEXES.keySet());
+            missing.removeAll(valid);
+            if (!missing.isEmpty()) {
+                log.warn("Search indexes {} are missing, set search.create-indexes on one instance to build them", missing);
+                return false;
+            }
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Search indexes could not be checked or created, falling back to LIKE queries: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // Each statement commits on its own, CREATE INDEX CONCURRENTLY cannot run inside a transaction
+    private static void create(JdbcTemplate jdbcTemplate, Set<String> valid) {
+        // Created by init-db/init.sql, pg_trgm is a trusted extension so older databases get it here
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm SCHEMA public");
+        INDEXES.forEach((name, definition) -> {
+            if (!valid.contains(name)) {
+                log.info("Building search index {}", name);
+                // A failed concurrent build leaves an invalid index behind
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS movies." + name);
+                jdbcTemplate.execute("CREATE INDEX CONCURRENTLY " + name + " " + definition);
+            }
+        });
+    }
+
+    private static Set<String> validIndexes(JdbcTemplate jdbcTemplate) {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT c.relname FROM pg_index i"
+                + " JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_namespace n ON n.oid = c.relnamespace"
+                + " WHERE n.nspname = 'movies' AND i.indisvalid", String.class));
+    }
+}
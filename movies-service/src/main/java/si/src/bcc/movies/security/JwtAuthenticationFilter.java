@@ -1,7 +1,15 @@
 package si.src.bcc.movies.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,18 +20,54 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import si.src.bcc.movies.config.JwtConfig;
-import javax.crypto.SecretKey;
+import si.src.bcc.movies.properties.JwtProperties;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Authenticates requests carrying a valid Bearer token.
+ * <p>
+ * A verified token is remembered, under its SHA-256 hash, until its expiration time, so clients reusing a
+ * long-lived token pay for the signature check and the claims parsing once. Only the subject is remembered, every
+ * request gets an authentication of its own. Invalid tokens are never remembered.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final SecretKey jwtKey;
+    private record VerifiedToken(String subject, long expiresAtMillis) {
+    }
+
+    private final JwtParser parser;
+    private final Duration maxTtl;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final Timer verifications;
+    private final Counter rejected;
 
     @Autowired
-    public JwtAuthenticationFilter(JwtConfig jwtConfig) {
-        this.jwtKey = jwtConfig.jwtKey();
+    public JwtAuthenticationFilter(JwtConfig jwtConfig, JwtProperties jwtProperties, MeterRegistry registry) {
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(jwtConfig.jwtKey())
+                .build();
+        this.maxTtl = jwtProperties.getVerifiedCacheMaxTtl();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(jwtProperties.getVerifiedCacheMaximumSize())
+                .expireAfter(Expiry.creating((String hash, VerifiedToken token) -> ttl(token)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, verifiedTokens, "verifiedTokens", "service", "movies-service");
+        this.verifications = Timer.builder("jwt_verification")
+                .tag("service", "movies-service")
+                .register(registry);
+        this.rejected = Counter.builder("jwt_rejected_total")
+                .tag("service", "movies-service")
+                .register(registry);
     }
 
     @Override
@@ -45,25 +89,55 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String jwt = authHeader.substring(7);
-            // TODO: validate JWT token, not implemented, just for demo purposes (suggested usage Keycloak)
-            try {
-                Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(jwtKey)
-                        .build()
-                        .parseClaimsJws(jwt)
-                        .getBody();
-
-                String username = claims.getSubject();
-
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        username, null, new ArrayList<>());
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-            } catch (Exception e) {
+            String hash = hash(jwt);
+            VerifiedToken token = verifiedTokens.getIfPresent(hash);
+            if (token == null) {
+                token = verify(jwt);
+                if (token != null) {
+                    verifiedTokens.put(hash, token);
+                }
+            }
+            if (token != null) {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(token.subject(), null, List.of()));
+            } else {
                 SecurityContextHolder.clearContext();
             }
         }
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    // TODO: validate JWT token, not implemented, just for demo purposes (suggested usage Keycloak)
+    private VerifiedToken verify(String jwt) {
+        long start = System.nanoTime();
+        try {
+            Claims claims = parser.parseClaimsJws(jwt).getBody();
+            Date expiration = claims.getExpiration();
+            return new VerifiedToken(claims.getSubject(), expiration == null ? Long.MAX_VALUE : expiration.getTime());
+        } catch (Exception e) {
+            rejected.increment();
+            return null;
+        } finally {
+            verifications.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Until the token expires, tokens without an expiration time for max-ttl
+    private Duration ttl(VerifiedToken token) {
+        if (token.expiresAtMillis() == Long.MAX_VALUE) {
+            return maxTtl;
+        }
+        Duration remaining = Duration.ofMillis(Math.max(0, token.expiresAtMillis() - System.currentTimeMillis()));
+        return remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl;
+    }
+
+    private static String hash(String jwt) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
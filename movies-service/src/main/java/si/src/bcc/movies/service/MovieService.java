@@ -3,16 +3,26 @@ package si.src.bcc.movies.service;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import si.src.bcc.movies.model.Movie;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface MovieService {
     Page<Movie> getAllMovies(Pageable pageable);
     List<Movie> getAllMovies();
+    void streamAllMovies(Consumer<List<Movie>> chunkConsumer);
+    List<Movie> getMoviesAfter(String afterImdbId, int limit);
     Movie getMovieById(String imdbId);
     Movie createMovie(Movie movie);
     Movie updateMovie(String imdbId, Movie movie);
     boolean deleteMovie(String imdbId);
+    Map<String, Movie> lookupMovies(Collection<String> imdbIds);
+    List<Movie> createMovies(List<Movie> movies);
+    Map<String, Movie> updateMovies(Map<String, Consumer<Movie>> changes);
+    Set<String> deleteMovies(Collection<String> imdbIds);
+    Set<String> findExistingImdbIds(Collection<String> imdbIds);
     Page<Movie> searchMovies(String searchTerm, Pageable pageable);
     boolean existsByImdbID(String imdbID);
-    long getRequestCount();
 }
\ No newline at end of file
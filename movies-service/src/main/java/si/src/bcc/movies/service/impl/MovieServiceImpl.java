@@ -1,58 +1,104 @@
 package si.src.bcc.movies.service.impl;
 
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import si.src.bcc.movies.event.MovieBatchChangedEvent;
+import si.src.bcc.movies.event.MovieChangedEvent;
 import si.src.bcc.movies.model.Movie;
+import si.src.bcc.movies.repository.MovieProjections;
 import si.src.bcc.movies.repository.MovieRepository;
+import si.src.bcc.movies.repository.MovieRow;
+import si.src.bcc.movies.search.MovieSearch;
 import si.src.bcc.movies.service.MovieService;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @Transactional
 public class MovieServiceImpl implements MovieService {
 
+    private static final String MOVIE_CACHE = "movie";
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final MovieRepository movieRepository;
-    private final AtomicLong requestCounter = new AtomicLong(0);
+    private final MovieProjections movieProjections;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MovieSearch movieSearch;
+    private final CacheManager cacheManager;
 
     @Autowired
-    public MovieServiceImpl(MovieRepository movieRepository) {
+    public MovieServiceImpl(MovieRepository movieRepository, MovieProjections movieProjections, EntityManager entityManager,
+                            ApplicationEventPublisher eventPublisher,
+                            MovieSearch movieSearch, CacheManager cacheManager) {
         this.movieRepository = movieRepository;
+        this.movieProjections = movieProjections;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.movieSearch = movieSearch;
+        this.cacheManager = cacheManager;
     }
 
     @Override
-    @Cacheable(value = "movies", key = "'all'")
+    @Transactional(readOnly = true)
+    @Cacheable(value = "movies", key = "'all'", sync = true)
     public List<Movie> getAllMovies() {
         log.debug("Fetching all movies");
-        incrementRequestCounter();
-        List<Movie> movies = movieRepository.findAll();
+        List<Movie> movies = movieProjections.findAll();
         log.debug("Found {} movies", movies.size());
         return movies;
     }
 
     @Override
-    @Cacheable(value = "movies", key = "#pageable.pageNumber + '-' + #pageable.pageSize")
+    @Transactional(readOnly = true)
+    public void streamAllMovies(Consumer<List<Movie>> chunkConsumer) {
+        log.debug("Streaming all movies");
+        movieProjections.streamAll(STREAM_CHUNK_SIZE, chunkConsumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "movies", key = "#pageable.pageNumber + '-' + #pageable.pageSize", sync = true)
     public Page<Movie> getAllMovies(Pageable pageable) {
         log.debug("Fetching all movies with page: {} and size: {}", pageable.getPageNumber(), pageable.getPageSize());
-        incrementRequestCounter();
-        Page<Movie> movies = movieRepository.findAll(pageable);
+        Page<Movie> movies = movieProjections.findAll(pageable);
         log.debug("Found {} movies", movies.getTotalElements());
         return movies;
     }
 
     @Override
-    @Cacheable(value = "movie", key = "#imdbId")
+    @Transactional(readOnly = true)
+    public List<Movie> getMoviesAfter(String afterImdbId, int limit) {
+        log.debug("Fetching {} movies after imdbId: {}", limit, afterImdbId);
+        return movieProjections.findAfter(afterImdbId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "movie", key = "#imdbId", sync = true)
     public Movie getMovieById(String imdbId) {
         log.debug("Fetching movie with imdbId: {}", imdbId);
-        incrementRequestCounter();
-        Movie movie = movieRepository.findById(imdbId).orElse(null);
+        Movie movie = movieProjections.findById(imdbId);
         if (movie != null) {
             log.debug("Found movie: {}", movie.getTitle());
         } else {
@@ -62,49 +108,131 @@ public class MovieServiceImpl implements MovieService {
     }
 
     @Override
-    @CacheEvict(value = {"movies", "movie"}, allEntries = true)
     public Movie createMovie(Movie movie) {
         log.debug("Creating new movie: {}", movie.getTitle());
-        incrementRequestCounter();
         Movie savedMovie = movieRepository.save(movie);
+        eventPublisher.publishEvent(MovieChangedEvent.created(savedMovie));
         log.info("Created movie with imdbId: {} and title: {}", savedMovie.getImdbId(), savedMovie.getTitle());
         return savedMovie;
     }
 
     @Override
-    @CacheEvict(value = {"movies", "movie"}, allEntries = true)
     public Movie updateMovie(String imdbId, Movie movie) {
         log.debug("Updating movie with imdbId: {}", imdbId);
-        incrementRequestCounter();
-        if (!movieRepository.existsById(imdbId)) {
+        List<MovieRow> current = movieRepository.findRowsByImdbIdIn(List.of(imdbId));
+        if (current.isEmpty()) {
             log.debug("No movie found with imdbId: {} for update", imdbId);
             return null;
         }
         movie.setImdbId(imdbId);
         Movie updatedMovie = movieRepository.save(movie);
+        eventPublisher.publishEvent(MovieChangedEvent.updated(updatedMovie,
+                searchTextChanged(current.get(0).title(), current.get(0).description(), updatedMovie)));
         log.info("Updated movie with imdbId: {} and title: {}", updatedMovie.getImdbId(), updatedMovie.getTitle());
         return updatedMovie;
     }
 
     @Override
-    @CacheEvict(value = {"movies", "movie"}, allEntries = true)
     public boolean deleteMovie(String imdbId) {
         log.debug("Attempting to delete movie with imdbId: {}", imdbId);
-        incrementRequestCounter();
         if (!movieRepository.existsById(imdbId)) {
             log.debug("No movie found with imdbId: {} for deletion", imdbId);
             return false;
         }
         movieRepository.deleteById(imdbId);
+        eventPublisher.publishEvent(MovieChangedEvent.deleted(imdbId));
         log.info("Successfully deleted movie with imdbId: {}", imdbId);
         return true;
     }
 
+    /**
+     * The movies of {@code getMovieById} for many IMDB IDs at once: what the {@code movie} cache holds, found or
+     * not, is served from it, the rest is read with one {@code IN} query and put into the cache. Missing movies are
+     * cached as not found, like the single lookup does.
+     */
     @Override
-    @Cacheable(value = "movieSearch", key = "#searchTerm + '-' + #pageable.pageNumber + '-' + #pageable.pageSize")
+    @Transactional(readOnly = true)
+    public Map<String, Movie> lookupMovies(Collection<String> imdbIds) {
+        Set<String> remaining = new LinkedHashSet<>(imdbIds);
+        Map<String, Movie> movies = new HashMap<>();
+        Cache cache = cacheManager.getCache(MOVIE_CACHE);
+        if (cache instanceof CaffeineCache caffeineCache) {
+            // One bulk read, Cache.get would load every missing key on its own through the refresh loader
+            caffeineCache.getNativeCache().getAllPresent(remaining).forEach((key, value) -> {
+                remaining.remove(key);
+                if (value instanceof Movie movie) {
+                    movies.put(movie.getImdbId(), movie);
+                }
+            });
+        }
+        log.debug("Looking up {} movies, {} from the cache", imdbIds.size(), imdbIds.size() - remaining.size());
+        if (remaining.isEmpty()) {
+            return movies;
+        }
+        for (Movie movie : movieProjections.findAllById(new ArrayList<>(remaining))) {
+            movies.put(movie.getImdbId(), movie);
+        }
+        if (cache != null) {
+            // A write committed meanwhile has already put the newer movie
+            remaining.forEach(imdbId -> cache.putIfAbsent(imdbId, movies.get(imdbId)));
+        }
+        return movies;
+    }
+
+    @Override
+    public List<Movie> createMovies(List<Movie> movies) {
+        log.debug("Creating {} movies", movies.size());
+        // persist, not save: with assigned ids save() would first SELECT every movie to choose persist or merge.
+        // The inserts are sent in JDBC batches at commit, see hibernate.jdbc.batch_size
+        movies.forEach(entityManager::persist);
+        publishBatch(movies.stream().map(MovieChangedEvent::created).toList());
+        log.info("Created {} movies", movies.size());
+        return movies;
+    }
+
+    /**
+     * Applies the changes to the movies as this transaction reads them, with one query. Movies missing by then are
+     * left out of the result and never written, the others are flushed in JDBC batches at commit.
+     */
+    @Override
+    public Map<String, Movie> updateMovies(Map<String, Consumer<Movie>> changes) {
+        log.debug("Updating {} movies", changes.size());
+        Map<String, Movie> updatedMovies = new HashMap<>();
+        List<MovieChangedEvent> events = new ArrayList<>();
+        for (Movie movie : movieRepository.findAllById(changes.keySet())) {
+            String title = movie.getTitle();
+            String description = movie.getDescription();
+            changes.get(movie.getImdbId()).accept(movie);
+            updatedMovies.put(movie.getImdbId(), movie);
+            events.add(MovieChangedEvent.updated(movie, searchTextChanged(title, description, movie)));
+        }
+        publishBatch(events);
+        log.info("Updated {} of {} movies", updatedMovies.size(), changes.size());
+        return updatedMovies;
+    }
+
+    @Override
+    public Set<String> deleteMovies(Collection<String> imdbIds) {
+        log.debug("Deleting {} movies", imdbIds.size());
+        List<Movie> movies = movieRepository.findAllById(imdbIds);
+        movieRepository.deleteAll(movies);
+        Set<String> deleted = movies.stream().map(Movie::getImdbId).collect(Collectors.toSet());
+        publishBatch(deleted.stream().map(MovieChangedEvent::deleted).toList());
+        log.info("Deleted {} movies", deleted.size());
+        return deleted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> findExistingImdbIds(Collection<String> imdbIds) {
+        return new HashSet<>(movieRepository.findExistingImdbIds(imdbIds));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "movieSearch", key = "#searchTerm + '-' + #pageable.pageNumber + '-' + #pageable.pageSize", sync = true)
     public Page<Movie> searchMovies(String searchTerm, Pageable pageable) {
-        incrementRequestCounter();
-        return movieRepository.searchMovies(searchTerm, pageable);
+        return movieSearch.search(searchTerm, pageable);
     }
 
     @Override
@@ -113,13 +241,14 @@ public class MovieServiceImpl implements MovieService {
         return movieRepository.existsById(imdbID);
     }
 
-    private void incrementRequestCounter() {
-        long count = requestCounter.incrementAndGet();
-        log.debug("Request counter incremented to: {}", count);
+    private static boolean searchTextChanged(String title, String description, Movie movie) {
+        return !Objects.equals(title, movie.getTitle()) || !Objects.equals(description, movie.getDescription());
     }
 
-    public long getRequestCount() {
-        log.debug("Request counter returned: {}", requestCounter.get());
-        return requestCounter.get();
+    // One event for the whole batch, the caches are invalidated once and not once per movie
+    private void publishBatch(List<MovieChangedEvent> changes) {
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new MovieBatchChangedEvent(changes));
+        }
     }
 }
\ No newline at end of file
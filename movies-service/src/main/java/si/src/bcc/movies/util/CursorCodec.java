@@ -0,0 +1,36 @@
+package si.src.bcc.movies.util;
+
+import si.src.bcc.movies.exception.InvalidMovieDataException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation tokens of the keyset pagination: the last IMDB ID of a page, base64url encoded.
+ */
+public final class CursorCodec {
+
+    private static final String PREFIX = "imdbId:";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(String lastImdbId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIX + lastImdbId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Null for the first page
+    public static String decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (value.startsWith(PREFIX) && value.length() > PREFIX.length()) {
+                return value.substring(PREFIX.length());
+            }
+        } catch (IllegalArgumentException e) {
+            // Not base64, reported below
+        }
+        throw new InvalidMovieDataException("cursor", "Invalid cursor");
+    }
+}
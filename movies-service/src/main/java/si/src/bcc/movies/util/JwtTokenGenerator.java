@@ -32,6 +32,11 @@ public class JwtTokenGenerator {
                 .compact();
     }
 
+    // Lifetime of the generated tokens in milliseconds
+    public long getExpiration() {
+        return jwtProperties.getExpiration();
+    }
+
     public String getUsername() {
         return jwtProperties.getUsername();
     }
@@ -1,26 +1,140 @@
 package si.src.bcc.movies;
 
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.sun.net.httpserver.HttpServer;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.FilterChain;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.*;
+import org.springframework.http.server.PathContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestClient;
+import si.src.bcc.movies.cache.CacheInvalidation;
+import si.src.bcc.movies.cache.CacheInvalidationBroadcaster;
+import si.src.bcc.movies.cache.CacheInvalidationBus;
+import si.src.bcc.movies.cache.CacheWarmer;
+import si.src.bcc.movies.cache.ResponseCache;
+import si.src.bcc.movies.client.ActorsClient;
+import si.src.bcc.movies.client.CircuitBreaker;
+import si.src.bcc.movies.config.JwtConfig;
 import si.src.bcc.movies.config.TestJwtConfig;
+import si.src.bcc.movies.datasource.ConnectionGuard;
+import si.src.bcc.movies.datasource.ReadConsistencyFilter;
+import si.src.bcc.movies.datasource.ReplicaRoutingDataSource;
+import si.src.bcc.movies.event.MovieChangedEvent;
+import si.src.bcc.movies.limit.ConcurrencyLimitFilter;
+import si.src.bcc.movies.limit.GradientConcurrencyLimit;
+import si.src.bcc.movies.limit.RateLimitFilter;
+import si.src.bcc.movies.dto.BatchItemResult;
+import si.src.bcc.movies.dto.ActorSummary;
+import si.src.bcc.movies.dto.BatchResponse;
+import si.src.bcc.movies.dto.CursorPageResponse;
 import si.src.bcc.movies.dto.MovieRequest;
 import si.src.bcc.movies.dto.MovieResponse;
+import si.src.bcc.movies.dto.RequestStatsResponse;
+import si.src.bcc.movies.dto.EndpointRequestCount;
+import si.src.bcc.movies.model.Movie;
+import si.src.bcc.movies.monitoring.HttpMetricsFilter;
+import si.src.bcc.movies.monitoring.HttpRouteMetrics;
+import si.src.bcc.movies.monitoring.RequestStatistics;
+import si.src.bcc.movies.monitoring.VirtualThreadPinningMonitor;
+import si.src.bcc.movies.properties.ActorsClientProperties;
+import si.src.bcc.movies.properties.CacheProperties;
+import si.src.bcc.movies.properties.ConcurrencyLimitProperties;
+import si.src.bcc.movies.properties.HttpMetricsProperties;
+import si.src.bcc.movies.properties.RateLimitProperties;
+import si.src.bcc.movies.properties.ReadReplicaProperties;
+import si.src.bcc.movies.properties.SeedProperties;
+import si.src.bcc.movies.properties.VirtualThreadProperties;
+import si.src.bcc.movies.repository.MovieProjections;
 import si.src.bcc.movies.repository.MovieRepository;
+import si.src.bcc.movies.security.JwtAuthenticationFilter;
+import si.src.bcc.movies.search.MovieSearchIndex;
+import si.src.bcc.movies.seed.DatasetGenerator;
+import si.src.bcc.movies.seed.DatasetSeeder;
 import si.src.bcc.movies.service.MovieService;
+import si.src.bcc.movies.util.JwtTokenGenerator;
 import si.src.bcc.movies.util.TestJwtUtil;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.time.Year;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Set;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 import org.springframework.core.ParameterizedTypeReference;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
 		"spring.main.allow-bean-definition-overriding=true"
@@ -43,8 +157,115 @@ class MoviesServiceApplicationTests {
 	@Autowired
 	private TestJwtUtil jwtUtil;
 
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private ResponseCache responseCache;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private CacheWarmer cacheWarmer;
+
+	@Autowired
+	private CacheInvalidationBus invalidationBus;
+
+	@Autowired
+	private CacheInvalidationBroadcaster invalidationBroadcaster;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MovieSearchIndex searchIndex;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ReplicaRoutingDataSource replicaDataSource;
+
+	@Autowired
+	private HikariDataSource primaryDataSource;
+
+	@Autowired
+	private ReadReplicaProperties replicaProperties;
+
+	@Autowired
+	private ConfigurableApplicationContext applicationContext;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private MovieProjections movieProjections;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ActorsClient actorsClient;
+
+	@Autowired
+	private JwtConfig jwtConfig;
+
+	@Autowired
+	private JwtAuthenticationFilter jwtAuthenticationFilter;
+
 	private HttpHeaders headers;
 
+	// Stands in for actors-service: answers GET /api/actors/batch for the actors in actorsStub, after actorsStubDelay
+	private static HttpServer actorsStubServer;
+	private static final Map<Long, String> actorsStub = new ConcurrentHashMap<>();
+	private static final List<String> actorsStubCalls = new CopyOnWriteArrayList<>();
+	private static final Set<String> actorsStubTokens = ConcurrentHashMap.newKeySet();
+	private static volatile long actorsStubDelay;
+
+	@DynamicPropertySource
+	static void actorsStubProperties(DynamicPropertyRegistry registry) throws IOException {
+		actorsStubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		actorsStubServer.setExecutor(Executors.newCachedThreadPool());
+		actorsStubServer.createContext("/api/actors/batch", exchange -> {
+			String query = exchange.getRequestURI().getQuery();
+			String authorization = exchange.getRequestHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+			actorsStubCalls.add(authorization == null ? "anonymous" : query);
+			if (authorization != null) {
+				actorsStubTokens.add(authorization);
+			}
+			try {
+				Thread.sleep(actorsStubDelay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			String[] ids = query.substring(query.indexOf('=') + 1).split(",");
+			List<String> results = new ArrayList<>();
+			for (int i = 0; i < ids.length; i++) {
+				String name = actorsStub.get(Long.valueOf(ids[i]));
+				results.add(name == null
+						? "{\"index\":" + i + ",\"status\":404,\"error\":\"Actor not found\"}"
+						: "{\"index\":" + i + ",\"status\":200,\"item\":{\"id\":" + ids[i] + ",\"firstName\":\"" + name
+						+ "\",\"lastName\":\"Stub\",\"movies\":[]}}");
+			}
+			byte[] body = ("{\"succeeded\":0,\"failed\":0,\"results\":[" + String.join(",", results) + "]}").getBytes();
+			exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+			try (OutputStream out = exchange.getResponseBody()) {
+				exchange.sendResponseHeaders(200, body.length);
+				out.write(body);
+			} catch (IOException e) {
+				// The client gave up waiting
+			}
+		});
+		actorsStubServer.start();
+		registry.add("actors-client.base-url", () -> "http://localhost:" + actorsStubServer.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopActorsStub() {
+		actorsStubServer.stop(0);
+	}
+
 	@BeforeEach
 	void setUp() {
 		headers = new HttpHeaders();
@@ -409,4 +630,1501 @@ class MoviesServiceApplicationTests {
 		List<Map<String, Object>> content = (List<Map<String, Object>>) response.getBody().get("content");
 		assertThat(content).isNull();
 	}
+
+	@Test
+	void testUpdateMovieKeepsUnrelatedCacheEntries() {
+		MovieRequest request1 = new MovieRequest();
+		request1.setTitle("Cached Movie");
+		request1.setYear(Year.of(2024));
+		request1.setImdbId("tt1111111");
+		request1.setDescription("Cached description");
+		restTemplate.postForEntity("http://localhost:" + port + "/api/movies",
+				new HttpEntity<>(request1, headers), MovieResponse.class);
+
+		MovieRequest request2 = new MovieRequest();
+		request2.setTitle("Edited Movie");
+		request2.setYear(Year.of(2024));
+		request2.setImdbId("tt2222222");
+		request2.setDescription("Edited description");
+		restTemplate.postForEntity("http://localhost:" + port + "/api/movies",
+				new HttpEntity<>(request2, headers), MovieResponse.class);
+
+		// Warm the single-movie cache for the first movie
+		restTemplate.exchange("http://localhost:" + port + "/api/movies/tt1111111",
+				HttpMethod.GET, new HttpEntity<>(headers), MovieResponse.class);
+
+		request2.setTitle("Edited Movie v2");
+		ResponseEntity<MovieResponse> updateResponse = restTemplate.exchange(
+				"http://localhost:" + port + "/api/movies/tt2222222",
+				HttpMethod.PUT,
+				new HttpEntity<>(request2, headers),
+				MovieResponse.class
+		);
+		assertThat(updateResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		// Unrelated entry survives, the written movie is put back into the cache
+		Cache movieCache = cacheManager.getCache("movie");
+		assertThat(movieCache.get("tt1111111")).isNotNull();
+		Movie cachedMovie = movieCache.get("tt2222222", Movie.class);
+		assertThat(cachedMovie).isNotNull();
+		assertThat(cachedMovie.getTitle()).isEqualTo("Edited Movie v2");
+
+		// Clean up
+		movieService.deleteMovie("tt1111111");
+		movieService.deleteMovie("tt2222222");
+	}
+
+	@Test
+	void testCacheMetricsExposed() {
+		for (String metric : List.of("cache.gets?tag=cache:movie", "cache.evictions?tag=cache:movies",
+				"cache_hit_ratio?tag=cache:movies")) {
+			ResponseEntity<String> response = restTemplate.getForEntity(
+					"http://localhost:" + port + "/actuator/metrics/" + metric, String.class);
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		}
+	}
+
+	@Test
+	void testCacheSpecRejectsSizeAndWeightTogether() {
+		CacheProperties.CacheSpec spec = new CacheProperties.CacheSpec();
+		spec.setMaximumSize(100L);
+		spec.setMaximumWeight(DataSize.ofMegabytes(1));
+		CacheProperties properties = new CacheProperties();
+		properties.getCaffeine().getCaches().put("both", spec);
+		assertThatThrownBy(properties::validate).isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("spring.cache.caffeine.caches.both").hasMessageContaining("maximum-size or maximum-weight");
+	}
+
+	@Test
+	void testResponseCacheServesAndInvalidates() {
+		MovieRequest request = new MovieRequest();
+		request.setTitle("Response Cached");
+		request.setYear(Year.of(2024));
+		request.setImdbId("tt3333333");
+		request.setDescription("Response cache description");
+		restTemplate.postForEntity("http://localhost:" + port + "/api/movies",
+				new HttpEntity<>(request, headers), MovieResponse.class);
+
+		String url = "http://localhost:" + port + "/api/movies/tt3333333";
+		ResponseEntity<String> first = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(responseCache.get("/api/movies/tt3333333")).isNotNull();
+		ResponseEntity<String> second = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(second.getBody()).isEqualTo(first.getBody());
+		assertThat(second.getHeaders().getContentType()).isEqualTo(first.getHeaders().getContentType());
+		assertThat(second.getHeaders().getCacheControl()).isEqualTo(first.getHeaders().getCacheControl());
+
+		// A write evicts the cached body
+		request.setTitle("Response Cached v2");
+		restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(request, headers), MovieResponse.class);
+		assertThat(responseCache.get("/api/movies/tt3333333")).isNull();
+		ResponseEntity<MovieResponse> updated = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), MovieResponse.class);
+		assertThat(updated.getBody().getTitle()).isEqualTo("Response Cached v2");
+
+		// Clean up
+		movieService.deleteMovie("tt3333333");
+	}
+
+
+	@Test
+	void testConditionalGetReturnsNotModified() {
+		MovieRequest request = new MovieRequest();
+		request.setTitle("Conditional Movie");
+		request.setYear(Year.of(2024));
+		request.setImdbId("tt4444444");
+		request.setDescription("Conditional description");
+		restTemplate.postForEntity("http://localhost:" + port + "/api/movies",
+				new HttpEntity<>(request, headers), MovieResponse.class);
+
+		String allUrl = "http://localhost:" + port + "/api/movies/all";
+		String entityUrl = "http://localhost:" + port + "/api/movies/tt4444444";
+		ResponseEntity<String> all = restTemplate.exchange(allUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		ResponseEntity<String> entity = restTemplate.exchange(entityUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		String allEtag = all.getHeaders().getETag();
+		String entityEtag = entity.getHeaders().getETag();
+		assertThat(allEtag).startsWith("W/");
+		assertThat(entityEtag).startsWith("W/");
+		assertThat(entity.getHeaders().getLastModified()).isPositive();
+
+		// Twice each, the second revalidation is answered from the response cache
+		for (int i = 0; i < 2; i++) {
+			HttpHeaders conditional = new HttpHeaders();
+			conditional.putAll(headers);
+			conditional.setIfNoneMatch(allEtag);
+			ResponseEntity<String> notModified = restTemplate.exchange(allUrl, HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+			assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+			assertThat(notModified.getBody()).isNull();
+
+			conditional.setIfNoneMatch(entityEtag);
+			notModified = restTemplate.exchange(entityUrl, HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+			assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		}
+
+		// A write changes both validators
+		request.setTitle("Conditional Movie v2");
+		restTemplate.exchange(entityUrl, HttpMethod.PUT, new HttpEntity<>(request, headers), MovieResponse.class);
+		HttpHeaders conditional = new HttpHeaders();
+		conditional.putAll(headers);
+		conditional.setIfNoneMatch(allEtag);
+		ResponseEntity<String> modified = restTemplate.exchange(allUrl, HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+		assertThat(modified.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(modified.getHeaders().getETag()).isNotEqualTo(allEtag);
+		conditional.setIfNoneMatch(entityEtag);
+		modified = restTemplate.exchange(entityUrl, HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+		assertThat(modified.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(modified.getBody()).contains("Conditional Movie v2");
+
+		// Clean up
+		movieService.deleteMovie("tt4444444");
+	}
+
+
+	@Test
+	void testCacheMissesAreCoalescedAndRefreshed() throws Exception {
+		Cache cache = cacheManager.getCache("movies");
+		double coalescedBefore = meterRegistry.counter("cache_coalesced_loads_total",
+				"cache", "movies", "service", "movies-service").count();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		Callable<String> loader = () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return "loaded";
+		};
+		AtomicReference<String> firstValue = new AtomicReference<>();
+		AtomicReference<String> secondValue = new AtomicReference<>();
+		Thread first = new Thread(() -> firstValue.set(cache.get("coalesce-test", loader)));
+		first.start();
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread second = new Thread(() -> secondValue.set(cache.get("coalesce-test", loader)));
+		second.start();
+		// Wait until the second miss is parked on the load in flight
+		for (int i = 0; i < 500 && second.getState() == Thread.State.RUNNABLE; i++) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+		first.join(5000);
+		second.join(5000);
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(firstValue.get()).isEqualTo("loaded");
+		assertThat(secondValue.get()).isEqualTo("loaded");
+		assertThat(meterRegistry.counter("cache_coalesced_loads_total",
+				"cache", "movies", "service", "movies-service").count()).isEqualTo(coalescedBefore + 1);
+		cache.evict("coalesce-test");
+
+		// A refresh reloads the entry through the cache loader
+		Movie movie = new Movie();
+		movie.setTitle("Refresh Movie");
+		movie.setYear(Year.of(2024));
+		movie.setImdbId("tt5555555");
+		movieService.createMovie(movie);
+		assertThat(movieService.getMovieById("tt5555555").getTitle()).isEqualTo("Refresh Movie");
+		Movie changed = movieRepository.findById("tt5555555").orElseThrow();
+		changed.setTitle("Refresh Movie v2");
+		movieRepository.save(changed);
+		assertThat(movieService.getMovieById("tt5555555").getTitle()).isEqualTo("Refresh Movie");
+		@SuppressWarnings("unchecked")
+		LoadingCache<Object, Object> movieCache = (LoadingCache<Object, Object>) ((CaffeineCache) cacheManager.getCache("movie")).getNativeCache();
+		movieCache.refresh("tt5555555");
+		// The reloaded value replaces the entry asynchronously
+		await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+				assertThat(movieService.getMovieById("tt5555555").getTitle()).isEqualTo("Refresh Movie v2"));
+
+		// Clean up
+		movieService.deleteMovie("tt5555555");
+	}
+
+
+	@Test
+	void testHotKeysSurviveRestart() throws Exception {
+		Movie movie = new Movie();
+		movie.setTitle("Warm Movie");
+		movie.setYear(Year.of(2024));
+		movie.setImdbId("tt6666666");
+		movieService.createMovie(movie);
+		movieService.getMovieById("tt6666666");
+		movieService.getAllMovies();
+
+		// Shutdown writes the hot keys, startup loads them into the emptied caches
+		cacheWarmer.writeSnapshot();
+		cacheManager.getCache("movie").clear();
+		cacheManager.getCache("movies").clear();
+		cacheWarmer.run(null);
+
+		assertThat(cacheManager.getCache("movie").get("tt6666666", Movie.class).getTitle()).isEqualTo("Warm Movie");
+		assertThat(cacheManager.getCache("movies").get("all")).isNotNull();
+		assertThat(cacheWarmer.health().getStatus()).isEqualTo(Status.UP);
+		assertThat(meterRegistry.timer("cache_warmup_duration", "service", "movies-service").count()).isPositive();
+
+		// Clean up
+		movieService.deleteMovie("tt6666666");
+	}
+
+
+	@Test
+	void testInvalidationsAreBatchedAndReplayedFromOtherReplicas() {
+		List<CacheInvalidation> published = new CopyOnWriteArrayList<>();
+		invalidationBus.subscribe(new CacheInvalidationBus.Subscriber() {
+			@Override
+			public void onInvalidations(String origin, List<CacheInvalidation> invalidations) {
+				published.addAll(invalidations);
+			}
+
+			@Override
+			public void onGap() {
+			}
+		});
+		invalidationBroadcaster.flush();
+		published.clear();
+
+		// Create plus two updates of one movie leave a single invalidation
+		Movie movie = new Movie();
+		movie.setTitle("Broadcast Movie");
+		movie.setYear(Year.of(2024));
+		movie.setImdbId("tt7777777");
+		movie = movieService.createMovie(movie);
+		movie.setTitle("Broadcast Movie v2");
+		movieService.updateMovie("tt7777777", movie);
+		movie.setTitle("Broadcast Movie v3");
+		movieService.updateMovie("tt7777777", movie);
+		invalidationBroadcaster.flush();
+		assertThat(published).containsExactly(new CacheInvalidation(MovieChangedEvent.ChangeType.CREATED, "tt7777777"));
+
+		// An update made by another replica evicts the local entry
+		Map<Object, Object> movieEntries = ((CaffeineCache) cacheManager.getCache("movie")).getNativeCache().asMap();
+		assertThat(movieEntries).containsKey("tt7777777");
+		invalidationBus.publish("other-replica", List.of(new CacheInvalidation(MovieChangedEvent.ChangeType.UPDATED, "tt7777777")));
+		assertThat(movieEntries).doesNotContainKey("tt7777777");
+
+		// Clean up
+		movieService.deleteMovie("tt7777777");
+	}
+
+
+	@Test
+	void testKeysetPaginationWalksAllMovies() {
+		for (String imdbId : List.of("tt8888881", "tt8888882", "tt8888883")) {
+			Movie movie = new Movie();
+			movie.setTitle("Cursor Movie " + imdbId);
+			movie.setYear(Year.of(2024));
+			movie.setImdbId(imdbId);
+			movieService.createMovie(movie);
+		}
+
+		List<String> walked = new ArrayList<>();
+		String cursor = null;
+		do {
+			String url = "http://localhost:" + port + "/api/movies/cursor?size=2" + (cursor != null ? "&cursor=" + cursor : "");
+			ResponseEntity<CursorPageResponse<MovieResponse>> response = restTemplate.exchange(url, HttpMethod.GET,
+					new HttpEntity<>(headers), new ParameterizedTypeReference<CursorPageResponse<MovieResponse>>() {});
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(response.getBody().getContent()).hasSizeLessThanOrEqualTo(2);
+			response.getBody().getContent().forEach(movie -> walked.add(movie.getImdbId()));
+			cursor = response.getBody().getNextCursor();
+		} while (cursor != null);
+		assertThat(walked).isSorted().doesNotHaveDuplicates().contains("tt8888881", "tt8888882", "tt8888883");
+		assertThat(walked).hasSize((int) movieRepository.count());
+
+		ResponseEntity<String> invalid = restTemplate.exchange("http://localhost:" + port + "/api/movies/cursor?cursor=not-a-cursor",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+		// Clean up
+		List.of("tt8888881", "tt8888882", "tt8888883").forEach(movieService::deleteMovie);
+	}
+
+
+	@Test
+	void testReadPathsRunFixedNumberOfStatements() {
+		for (String imdbId : List.of("tt9100001", "tt9100002", "tt9100003")) {
+			Movie movie = new Movie();
+			movie.setTitle("Batch Movie " + imdbId);
+			movie.setYear(Year.of(2024));
+			movie.setImdbId(imdbId);
+			movie.setActors(new HashSet<>(Set.of(1L, 2L)));
+			movie.setPictures(new HashSet<>(Set.of(imdbId + ".jpg")));
+			movieService.createMovie(movie);
+		}
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		// The movies plus one batch per collection, independent of the number of movies, read as rows not entities
+		statistics.clear();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/all",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(statistics.getEntityLoadCount() + statistics.getCollectionLoadCount()).isZero();
+
+		// Plus the count query of a partial page
+		statistics.clear();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/paged?page=0&size=2",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+		assertThat(statistics.getEntityLoadCount() + statistics.getCollectionLoadCount()).isZero();
+
+		statistics.clear();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/search?searchTerm=Batch Movie",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(statistics.getEntityLoadCount() + statistics.getCollectionLoadCount()).isZero();
+
+		// A single movie is read as its row plus one query per collection, never as their cross product
+		statistics.clear();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9100001",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(statistics.getEntityLoadCount() + statistics.getCollectionLoadCount()).isZero();
+
+		// Clean up
+		List.of("tt9100001", "tt9100002", "tt9100003").forEach(movieService::deleteMovie);
+	}
+
+	@Test
+	void testSearchIndexRanksAndFollowsChanges() {
+		Map<String, String> titles = Map.of("tt9200001", "Zebra Crossing", "tt9200002", "Quantum Zebra", "tt9200003", "Quantum Leap");
+		titles.forEach((imdbId, title) -> {
+			Movie movie = new Movie();
+			movie.setTitle(title);
+			movie.setYear(Year.of(2024));
+			movie.setImdbId(imdbId);
+			movie.setDescription(imdbId.equals("tt9200002") ? "A zebra in a quantum world" : "Nothing to see");
+			movieService.createMovie(movie);
+		});
+		searchIndex.rebuild();
+
+		// Every word must match, the last one also as a prefix, more occurrences rank higher
+		Page<String> found = searchIndex.search("zebra quant", PageRequest.of(0, 10));
+		assertThat(found.getContent()).containsExactly("tt9200002");
+		assertThat(searchIndex.search("zebra", PageRequest.of(0, 10)).getContent()).startsWith("tt9200002")
+				.contains("tt9200001");
+		assertThat(searchIndex.search("quantum", PageRequest.of(1, 1)).getTotalElements()).isEqualTo(2);
+
+		// Kept current by the change events
+		Movie renamed = movieService.getMovieById("tt9200003");
+		renamed.setTitle("Giant Leap");
+		movieService.updateMovie("tt9200003", renamed);
+		assertThat(searchIndex.search("quantum", PageRequest.of(0, 10)).getContent()).containsExactly("tt9200002");
+		assertThat(searchIndex.search("giant", PageRequest.of(0, 10)).getContent()).containsExactly("tt9200003");
+		movieService.deleteMovie("tt9200002");
+		assertThat(searchIndex.search("zebra", PageRequest.of(0, 10)).getContent()).containsExactly("tt9200001");
+
+		// Clean up
+		List.of("tt9200001", "tt9200003").forEach(movieService::deleteMovie);
+	}
+
+	// Opt-in: mvn test -Dsearch.benchmark=true [-Dsearch.benchmark.sizes=10000,100000,1000000]
+	@Test
+	@EnabledIfSystemProperty(named = "search.benchmark", matches = "true")
+	void benchmarkSearchIndexAgainstLikeQuery() {
+		Random random = new Random(42);
+		String[] vocabulary = new String[5000];
+		for (int i = 0; i < vocabulary.length; i++) {
+			vocabulary[i] = Integer.toString(i * 7919 + 100000, 36);
+		}
+		List<String> terms = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			terms.add(vocabulary[random.nextInt(500)] + " " + vocabulary[random.nextInt(vocabulary.length)]);
+		}
+		int inserted = 0;
+		try {
+			for (String size : System.getProperty("search.benchmark.sizes", "10000,100000,1000000").split(",")) {
+				int rows = Integer.parseInt(size.trim());
+				List<Object[]> batch = new ArrayList<>();
+				for (; inserted < rows; inserted++) {
+					// Skewed word choice, a few words are frequent like in real titles
+					String title = vocabulary[(int) (Math.pow(random.nextDouble(), 3) * vocabulary.length)] + " "
+							+ vocabulary[random.nextInt(vocabulary.length)];
+					StringBuilder description = new StringBuilder();
+					for (int w = 0; w < 20; w++) {
+						description.append(vocabulary[(int) (Math.pow(random.nextDouble(), 2) * vocabulary.length)]).append(' ');
+					}
+					batch.add(new Object[]{String.format("tb%07d", inserted), title, 2024, description.toString()});
+					if (batch.size() == 5000) {
+						jdbcTemplate.batchUpdate("INSERT INTO movies.movies (imdb_id, title, \"year\", description) VALUES (?, ?, ?, ?)", batch);
+						batch.clear();
+					}
+				}
+				if (!batch.isEmpty()) {
+					jdbcTemplate.batchUpdate("INSERT INTO movies.movies (imdb_id, title, \"year\", description) VALUES (?, ?, ?, ?)", batch);
+				}
+				long buildStart = System.nanoTime();
+				searchIndex.rebuild();
+				long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+				long likeStart = System.nanoTime();
+				terms.forEach(term -> movieRepository.searchMovies(term, PageRequest.of(0, 20)));
+				long likeMicros = (System.nanoTime() - likeStart) / 1000 / terms.size();
+				long indexStart = System.nanoTime();
+				terms.forEach(term -> searchIndex.search(term, PageRequest.of(0, 20)));
+				long indexMicros = (System.nanoTime() - indexStart) / 1000 / terms.size();
+				System.out.printf("search benchmark: %d movies, LIKE %d us/query, index %d us/query, index build %d ms%n",
+						rows, likeMicros, indexMicros, buildMillis);
+			}
+		} finally {
+			jdbcTemplate.update("DELETE FROM movies.movies WHERE imdb_id LIKE 'tb%'");
+			searchIndex.rebuild();
+		}
+	}
+
+	@Test
+	void testStreamAllMoviesAndPageSizeCap() {
+		for (String imdbId : List.of("tt9300001", "tt9300002", "tt9300003")) {
+			Movie movie = new Movie();
+			movie.setTitle("Stream Movie " + imdbId);
+			movie.setYear(Year.of(2024));
+			movie.setImdbId(imdbId);
+			movie.setPictures(new HashSet<>(Set.of(imdbId + ".jpg")));
+			movieService.createMovie(movie);
+		}
+		long count = movieRepository.count();
+
+		ResponseEntity<List<MovieResponse>> array = restTemplate.exchange("http://localhost:" + port + "/api/movies/all/stream",
+				HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<List<MovieResponse>>() {});
+		assertThat(array.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(array.getBody()).hasSize((int) count);
+		assertThat(array.getBody()).filteredOn(movie -> movie.getImdbId().equals("tt9300002"))
+				.singleElement().satisfies(movie -> assertThat(movie.getPictures()).containsExactly("tt9300002.jpg"));
+
+		HttpHeaders ndjsonHeaders = new HttpHeaders();
+		ndjsonHeaders.addAll(headers);
+		ndjsonHeaders.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+		ResponseEntity<String> ndjson = restTemplate.exchange("http://localhost:" + port + "/api/movies/all/stream",
+				HttpMethod.GET, new HttpEntity<>(ndjsonHeaders), String.class);
+		assertThat(ndjson.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+		assertThat(ndjson.getBody().lines()).hasSize((int) count).allMatch(line -> line.startsWith("{\"imdbId\""));
+
+		// Oversized pages are capped instead of loading the whole table
+		ResponseEntity<String> paged = restTemplate.exchange("http://localhost:" + port + "/api/movies/paged?size=10000000",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(paged.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(paged.getBody()).contains("\"size\":1000");
+
+		// Clean up
+		List.of("tt9300001", "tt9300002", "tt9300003").forEach(movieService::deleteMovie);
+	}
+
+
+	@Test
+	void testBatchCreateUpdateAndDeleteMovies() {
+		Movie existingMovie = new Movie();
+		existingMovie.setTitle("Existing Batch Movie");
+		existingMovie.setYear(Year.of(2024));
+		existingMovie.setImdbId("tt9400999");
+		movieService.createMovie(existingMovie);
+		List<MovieRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			MovieRequest request = new MovieRequest();
+			request.setImdbId(String.format("tt94%05d", i));
+			request.setTitle("Bulk Movie " + i);
+			request.setYear(Year.of(2024));
+			request.setPictures(Set.of("bulk" + i + ".jpg"));
+			requests.add(request);
+		}
+		MovieRequest invalid = new MovieRequest();
+		invalid.setImdbId("tt9400998");
+		invalid.setYear(Year.of(2024));
+		requests.add(invalid);
+		requests.add(requests.get(0));
+		MovieRequest existing = new MovieRequest();
+		existing.setImdbId("tt9400999");
+		existing.setTitle("Existing Batch Movie");
+		existing.setYear(Year.of(2024));
+		requests.add(existing);
+		ParameterizedTypeReference<BatchResponse<MovieResponse>> batchType = new ParameterizedTypeReference<>() {};
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		// Inserts of movies and pictures go out in JDBC batches, not one statement per row
+		statistics.clear();
+		ResponseEntity<BatchResponse<MovieResponse>> created = restTemplate.exchange("http://localhost:" + port + "/api/movies/batch",
+				HttpMethod.POST, new HttpEntity<>(requests, headers), batchType);
+		assertThat(created.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(10);
+		assertThat(created.getBody().getSucceeded()).isEqualTo(100);
+		assertThat(created.getBody().getFailed()).isEqualTo(3);
+		List<BatchItemResult<MovieResponse>> results = created.getBody().getResults();
+		assertThat(results.get(5).getStatus()).isEqualTo(201);
+		assertThat(results.get(5).getItem().getImdbId()).isEqualTo("tt9400005");
+		assertThat(results.get(5).getItem().getPictures()).containsExactly("bulk5.jpg");
+		assertThat(results.get(100).getStatus()).isEqualTo(400);
+		assertThat(results.get(100).getError()).contains("title");
+		assertThat(results.get(101).getStatus()).isEqualTo(409);
+		assertThat(results.get(102).getStatus()).isEqualTo(409);
+		assertThat(movieService.findExistingImdbIds(List.of("tt9400000", "tt9400099", "tt9400998"))).containsExactlyInAnyOrder("tt9400000", "tt9400099");
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9400042",
+				HttpMethod.GET, new HttpEntity<>(headers), MovieResponse.class).getBody().getTitle()).isEqualTo("Bulk Movie 42");
+
+		List<MovieRequest> updates = new ArrayList<>(requests.subList(0, 100));
+		updates.forEach(request -> request.setTitle(request.getTitle() + " Updated"));
+		MovieRequest missing = new MovieRequest();
+		missing.setImdbId("tt9400997");
+		missing.setTitle("Missing Batch Movie");
+		missing.setYear(Year.of(2024));
+		updates.add(missing);
+		ResponseEntity<BatchResponse<MovieResponse>> updated = restTemplate.exchange("http://localhost:" + port + "/api/movies/batch",
+				HttpMethod.PUT, new HttpEntity<>(updates, headers), batchType);
+		assertThat(updated.getBody().getSucceeded()).isEqualTo(100);
+		assertThat(updated.getBody().getResults().get(100).getStatus()).isEqualTo(404);
+		assertThat(movieService.findExistingImdbIds(List.of("tt9400997"))).isEmpty();
+		assertThat(jdbcTemplate.queryForObject("SELECT title FROM movies.movies WHERE imdb_id = 'tt9400042'", String.class))
+				.isEqualTo("Bulk Movie 42 Updated");
+		// The batch event refreshed the cached movie
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9400042",
+				HttpMethod.GET, new HttpEntity<>(headers), MovieResponse.class).getBody().getTitle()).isEqualTo("Bulk Movie 42 Updated");
+
+		List<String> imdbIds = new ArrayList<>(updates.stream().map(MovieRequest::getImdbId).toList());
+		imdbIds.add("tt9400999");
+		ResponseEntity<BatchResponse<MovieResponse>> deleted = restTemplate.exchange("http://localhost:" + port + "/api/movies/batch",
+				HttpMethod.DELETE, new HttpEntity<>(imdbIds, headers), batchType);
+		assertThat(deleted.getBody().getSucceeded()).isEqualTo(101);
+		assertThat(deleted.getBody().getResults().get(0).getStatus()).isEqualTo(204);
+		assertThat(deleted.getBody().getResults().get(100).getStatus()).isEqualTo(404);
+		assertThat(movieService.findExistingImdbIds(imdbIds)).isEmpty();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9400042",
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+		ResponseEntity<String> empty = restTemplate.exchange("http://localhost:" + port + "/api/movies/batch",
+				HttpMethod.POST, new HttpEntity<>(List.of(), headers), String.class);
+		assertThat(empty.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "batch.benchmark", matches = "true")
+	void benchmarkBatchCreateAgainstSingleCreates() {
+		int count = Integer.getInteger("batch.benchmark.size", 2000);
+		List<MovieRequest> requests = new ArrayList<>();
+		for (int i = 0; i < count * 2; i++) {
+			MovieRequest request = new MovieRequest();
+			request.setImdbId(String.format("tb%07d", i));
+			request.setTitle("Benchmark Movie " + i);
+			request.setYear(Year.of(2024));
+			request.setActors(Set.of(1L, 2L));
+			request.setPictures(Set.of("benchmark" + i + ".jpg"));
+			requests.add(request);
+		}
+		try {
+			long singleStart = System.nanoTime();
+			for (MovieRequest request : requests.subList(0, count)) {
+				restTemplate.exchange("http://localhost:" + port + "/api/movies",
+						HttpMethod.POST, new HttpEntity<>(request, headers), String.class);
+			}
+			long singleMillis = (System.nanoTime() - singleStart) / 1_000_000;
+			long batchStart = System.nanoTime();
+			for (int from = count; from < count * 2; from += 1000) {
+				restTemplate.exchange("http://localhost:" + port + "/api/movies/batch", HttpMethod.POST,
+						new HttpEntity<>(requests.subList(from, Math.min(from + 1000, count * 2)), headers), String.class);
+			}
+			long batchMillis = (System.nanoTime() - batchStart) / 1_000_000;
+			System.out.printf("batch benchmark: %d movies, single %d movies/s, batch %d movies/s%n",
+					count, count * 1000L / Math.max(singleMillis, 1), count * 1000L / Math.max(batchMillis, 1));
+		} finally {
+			jdbcTemplate.update("DELETE FROM movies.movie_actors WHERE imdb_id LIKE 'tb%'");
+			jdbcTemplate.update("DELETE FROM movies.movie_pictures WHERE imdb_id LIKE 'tb%'");
+			jdbcTemplate.update("DELETE FROM movies.movies WHERE imdb_id LIKE 'tb%'");
+			cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+			responseCache.clear();
+		}
+	}
+
+
+	@Test
+	void testReadOnlyTransactionsUseHealthyReplicas() throws SQLException {
+		replicaDataSource.checkReplicas();
+		Movie movie = new Movie();
+		movie.setTitle("Replica Movie");
+		movie.setYear(Year.of(2024));
+		movie.setImdbId("tt9600001");
+		movieService.createMovie(movie);
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+		Counter replicaReads = meterRegistry.counter("datasource_read_routed_total", "target", "replica-0", "service", "movies-service");
+		Counter primaryReads = meterRegistry.counter("datasource_read_routed_total", "target", "primary", "service", "movies-service");
+
+		double replicaBefore = replicaReads.count();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9600001",
+				HttpMethod.GET, new HttpEntity<>(headers), MovieResponse.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(replicaReads.count()).isGreaterThan(replicaBefore);
+
+		// Sending back the timestamp of a write reads it from the primary
+		MovieRequest request = new MovieRequest();
+		request.setImdbId("tt9600002");
+		request.setTitle("Replica Movie 2");
+		request.setYear(Year.of(2024));
+		ResponseEntity<MovieResponse> created = restTemplate.exchange("http://localhost:" + port + "/api/movies",
+				HttpMethod.POST, new HttpEntity<>(request, headers), MovieResponse.class);
+		String writeTimestamp = created.getHeaders().getFirst(ReadConsistencyFilter.WRITE_TIMESTAMP_HEADER);
+		assertThat(writeTimestamp).isNotNull();
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+		HttpHeaders readAfterHeaders = new HttpHeaders();
+		readAfterHeaders.addAll(headers);
+		readAfterHeaders.set(ReadConsistencyFilter.READ_AFTER_HEADER, writeTimestamp);
+		replicaBefore = replicaReads.count();
+		double primaryBefore = primaryReads.count();
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9600002",
+				HttpMethod.GET, new HttpEntity<>(readAfterHeaders), MovieResponse.class).getBody().getTitle()).isEqualTo("Replica Movie 2");
+		assertThat(primaryReads.count()).isGreaterThan(primaryBefore);
+		assertThat(replicaReads.count()).isEqualTo(replicaBefore);
+
+		// A stale movie a lagging replica put back into the cache after the change is evicted once more
+		cacheManager.getCache("movie").put("tt9600002", movie);
+		Map<Object, Object> movieEntries = ((CaffeineCache) cacheManager.getCache("movie")).getNativeCache().asMap();
+		await().atMost(Duration.ofSeconds(5)).until(() -> !movieEntries.containsKey("tt9600002"));
+
+		// A replica failing its check is skipped, reads fall back to the primary
+		HikariDataSource brokenReplica = new HikariDataSource();
+		brokenReplica.setPoolName("broken-replica");
+		brokenReplica.setJdbcUrl("jdbc:h2:tcp://localhost:1/missing");
+		SimpleMeterRegistry routedReads = new SimpleMeterRegistry();
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, List.of(brokenReplica),
+				replicaProperties, routedReads);
+		try {
+			routing.checkReplicas();
+			try (Connection connection = routing.getConnection()) {
+				assertThat(connection.isValid(1)).isTrue();
+			}
+			assertThat(routedReads.counter("datasource_read_routed_total", "target", "primary", "service", "movies-service").count()).isEqualTo(1);
+			assertThat(routedReads.get("datasource_replica_healthy").gauge().value()).isZero();
+		} finally {
+			routing.destroy();
+		}
+
+		// Clean up
+		List.of("tt9600001", "tt9600002").forEach(movieService::deleteMovie);
+	}
+
+
+	@Test
+	void testSeedsDeterministicDataset() {
+		SeedProperties seed = new SeedProperties();
+		seed.setMovies(40);
+		seed.setActors(15);
+		seed.setLinks(130);
+		seed.setBatchSize(16);
+		DatasetSeeder seeder = new DatasetSeeder(primaryDataSource, seed, applicationContext);
+		seeder.seed();
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM movies.movies", Long.class)).isEqualTo(40);
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM movies.movie_actors", Long.class)).isEqualTo(130);
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM movies.movie_pictures", Long.class)).isEqualTo(80);
+		DatasetGenerator generator = new DatasetGenerator(seed);
+		DatasetGenerator.GeneratedMovie expected = generator.movie(7);
+		assertThat(new DatasetGenerator(seed).movie(7)).isEqualTo(expected);
+		Movie movie = movieService.getMovieById("tt00000008");
+		assertThat(movie.getTitle()).isEqualTo(expected.title());
+		assertThat(movie.getYear()).isEqualTo(Year.of(expected.year()));
+		assertThat(movie.getDescription()).isEqualTo(expected.description());
+		assertThat(movie.getActors()).containsExactlyInAnyOrderElementsOf(
+				Arrays.stream(generator.actorIds(7)).boxed().toList());
+		assertThat(movie.getPictures()).containsExactlyInAnyOrderElementsOf(generator.pictures(7));
+
+		// Seeding again replaces the rows instead of failing on them
+		seed.setSeed(7);
+		seeder.seed();
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM movies.movies", Long.class)).isEqualTo(40);
+		assertThat(jdbcTemplate.queryForObject("SELECT title FROM movies.movies WHERE imdb_id = 'tt00000008'", String.class))
+				.isEqualTo(new DatasetGenerator(seed).movie(7).title());
+
+		// Clean up
+		List.of("movies.movie_actors", "movies.movie_pictures", "movies.movies")
+				.forEach(table -> jdbcTemplate.update("DELETE FROM " + table));
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+	}
+
+
+	// Opt-in: mvn test -Dprojection.benchmark=true
+	@Test
+	@EnabledIfSystemProperty(named = "projection.benchmark", matches = "true")
+	void benchmarkProjectionReadsAgainstEntityReads() {
+		SeedProperties seed = new SeedProperties();
+		seed.setMovies(20_000);
+		seed.setActors(5_000);
+		seed.setLinks(100_000);
+		new DatasetSeeder(primaryDataSource, seed, applicationContext).seed();
+		TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+		TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+		Function<Pageable, Page<Movie>> entities = pageable -> {
+			Page<Movie> page = movieRepository.findAll(pageable);
+			page.forEach(movie -> {
+				Hibernate.initialize(movie.getActors());
+				Hibernate.initialize(movie.getPictures());
+			});
+			return page;
+		};
+		// One transaction per page, like one request per page
+		Map<String, Function<Pageable, Page<Movie>>> paths = new LinkedHashMap<>();
+		paths.put("entities, read-write", pageable -> readWrite.execute(status -> entities.apply(pageable)));
+		paths.put("entities, read-only", pageable -> readOnly.execute(status -> entities.apply(pageable)));
+		paths.put("projections, read-only", pageable -> readOnly.execute(status -> movieProjections.findAll(pageable)));
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		try {
+			paths.values().forEach(path -> {
+				for (int i = 0; i < 3; i++) {
+					pages(path);
+				}
+			});
+			paths.forEach((name, path) -> {
+				long allocated = threads.getCurrentThreadAllocatedBytes();
+				long start = System.nanoTime();
+				for (int i = 0; i < 5; i++) {
+					pages(path);
+				}
+				System.out.printf("projection benchmark: %s, %d ms and %d MB allocated per 20000 movies%n", name,
+						(System.nanoTime() - start) / 5_000_000, (threads.getCurrentThreadAllocatedBytes() - allocated) / 5 / 1_000_000);
+			});
+		} finally {
+			List.of("movies.movie_actors", "movies.movie_pictures", "movies.movies")
+					.forEach(table -> jdbcTemplate.update("DELETE FROM " + table));
+			cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+			responseCache.clear();
+		}
+	}
+
+	// Every movie in pages of 100, like a client walking /paged
+	private static int pages(Function<Pageable, Page<Movie>> reader) {
+		int movies = 0;
+		for (int page = 0; page < 200; page++) {
+			movies += reader.apply(PageRequest.of(page, 100)).getNumberOfElements();
+		}
+		return movies;
+	}
+
+
+
+	@Test
+	void testConnectionGuardBoundsDatabaseConnections() throws Exception {
+		SimpleMeterRegistry guardRegistry = new SimpleMeterRegistry();
+		ConnectionGuard guard = new ConnectionGuard(1, Duration.ofMillis(100), guardRegistry);
+		DataSource guarded = guard.guard(primaryDataSource);
+		Connection first = guarded.getConnection();
+		assertThat(guard.active()).isEqualTo(1);
+		assertThatThrownBy(guarded::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+		assertThat(guardRegistry.counter("datasource_guard_rejected_total", "service", "movies-service").count()).isEqualTo(1);
+		// Closing twice returns the permit once
+		first.close();
+		first.close();
+		assertThat(guard.active()).isZero();
+		try (Connection second = guarded.getConnection()) {
+			assertThat(second.isValid(1)).isTrue();
+		}
+
+		// With every connection of the primary and the replica taken, requests fail fast with 503
+		Movie movie = new Movie();
+		movie.setTitle("Guarded Movie");
+		movie.setYear(Year.of(2024));
+		movie.setImdbId("tt9700001");
+		movieService.createMovie(movie);
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		responseCache.clear();
+		int permits = primaryDataSource.getMaximumPoolSize() + replicaProperties.getReplicas().get(0).getMaximumPoolSize();
+		List<Connection> held = new ArrayList<>();
+		try {
+			for (int i = 0; i < permits; i++) {
+				Connection connection = dataSource.getConnection();
+				connection.setReadOnly(i % 2 == 0);
+				// The lazy proxy takes the connection at the first statement
+				connection.createStatement().close();
+				held.add(connection);
+			}
+			ResponseEntity<Map<String, Object>> rejected = restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9700001",
+					HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<>() {});
+			assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+			assertThat(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		} finally {
+			for (Connection connection : held) {
+				connection.close();
+			}
+		}
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9700001",
+				HttpMethod.GET, new HttpEntity<>(headers), MovieResponse.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		// Clean up
+		movieService.deleteMovie("tt9700001");
+	}
+
+
+	@Test
+	void testPinnedVirtualThreadsAreRecorded() throws Exception {
+		SimpleMeterRegistry pinnedRegistry = new SimpleMeterRegistry();
+		VirtualThreadProperties properties = new VirtualThreadProperties();
+		properties.setPinnedThreshold(Duration.ofMillis(10));
+		VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(properties, pinnedRegistry);
+		monitor.start();
+		try {
+			Object lock = new Object();
+			// Sleeping inside synchronized keeps the carrier thread
+			Thread pinned = Thread.ofVirtual().start(() -> {
+				synchronized (lock) {
+					try {
+						Thread.sleep(50);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			pinned.join();
+			await().atMost(Duration.ofSeconds(10)).until(() -> pinnedRegistry.find("virtual_thread_pinned").timer() != null);
+			assertThat(pinnedRegistry.find("virtual_thread_pinned").timer().getId().getTag("frame"))
+					.startsWith(MoviesServiceApplicationTests.class.getName());
+		} finally {
+			monitor.stop();
+		}
+	}
+
+
+	// Opt-in: mvn test -Dthreads.benchmark=true
+	@Test
+	@EnabledIfSystemProperty(named = "threads.benchmark", matches = "true")
+	void benchmarkVirtualThreadsAgainstPlatformThreads() throws Exception {
+		for (boolean virtual : List.of(false, true)) {
+			String url = "jdbc:h2:mem:threads-" + virtual + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+			// Arguments, the properties of the builder would lose against the test application.yml
+			try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MoviesServiceApplication.class, TestJwtConfig.class)
+					.run("--spring.datasource.url=" + url, "--read-replicas.replicas[0].url=" + url,
+							"--spring.threads.virtual.enabled=" + virtual, "--spring.main.allow-bean-definition-overriding=true",
+							"--spring.jpa.show-sql=false", "--spring.jpa.properties.hibernate.generate_statistics=false",
+							"--cache-warmup.enabled=false",
+							"--logging.level.si.src.bcc.movies=WARN", "--logging.level.org.hibernate.SQL=WARN",
+							"--logging.level.org.springframework.cache=WARN")) {
+				SeedProperties seed = new SeedProperties();
+				seed.setMovies(30_000);
+				seed.setActors(5_000);
+				seed.setLinks(120_000);
+				new DatasetSeeder(context.getBean("primaryDataSource", DataSource.class), seed, context).seed();
+				int contextPort = context.getEnvironment().getProperty("local.server.port", Integer.class);
+				String token = context.getBean(JwtTokenGenerator.class).generateToken("benchmark");
+				// Warm-up on other movies, the measured reads still miss the caches
+				concurrentReads(contextPort, token, 20_000, 1_000, 10);
+				System.out.printf("threads benchmark: %s threads, %s%n", virtual ? "virtual" : "platform",
+						concurrentReads(contextPort, token, 0, 5_000, 4));
+				context.getBean(MeterRegistry.class).find("virtual_thread_pinned").timers().forEach(timer ->
+						System.out.printf("threads benchmark: pinned %d times for %.0f ms in total at %s%n", timer.count(),
+								timer.totalTime(TimeUnit.MILLISECONDS), timer.getId().getTag("frame")));
+			}
+		}
+	}
+
+	// Every client keeps its own connection and reads its movies one after the other, each one missing the caches
+	private String concurrentReads(int port, String token, int firstMovie, int clients, int requestsPerClient) throws Exception {
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+		List<Long> latencies = new CopyOnWriteArrayList<>();
+		Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int c = 0; c < clients; c++) {
+			int clientNumber = c;
+			threads.add(Thread.ofVirtual().start(() -> {
+				try {
+					start.await();
+					for (int r = 0; r < requestsPerClient; r++) {
+						HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+										+ "/api/movies/" + DatasetGenerator.imdbId(firstMovie + (long) r * clients + clientNumber)))
+								.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+								.timeout(Duration.ofSeconds(60))
+								.build();
+						long requestStart = System.nanoTime();
+						HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						latencies.add(System.nanoTime() - requestStart);
+						if (response.statusCode() != 200) {
+							failures.computeIfAbsent(String.valueOf(response.statusCode()), status -> new AtomicInteger()).incrementAndGet();
+						}
+					}
+				} catch (Exception e) {
+					failures.computeIfAbsent(e.getClass().getSimpleName(), error -> new AtomicInteger()).incrementAndGet();
+				}
+			}));
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - begin;
+		List<Long> sorted = latencies.stream().sorted().toList();
+		return String.format("%d requests in %d ms, %.0f requests/s, p50 %d ms, p99 %d ms, failed: %s",
+				sorted.size(), elapsed / 1_000_000, sorted.size() * 1e9 / elapsed,
+				sorted.get(sorted.size() / 2) / 1_000_000, sorted.get(sorted.size() * 99 / 100) / 1_000_000, failures);
+	}
+
+
+	@Test
+	void testBatchLookupServesCacheAndKeepsRequestOrder() {
+		for (String imdbId : List.of("tt9500001", "tt9500002", "tt9500003")) {
+			Movie movie = new Movie();
+			movie.setTitle("Lookup Movie " + imdbId);
+			movie.setYear(Year.of(2024));
+			movie.setImdbId(imdbId);
+			movie.setActors(new HashSet<>(Set.of(7L)));
+			movieService.createMovie(movie);
+		}
+		Cache movieCache = cacheManager.getCache("movie");
+		movieCache.clear();
+		restTemplate.exchange("http://localhost:" + port + "/api/movies/tt9500001", HttpMethod.GET, new HttpEntity<>(headers), MovieResponse.class);
+		ParameterizedTypeReference<BatchResponse<MovieResponse>> batchType = new ParameterizedTypeReference<>() {};
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		String url = "http://localhost:" + port + "/api/movies/batch?ids=tt9500003,tt9599999,tt9500001,tt9500002,tt9500003";
+
+		// tt9500001 is cached, the other three are read with one query for the rows and one per collection
+		statistics.clear();
+		BatchResponse<MovieResponse> batch = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), batchType).getBody();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(batch.getSucceeded()).isEqualTo(4);
+		assertThat(batch.getFailed()).isEqualTo(1);
+		assertThat(batch.getResults()).extracting(BatchItemResult::getStatus).containsExactly(200, 404, 200, 200, 200);
+		assertThat(batch.getResults()).extracting(result -> result.getItem() == null ? null : result.getItem().getImdbId())
+				.containsExactly("tt9500003", null, "tt9500001", "tt9500002", "tt9500003");
+		assertThat(batch.getResults().get(1).getError()).contains("tt9599999");
+		assertThat(batch.getResults().get(3).getItem().getActors()).containsExactly(7L);
+
+		// Back-filled, the missing movie as not found like a single lookup caches it
+		assertThat(movieCache.get("tt9500002", Movie.class).getTitle()).isEqualTo("Lookup Movie tt9500002");
+		statistics.clear();
+		batch = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), batchType).getBody();
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(batch.getSucceeded()).isEqualTo(4);
+
+		// A created movie replaces its not-found entry
+		Movie created = new Movie();
+		created.setTitle("Lookup Movie tt9599999");
+		created.setYear(Year.of(2024));
+		created.setImdbId("tt9599999");
+		movieService.createMovie(created);
+		batch = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), batchType).getBody();
+		assertThat(batch.getSucceeded()).isEqualTo(5);
+
+		String tooMany = String.join(",", Collections.nCopies(501, "tt9500001"));
+		assertThat(restTemplate.exchange("http://localhost:" + port + "/api/movies/batch?ids=" + tooMany,
+				HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+		// Clean up
+		List.of("tt9500001", "tt9500002", "tt9500003", "tt9599999").forEach(movieService::deleteMovie);
+	}
+
+	@Test
+	void testExpandActorsBatchesCachesAndDegrades() {
+		actorsStub.putAll(Map.of(8801L, "Ann", 8802L, "Bob", 8803L, "Cid", 8805L, "Eve"));
+		Map<String, Set<Long>> casts = Map.of(
+				"tt9600001", Set.of(8802L, 8801L),
+				"tt9600002", Set.of(8802L, 8803L),
+				"tt9600003", Set.of(8804L));
+		casts.forEach((imdbId, actors) -> {
+			Movie movie = new Movie();
+			movie.setTitle("Castexpand " + imdbId);
+			movie.setYear(Year.of(2024));
+			movie.setImdbId(imdbId);
+			movie.setActors(new HashSet<>(actors));
+			movieService.createMovie(movie);
+		});
+		String base = "http://localhost:" + port + "/api/movies";
+		HttpEntity<Void> request = new HttpEntity<>(headers);
+		actorsStubCalls.clear();
+		actorsStubTokens.clear();
+
+		// One batched call for the actors of the whole page, the unknown actor is left out
+		ResponseEntity<Map<String, Object>> page = restTemplate.exchange(base + "/search?searchTerm=Castexpand&size=10&sort=imdbId&expand=actors",
+				HttpMethod.GET, request, new ParameterizedTypeReference<Map<String, Object>>() {});
+		assertThat(page.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(page.getHeaders().containsKey("X-Degraded")).isFalse();
+		List<Map<String, Object>> content = (List<Map<String, Object>>) page.getBody().get("content");
+		assertThat(content).extracting(movie -> ((List<Map<String, Object>>) movie.get("cast")).stream().map(actor -> actor.get("firstName")).toList())
+				.containsExactly(List.of("Ann", "Bob"), List.of("Bob", "Cid"), List.of());
+		assertThat(actorsStubCalls).hasSize(1);
+		assertThat(actorsStubCalls.get(0).split("=")[1].split(",")).containsExactlyInAnyOrder("8801", "8802", "8803", "8804");
+
+		// Served from the near-cache, not-found actors included
+		ResponseEntity<MovieResponse> single = restTemplate.exchange(base + "/tt9600003?expand=actors", HttpMethod.GET, request, MovieResponse.class);
+		assertThat(single.getBody().getCast()).isEmpty();
+		single = restTemplate.exchange(base + "/tt9600002?expand=actors", HttpMethod.GET, request, MovieResponse.class);
+		assertThat(single.getBody().getCast()).extracting(ActorSummary::getId).containsExactly(8802L, 8803L);
+		assertThat(single.getHeaders().getCacheControl()).isEqualTo("max-age=1800");
+		assertThat(actorsStubCalls).hasSize(1);
+		assertThat(restTemplate.exchange(base + "/tt9600002", HttpMethod.GET, request, MovieResponse.class).getBody().getCast()).isNull();
+
+		// A slow actors-service gives degraded responses from the near-cache until the circuit opens
+		Movie movie = new Movie();
+		movie.setTitle("Castexpand tt9600004");
+		movie.setYear(Year.of(2024));
+		movie.setImdbId("tt9600004");
+		movie.setActors(new HashSet<>(Set.of(8801L, 8805L)));
+		movieService.createMovie(movie);
+		actorsStubDelay = 2000;
+		for (int i = 0; i < 3; i++) {
+			single = restTemplate.exchange(base + "/tt9600004?expand=actors", HttpMethod.GET, request, MovieResponse.class);
+			assertThat(single.getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(single.getHeaders().getFirst("X-Degraded")).isEqualTo("actors");
+			assertThat(single.getHeaders().getCacheControl()).isEqualTo("no-store");
+			assertThat(single.getBody().getCast()).extracting(ActorSummary::getId).containsExactly(8801L);
+		}
+		assertThat(actorsStubCalls).hasSize(3);
+		assertThat(actorsClient.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+		// After the open duration a trial call closes the circuit again
+		actorsStubDelay = 0;
+		await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+			ResponseEntity<MovieResponse> recovered = restTemplate.exchange(base + "/tt9600004?expand=actors", HttpMethod.GET, request, MovieResponse.class);
+			assertThat(recovered.getHeaders().containsKey("X-Degraded")).isFalse();
+			assertThat(recovered.getBody().getCast()).extracting(ActorSummary::getFirstName).containsExactly("Ann", "Eve");
+		});
+		assertThat(actorsClient.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(meterRegistry.get("actors_client_rejected_total").tag("reason", "circuit_open").counter().count()).isPositive();
+		assertThat(actorsStubCalls).doesNotContain("anonymous");
+		// Every call reuses one token, actors-service verifies it once
+		assertThat(actorsStubTokens).hasSize(1);
+
+		assertThat(restTemplate.exchange(base + "/tt9600004?expand=pictures", HttpMethod.GET, request, String.class).getStatusCode())
+				.isEqualTo(HttpStatus.BAD_REQUEST);
+
+		// Clean up
+		List.of("tt9600001", "tt9600002", "tt9600003", "tt9600004").forEach(movieService::deleteMovie);
+	}
+
+	@Test
+	void testConcurrencyLimitAdaptsAndShedsLowPriorityFirst() throws Exception {
+		// Steady latency with the limit in use grows it, latency well above the long-term average shrinks it to the minimum
+		GradientConcurrencyLimit gradient = new GradientConcurrencyLimit(20, 5, 100, 1.5, 0.5, Duration.ZERO, 10, 100);
+		for (int i = 0; i < 100; i++) {
+			gradient.onSample(TimeUnit.MILLISECONDS.toNanos(10), 100);
+		}
+		assertThat(gradient.getLimit()).isGreaterThan(40);
+		for (int i = 0; i < 200; i++) {
+			gradient.onSample(TimeUnit.MILLISECONDS.toNanos(200), 100);
+		}
+		assertThat(gradient.getLimit()).isEqualTo(5);
+		assertThat(meterRegistry.get("concurrency_limit").tag("service", "movies-service").gauge().value()).isEqualTo(100);
+
+		// A fixed limit of 4, writes and /all scans may take 2 of it
+		ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+		properties.setLowPriorityShare(0.5);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+				new GradientConcurrencyLimit(4, 4, 4, 1.5, 0.2, Duration.ofHours(1), 10, 100), properties, registry);
+		CountDownLatch release = new CountDownLatch(1);
+		FilterChain blocking = (request, response) -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		Function<MockHttpServletRequest, MockHttpServletResponse> send = request -> {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			try {
+				filter.doFilter(request, response, (req, res) -> {});
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			return response;
+		};
+		List<Thread> held = new ArrayList<>();
+		for (MockHttpServletRequest request : List.of(new MockHttpServletRequest("POST", "/api/movies"),
+				new MockHttpServletRequest("PUT", "/api/movies/tt0000001"),
+				new MockHttpServletRequest("GET", "/api/movies/tt0000002"),
+				new MockHttpServletRequest("GET", "/api/movies/tt0000003"))) {
+			held.add(Thread.ofVirtual().start(() -> {
+				try {
+					filter.doFilter(request, new MockHttpServletResponse(), blocking);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}));
+			if (held.size() == 2) {
+				await().atMost(Duration.ofSeconds(5)).until(() -> registry.get("concurrency_limit_in_flight").gauge().value() == 2);
+				// Over the low priority share, reads still get in
+				MockHttpServletResponse shed = send.apply(new MockHttpServletRequest("DELETE", "/api/movies/tt0000004"));
+				assertThat(shed.getStatus()).isEqualTo(503);
+				assertThat(shed.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+				assertThat(shed.getContentAsString()).contains("\"status\":503");
+				assertThat(send.apply(new MockHttpServletRequest("GET", "/api/movies/all")).getStatus()).isEqualTo(503);
+				assertThat(send.apply(new MockHttpServletRequest("GET", "/api/movies/tt0000005")).getStatus()).isEqualTo(200);
+			}
+		}
+		await().atMost(Duration.ofSeconds(5)).until(() -> registry.get("concurrency_limit_in_flight").gauge().value() == 4);
+		assertThat(send.apply(new MockHttpServletRequest("GET", "/api/movies/tt0000006")).getStatus()).isEqualTo(503);
+		assertThat(send.apply(new MockHttpServletRequest("GET", "/actuator/health")).getStatus()).isEqualTo(200);
+
+		release.countDown();
+		for (Thread thread : held) {
+			thread.join();
+		}
+		assertThat(registry.get("concurrency_limit_in_flight").gauge().value()).isZero();
+		assertThat(registry.get("concurrency_limit_rejected_total").tag("priority", "low").counter().count()).isEqualTo(2);
+		assertThat(registry.get("concurrency_limit_rejected_total").tag("priority", "high").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void testRateLimitsPerSubjectAndAddress() throws Exception {
+		ResponseEntity<String> live = restTemplate.exchange("http://localhost:" + port + "/api/movies/all", HttpMethod.GET,
+				new HttpEntity<>(headers), String.class);
+		assertThat(live.getHeaders().getFirst(RateLimitFilter.LIMIT_HEADER)).isEqualTo("1000");
+
+		RateLimitProperties.Group scans = new RateLimitProperties.Group();
+		scans.setName("scans");
+		scans.setPaths(List.of("/api/movies/all"));
+		scans.setLimit(2);
+		scans.setPeriod(Duration.ofMinutes(1));
+		RateLimitProperties.Group search = new RateLimitProperties.Group();
+		search.setName("search");
+		search.setPaths(List.of("/api/movies/search"));
+		search.setLimit(1);
+		search.setPeriod(Duration.ofMinutes(1));
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.setGroups(List.of(scans, search));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		RateLimitFilter filter = new RateLimitFilter(properties, registry);
+		// A client given as an address is anonymous, any other is the subject of a token
+		BiFunction<String, String, MockHttpServletResponse> send = (client, path) -> {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			if (client.startsWith("10.")) {
+				request.setRemoteAddr(client);
+				SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken("key", "anonymousUser",
+						AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+			} else {
+				SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(client, null, List.of()));
+			}
+			try {
+				filter.doFilter(request, response, (req, res) -> {});
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			} finally {
+				SecurityContextHolder.clearContext();
+			}
+			return response;
+		};
+
+		MockHttpServletResponse response = send.apply("alice", "/api/movies/all");
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(RateLimitFilter.LIMIT_HEADER)).isEqualTo("2");
+		assertThat(response.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("1");
+		assertThat(send.apply("alice", "/api/movies/all").getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("0");
+		response = send.apply("alice", "/api/movies/all");
+		assertThat(response.getStatus()).isEqualTo(429);
+		assertThat(Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(1L, 30L);
+		assertThat(Long.parseLong(response.getHeader(RateLimitFilter.RESET_HEADER))).isBetween(31L, 60L);
+		// Other clients and other groups have buckets of their own
+		assertThat(send.apply("bob", "/api/movies/all").getStatus()).isEqualTo(200);
+		assertThat(send.apply("alice", "/api/movies/search").getStatus()).isEqualTo(200);
+		assertThat(send.apply("10.0.0.1", "/api/movies/search").getStatus()).isEqualTo(200);
+		assertThat(send.apply("10.0.0.1", "/api/movies/search").getStatus()).isEqualTo(429);
+		assertThat(send.apply("10.0.0.2", "/api/movies/search").getStatus()).isEqualTo(200);
+		response = send.apply("alice", "/api/movies/tt0000001");
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(RateLimitFilter.LIMIT_HEADER)).isNull();
+		assertThat(registry.get("rate_limit_rejected_total").tag("group", "scans").counter().count()).isEqualTo(1);
+		assertThat(registry.get("rate_limit_rejected_total").tag("group", "search").counter().count()).isEqualTo(1);
+		assertThat(registry.get("rate_limit_buckets").gauge().value()).isEqualTo(5);
+
+		// Concurrent requests of one client never get more than the limit
+		scans.setLimit(100);
+		properties.setIdleTimeout(Duration.ofMillis(200));
+		SimpleMeterRegistry idleRegistry = new SimpleMeterRegistry();
+		RateLimitFilter concurrent = new RateLimitFilter(properties, idleRegistry);
+		AtomicInteger allowed = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int r = 0; r < 50; r++) {
+					MockHttpServletResponse concurrentResponse = new MockHttpServletResponse();
+					try {
+						concurrent.doFilter(new MockHttpServletRequest("GET", "/api/movies/all"), concurrentResponse, (req, res) -> {});
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+					if (concurrentResponse.getStatus() == 200) {
+						allowed.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(allowed.get()).isBetween(100, 101);
+		// Idle buckets are evicted without further requests
+		await().atMost(Duration.ofSeconds(5)).until(() -> idleRegistry.get("rate_limit_buckets").gauge().value() == 0);
+	}
+
+	@Test
+	void testVerifiedTokensAreCachedUntilTheyExpire() throws Exception {
+		Timer verifications = meterRegistry.get("jwt_verification").timer();
+		Function<String, HttpStatusCode> get = token -> {
+			HttpHeaders tokenHeaders = new HttpHeaders();
+			tokenHeaders.setBearerAuth(token);
+			return restTemplate.exchange("http://localhost:" + port + "/api/movies/tt0000000", HttpMethod.GET,
+					new HttpEntity<>(tokenHeaders), String.class).getStatusCode();
+		};
+
+		// Verified once, then authenticated from the cache; a 404 is an authenticated request
+		String token = jwtUtil.generateToken("cached-user");
+		long verified = verifications.count();
+		double hits = meterRegistry.get("cache.gets").tag("cache", "verifiedTokens").tag("result", "hit").functionCounter().count();
+		for (int i = 0; i < 3; i++) {
+			assertThat(get.apply(token)).isEqualTo(HttpStatus.NOT_FOUND);
+		}
+		assertThat(verifications.count()).isEqualTo(verified + 1);
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "verifiedTokens").tag("result", "hit").functionCounter().count())
+				.isEqualTo(hits + 2);
+
+		// Only the verification is shared, every request gets an authentication of its own
+		List<Authentication> authentications = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/movies/tt0000000");
+			request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+			jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(),
+					(req, res) -> authentications.add(SecurityContextHolder.getContext().getAuthentication()));
+			SecurityContextHolder.clearContext();
+		}
+		assertThat(authentications.get(0)).isNotSameAs(authentications.get(1));
+		assertThat(authentications).extracting(Authentication::getName).containsOnly("cached-user");
+
+		// A token signed with another key is checked and rejected every time
+		String forged = Jwts.builder()
+				.setSubject("cached-user")
+				.setExpiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(Keys.secretKeyFor(SignatureAlgorithm.HS256))
+				.compact();
+		double rejected = meterRegistry.get("jwt_rejected_total").counter().count();
+		assertThat(get.apply(forged)).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(get.apply(forged)).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(verifications.count()).isEqualTo(verified + 3);
+		assertThat(meterRegistry.get("jwt_rejected_total").counter().count()).isEqualTo(rejected + 2);
+
+		// A remembered token is dropped when it expires
+		String shortLived = Jwts.builder()
+				.setSubject("short-lived-user")
+				.setExpiration(new Date(System.currentTimeMillis() + 2_000))
+				.signWith(jwtConfig.jwtKey())
+				.compact();
+		assertThat(get.apply(shortLived)).isEqualTo(HttpStatus.NOT_FOUND);
+		await().atMost(Duration.ofSeconds(5)).until(() -> get.apply(shortLived) == HttpStatus.FORBIDDEN);
+	}
+
+
+	@Test
+	void testHttpMetricsAreKeyedOnRouteTemplates() throws Exception {
+		Counter byId = meterRegistry.get("http_requests_total").tag("path", "/api/movies/{imdbId}").tag("method", "GET").counter();
+		Counter unmatched = meterRegistry.get("http_requests_total").tag("path", "UNMATCHED").counter();
+		int paths = meterRegistry.find("http_requests_total").counters().size();
+		double byIdBefore = byId.count();
+		double unmatchedBefore = unmatched.count();
+
+		// Distinct ids share the meters of their route, unknown paths share one pair of meters
+		for (String path : List.of("/api/movies/tt9000001", "/api/movies/tt9000002", "/no/such/path/1", "/no/such/path/2")) {
+			restTemplate.exchange("http://localhost:" + port + path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		}
+		assertThat(byId.count()).isEqualTo(byIdBefore + 2);
+		assertThat(unmatched.count()).isEqualTo(unmatchedBefore + 2);
+		assertThat(meterRegistry.get("http_request_duration_seconds").tag("path", "/api/movies/{imdbId}").tag("method", "GET").timer().count())
+				.isPositive();
+		assertThat(meterRegistry.find("http_requests_total").counters()).hasSize(paths);
+
+		// Routes over the cap share the path OTHER
+		SimpleMeterRegistry cappedRegistry = new SimpleMeterRegistry();
+		HttpMetricsProperties cappedProperties = new HttpMetricsProperties();
+		cappedProperties.setMaxRoutes(3);
+		HttpRouteMetrics capped = new HttpRouteMetrics(applicationContext, cappedRegistry, cappedProperties);
+		capped.afterSingletonsInstantiated();
+		Set<String> cappedPaths = new HashSet<>();
+		cappedRegistry.find("http_requests_total").counters().forEach(counter -> cappedPaths.add(counter.getId().getTag("path")));
+		assertThat(cappedPaths).contains("UNMATCHED", "OTHER").hasSizeLessThanOrEqualTo(5);
+		int cappedMeters = cappedRegistry.getMeters().size();
+		capped.meters("GET", PathContainer.parsePath("/api/movies/tt9000001")).requests().increment();
+		capped.meters("GET", PathContainer.parsePath("/no/such/path")).requests().increment();
+		assertThat(cappedRegistry.getMeters()).hasSize(cappedMeters);
+
+		// An async response is recorded when it completes, with its final status
+		SimpleMeterRegistry asyncRegistry = new SimpleMeterRegistry();
+		HttpRouteMetrics asyncRoutes = new HttpRouteMetrics(applicationContext, asyncRegistry, new HttpMetricsProperties());
+		asyncRoutes.afterSingletonsInstantiated();
+		RequestStatistics asyncStatistics = new RequestStatistics();
+		MockHttpServletRequest streamRequest = new MockHttpServletRequest("GET", "/api/movies/all/stream");
+		streamRequest.setAsyncSupported(true);
+		MockHttpServletResponse streamResponse = new MockHttpServletResponse();
+		new HttpMetricsFilter(asyncRoutes, asyncStatistics).doFilter(streamRequest, streamResponse, (req, res) -> req.startAsync());
+		Timer streamed = asyncRegistry.get("http_request_duration_seconds").tag("path", "/api/movies/all/stream").tag("method", "GET").timer();
+		assertThat(streamed.count()).isZero();
+		assertThat(asyncStatistics.snapshot().getTotal()).isZero();
+		streamResponse.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		streamRequest.getAsyncContext().complete();
+		assertThat(streamed.count()).isEqualTo(1);
+		assertThat(asyncStatistics.snapshot().getEndpoints()).singleElement()
+				.satisfies(endpoint -> assertThat(endpoint.getStatus()).isEqualTo(503));
+	}
+
+
+	@Test
+	void testRequestStatisticsCountCachedResponsesByEndpointAndStatus() {
+		Movie movie = new Movie();
+		movie.setTitle("Counted");
+		movie.setYear(Year.of(2024));
+		movie.setImdbId("tt9800001");
+		movieService.createMovie(movie);
+		Function<RequestStatsResponse, Long> byIdOk = stats -> stats.getEndpoints().stream()
+				.filter(endpoint -> endpoint.getPath().equals("/api/movies/{imdbId}") && endpoint.getMethod().equals("GET") && endpoint.getStatus() == 200)
+				.mapToLong(EndpointRequestCount::getCount)
+				.sum();
+		String base = "http://localhost:" + port + "/api/movies";
+		RequestStatsResponse before = restTemplate.exchange(base + "/stats/requests/detail", HttpMethod.GET, new HttpEntity<>(headers), RequestStatsResponse.class).getBody();
+
+		// The second read is answered from the caches and counted all the same
+		for (int i = 0; i < 2; i++) {
+			assertThat(restTemplate.exchange(base + "/tt9800001", HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode())
+					.isEqualTo(HttpStatus.OK);
+		}
+		assertThat(restTemplate.exchange(base + "/tt9800002", HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode())
+				.isEqualTo(HttpStatus.NOT_FOUND);
+		// A request is counted once its filter returns, which can be just after the client has the response
+		await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+			RequestStatsResponse counted = restTemplate.exchange(base + "/stats/requests/detail", HttpMethod.GET, new HttpEntity<>(headers), RequestStatsResponse.class).getBody();
+			assertThat(byIdOk.apply(counted)).isEqualTo(byIdOk.apply(before) + 2);
+			assertThat(counted.getByStatus().getOrDefault(404, 0L)).isGreaterThan(before.getByStatus().getOrDefault(404, 0L));
+		});
+		RequestStatsResponse after = restTemplate.exchange(base + "/stats/requests/detail", HttpMethod.GET, new HttpEntity<>(headers), RequestStatsResponse.class).getBody();
+		// The earlier stats request is counted as well
+		assertThat(after.getTotal()).isGreaterThanOrEqualTo(before.getTotal() + 4);
+		assertThat(after.getTotal()).isEqualTo(after.getEndpoints().stream().mapToLong(EndpointRequestCount::getCount).sum());
+		assertThat(after.getByMethod().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(after.getTotal());
+
+		// The plain endpoint still answers with the total alone
+		Long total = restTemplate.exchange(base + "/stats/requests", HttpMethod.GET, new HttpEntity<>(headers), Long.class).getBody();
+		assertThat(total).isGreaterThanOrEqualTo(after.getTotal());
+	}
+
+
+	@Test
+	void testConcurrentBatchCreatesReportConflictsPerItem() throws InterruptedException {
+		ParameterizedTypeReference<BatchResponse<MovieResponse>> batchType = new ParameterizedTypeReference<>() {};
+		for (int round = 0; round < 3; round++) {
+			List<MovieRequest> requests = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				MovieRequest request = new MovieRequest();
+				request.setImdbId(String.format("tt93%d%04d", round, i));
+				request.setTitle("Raced Movie " + i);
+				request.setYear(Year.of(2024));
+				requests.add(request);
+			}
+			CountDownLatch start = new CountDownLatch(1);
+			List<ResponseEntity<BatchResponse<MovieResponse>>> responses = Collections.synchronizedList(new ArrayList<>());
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < 2; t++) {
+				threads.add(Thread.startVirtualThread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					responses.add(restTemplate.exchange("http://localhost:" + port + "/api/movies/batch",
+							HttpMethod.POST, new HttpEntity<>(requests, headers), batchType));
+				}));
+			}
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+			// Whichever batch lost the race on an item reports it as a conflict, every movie is created once
+			assertThat(responses).hasSize(2).allSatisfy(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK));
+			for (int i = 0; i < 50; i++) {
+				int index = i;
+				assertThat(responses.stream().map(response -> response.getBody().getResults().get(index).getStatus()).toList())
+						.containsExactlyInAnyOrder(201, 409);
+			}
+			assertThat(movieService.findExistingImdbIds(requests.stream().map(MovieRequest::getImdbId).toList())).hasSize(50);
+		}
+	}
+
+
+	@Test
+	void testSearchCacheEvictsEveryPageOfAnAffectedTerm() {
+		for (String imdbId : List.of("tt9150001", "tt9150002", "tt9150003")) {
+			Movie movie = new Movie();
+			movie.setTitle("Quokka " + imdbId);
+			movie.setYear(Year.of(2020));
+			movie.setImdbId(imdbId);
+			movieService.createMovie(movie);
+		}
+		Movie other = new Movie();
+		other.setTitle("Wombat");
+		other.setYear(Year.of(2020));
+		other.setImdbId("tt9150009");
+		movieService.createMovie(other);
+		Cache searchCache = cacheManager.getCache("movieSearch");
+		Function<Movie, Movie> changed = movie -> {
+			Movie copy = new Movie();
+			copy.setTitle(movie.getTitle());
+			copy.setYear(movie.getYear());
+			copy.setDescription(movie.getDescription());
+			return copy;
+		};
+
+		// The first page holds no changed movie, yet the other pages shift, so every page of the term goes
+		Page<Movie> first = movieService.searchMovies("Quokka", PageRequest.of(0, 1));
+		movieService.searchMovies("Quokka", PageRequest.of(1, 1));
+		movieService.searchMovies("Wombat", PageRequest.of(0, 1));
+		String last = movieService.searchMovies("Quokka", PageRequest.of(2, 1)).getContent().get(0).getImdbId();
+		assertThat(first.getTotalElements()).isEqualTo(3);
+		Movie unchangedText = changed.apply(movieService.getMovieById(last));
+		unchangedText.setYear(Year.of(2021));
+		movieService.updateMovie(last, unchangedText);
+		assertThat(searchCache.get("Quokka-0-1")).isNull();
+		assertThat(searchCache.get("Quokka-1-1")).isNull();
+		assertThat(searchCache.get("Wombat-0-1")).isNotNull();
+
+		// A movie leaving the results changes the total of every term it was in
+		movieService.searchMovies("Quokka", PageRequest.of(0, 1));
+		Movie renamed = changed.apply(movieService.getMovieById(last));
+		renamed.setTitle("Renamed");
+		movieService.updateMovie(last, renamed);
+		assertThat(searchCache.get("Wombat-0-1")).isNull();
+		assertThat(movieService.searchMovies("Quokka", PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+
+		// So does a delete
+		movieService.searchMovies("Wombat", PageRequest.of(0, 1));
+		movieService.deleteMovie(first.getContent().get(0).getImdbId());
+		assertThat(searchCache.get("Wombat-0-1")).isNull();
+		assertThat(movieService.searchMovies("Quokka", PageRequest.of(0, 1)).getTotalElements()).isEqualTo(1);
+	}
+
+	@Test
+	void testActorsCircuitRecordsAnyFailedCall() throws Exception {
+		actorsStub.put(8901L, "Gil");
+		AtomicReference<String> answer = new AtomicReference<>("index");
+		ActorsClientProperties properties = new ActorsClientProperties();
+		properties.setBaseUrl("http://localhost:" + actorsStubServer.getAddress().getPort());
+		properties.setFailureThreshold(1);
+		properties.setOpenDuration(Duration.ofMillis(200));
+		ActorsClient client = new ActorsClient(RestClient.builder().requestInterceptor((request, body, execution) -> {
+			if ("index".equals(answer.get())) {
+				MockClientHttpResponse response = new MockClientHttpResponse(
+						"{\"results\":[{\"index\":5,\"status\":200,\"item\":{\"id\":8901}}]}".getBytes(), HttpStatus.OK);
+				response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+				return response;
+			}
+			if ("broken".equals(answer.get())) {
+				throw new IllegalStateException("Broken client");
+			}
+			return execution.execute(request, body);
+		}), applicationContext.getBean(JwtTokenGenerator.class), properties, new SimpleMeterRegistry(),
+				new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true"));
+
+		// An index out of range is a failed call, not an IndexOutOfBoundsException
+		assertThat(client.getActors(List.of(8901L)).degraded()).isTrue();
+		assertThat(client.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+		// A trial call failing with something else than a RestClientException opens the circuit again
+		answer.set("broken");
+		Thread.sleep(300);
+		assertThat(client.getActors(List.of(8901L)).degraded()).isTrue();
+		assertThat(client.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+		answer.set("stub");
+		await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(client.getActors(List.of(8901L)).degraded()).isFalse());
+		assertThat(client.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
 }
\ No newline at end of file